@@ -0,0 +1,148 @@
+package com.sturdy.alterra.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.UserPrincipal;
+import com.sturdy.alterra.repository.UserPrincipalRepository;
+import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.repository.cache.CacheInvalidationBus;
+import com.sturdy.alterra.repository.cache.CacheInvalidationTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Cost of {@link DomainUserDetailsService#loadUserByUsername(String)} when the user is in the user caches, which is
+ * what a login costs besides checking the password.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserDetailsLookupBenchmark {
+
+    @Param({ "user", "user@localhost" })
+    private String identifier;
+
+    private DomainUserDetailsService domainUserDetailsService;
+
+    @Setup
+    public void setup() {
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("user");
+        user.setEmail("user@localhost");
+        user.setPassword("$2a$10$VEjxo0jq2YG9Rbk2HmX9S.k1uZBGYUHdUcid3g/vfiEl7lwWgOH/K");
+        user.setActivated(true);
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        user.setAuthorities(Set.of(authority));
+
+        UserRepository userRepository = cachedUserRepository(user);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KnownUserFilter knownUserFilter = new KnownUserFilter(
+            userRepository,
+            new SecurityMetersService(meterRegistry),
+            new ApplicationProperties(),
+            meterRegistry
+        );
+        knownUserFilter.sync();
+        // A single node, the entity manager factory is only used to apply the evictions of other nodes
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(
+            new ConcurrentMapCacheManager(),
+            null,
+            new StaticListableBeanFactory().getBeanProvider(CacheInvalidationTransport.class),
+            new ObjectMapper(),
+            new ApplicationProperties()
+        );
+        domainUserDetailsService =
+            new DomainUserDetailsService(userRepository, cachedUserPrincipalRepository(user), cacheInvalidationBus, knownUserFilter);
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return domainUserDetailsService.loadUserByUsername(identifier);
+    }
+
+    @Benchmark
+    public boolean classifyIdentifier() {
+        return LoginIdentifier.isEmail(identifier);
+    }
+
+    /**
+     * What classifying an identifier used to cost.
+     */
+    @Benchmark
+    public boolean classifyIdentifierWithEmailValidator() {
+        return new EmailValidator().isValid(identifier, null);
+    }
+
+    /**
+     * Repositories answering the user lookups the way the user caches do on a hit.
+     */
+    private static UserPrincipalRepository cachedUserPrincipalRepository(User user) {
+        Optional<UserPrincipal> cachedPrincipal = Optional.of(UserPrincipal.of(user));
+        return new UserPrincipalRepository(null) {
+            @Override
+            public Optional<UserPrincipal> findOneByLogin(String login) {
+                return cachedPrincipal;
+            }
+        };
+    }
+
+    private static UserRepository cachedUserRepository(User user) {
+        return (UserRepository) Proxy.newProxyInstance(
+            UserRepository.class.getClassLoader(),
+            new Class<?>[] { UserRepository.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "findLoginByEmailIgnoreCase":
+                        return Optional.of(user.getLogin());
+                    case "count":
+                        return 1L;
+                    case "findAllLoginsAndEmailsByIdGreaterThan":
+                        return List.of(loginAndEmail(user));
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+    }
+
+    private static UserRepository.IdLoginAndEmail loginAndEmail(User user) {
+        return new UserRepository.IdLoginAndEmail() {
+            @Override
+            public Long getId() {
+                return user.getId();
+            }
+
+            @Override
+            public String getLogin() {
+                return user.getLogin();
+            }
+
+            @Override
+            public String getEmail() {
+                return user.getEmail();
+            }
+        };
+    }
+}
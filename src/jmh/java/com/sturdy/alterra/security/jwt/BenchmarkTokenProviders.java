@@ -0,0 +1,84 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.cache.CacheManager;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Builds the token components for the benchmarks, without a database.
+ */
+final class BenchmarkTokenProviders {
+
+    private BenchmarkTokenProviders() {}
+
+    static TokenProvider tokenProvider(
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
+        CacheManager cacheManager
+    ) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SecurityMetersService securityMetersService = new SecurityMetersService(meterRegistry);
+        TokenRevocationList tokenRevocationList = tokenRevocationList(
+            Collections.emptyList(),
+            securityMetersService,
+            applicationProperties,
+            meterRegistry
+        );
+        return new TokenProvider(
+            jHipsterProperties,
+            applicationProperties,
+            securityMetersService,
+            new TokenAuthenticationCache(cacheManager, securityMetersService, tokenRevocationList),
+            // Authorities are written by name, so the codec never reads the authority table
+            new JwtAuthorityCodec(null, applicationProperties),
+            tokenRevocationList
+        );
+    }
+
+    /**
+     * A revocation list holding the given ids, synchronized once.
+     */
+    static TokenRevocationList tokenRevocationList(
+        List<String> revokedTokenIds,
+        SecurityMetersService securityMetersService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(
+            revokedTokenRepository(revokedTokenIds),
+            securityMetersService,
+            applicationProperties,
+            meterRegistry
+        );
+        tokenRevocationList.sync();
+        return tokenRevocationList;
+    }
+
+    private static RevokedTokenRepository revokedTokenRepository(List<String> revokedTokenIds) {
+        return (RevokedTokenRepository) Proxy.newProxyInstance(
+            RevokedTokenRepository.class.getClassLoader(),
+            new Class<?>[] { RevokedTokenRepository.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "findAllTokenIdsByExpiresAtAfter":
+                        return revokedTokenIds;
+                    case "findAllTokenIdsByRevokedAtAfter":
+                        return Collections.emptyList();
+                    case "deleteAllByExpiresAtBefore":
+                        return 0;
+                    case "existsById":
+                        return revokedTokenIds.contains(args[0]);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        );
+    }
+}
@@ -0,0 +1,58 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.management.SecurityMetersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of the revocation check of a token that was never revoked, the common case on every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenRevocationBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int revokedTokens;
+
+    private TokenRevocationList tokenRevocationList;
+
+    private String tokenId;
+
+    @Setup
+    public void setup() {
+        List<String> revokedTokenIds = new ArrayList<>(revokedTokens);
+        for (int i = 0; i < revokedTokens; i++) {
+            revokedTokenIds.add(UUID.randomUUID().toString());
+        }
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tokenRevocationList =
+            BenchmarkTokenProviders.tokenRevocationList(
+                revokedTokenIds,
+                new SecurityMetersService(meterRegistry),
+                new ApplicationProperties(),
+                meterRegistry
+            );
+        do {
+            tokenId = UUID.randomUUID().toString();
+        } while (tokenRevocationList.isRevoked(tokenId));
+    }
+
+    @Benchmark
+    public boolean notRevoked() {
+        return tokenRevocationList.isRevoked(tokenId);
+    }
+}
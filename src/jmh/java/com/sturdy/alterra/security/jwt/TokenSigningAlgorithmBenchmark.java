@@ -0,0 +1,96 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Signing and verification latency of the supported JWT algorithms, sampled to report the tail percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenSigningAlgorithmBenchmark {
+
+    private static final String BASE64_SECRET =
+        "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
+
+    @Param({ "HS512", "ES256", "ES384", "ES512" })
+    private String algorithm;
+
+    private TokenProvider tokenProvider;
+
+    private Authentication authentication;
+
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.Security.Jwt jwt = applicationProperties.getSecurity().getJwt();
+        jwt.setSigningAlgorithm(algorithm);
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.forName(algorithm);
+        if (signatureAlgorithm.isEllipticCurve()) {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec(curveOf(signatureAlgorithm)));
+            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+            ApplicationProperties.Security.Jwt.Key key = new ApplicationProperties.Security.Jwt.Key();
+            key.setId("benchmark");
+            key.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+            key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+            jwt.setActiveKeyId(key.getId());
+            jwt.getKeys().add(key);
+        }
+        tokenProvider = BenchmarkTokenProviders.tokenProvider(jHipsterProperties, applicationProperties, new NoOpCacheManager());
+
+        authentication =
+            new UsernamePasswordAuthenticationToken(
+                "benchmark-user",
+                "",
+                Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+            );
+        token = tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public String sign() {
+        return tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public Authentication verify() {
+        return tokenProvider.validate(token).getAuthentication().orElseThrow();
+    }
+
+    private static String curveOf(SignatureAlgorithm signatureAlgorithm) {
+        switch (signatureAlgorithm) {
+            case ES384:
+                return "secp384r1";
+            case ES512:
+                return "secp521r1";
+            default:
+                return "secp256r1";
+        }
+    }
+}
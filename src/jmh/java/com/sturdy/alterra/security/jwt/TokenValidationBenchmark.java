@@ -0,0 +1,91 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Compares the ways {@link JWTFilter} can turn a bearer token into an {@link Authentication}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenValidationBenchmark {
+
+    private static final String BASE64_SECRET =
+        "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
+
+    private JwtParser jwtParser;
+
+    private TokenProvider tokenProvider;
+
+    private TokenProvider cachingTokenProvider;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+
+        ConcurrentMapCacheManager noCacheManager = new ConcurrentMapCacheManager();
+        noCacheManager.setCacheNames(Collections.emptyList());
+        tokenProvider = BenchmarkTokenProviders.tokenProvider(jHipsterProperties, applicationProperties, noCacheManager);
+
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(TokenAuthenticationCache.AUTHENTICATIONS_BY_TOKEN_CACHE);
+        cachingTokenProvider = BenchmarkTokenProviders.tokenProvider(jHipsterProperties, applicationProperties, cacheManager);
+
+        jwtParser = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(BASE64_SECRET))).build();
+        token =
+            tokenProvider.createToken(
+                new UsernamePasswordAuthenticationToken(
+                    "benchmark-user",
+                    "",
+                    Arrays.asList(
+                        new SimpleGrantedAuthority(AuthoritiesConstants.USER),
+                        new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)
+                    )
+                ),
+                false
+            );
+        cachingTokenProvider.validate(token);
+    }
+
+    /**
+     * The former flow: a parse and signature check to validate the token, then a second one to read its claims.
+     */
+    @Benchmark
+    public Authentication validateThenGetAuthentication() {
+        jwtParser.parseClaimsJws(token);
+        return tokenProvider.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Authentication singleParseValidation() {
+        return tokenProvider.validate(token).getAuthentication().orElseThrow();
+    }
+
+    @Benchmark
+    public Authentication cachedAuthentication() {
+        return cachingTokenProvider.getCachedAuthentication(token).orElseThrow();
+    }
+}
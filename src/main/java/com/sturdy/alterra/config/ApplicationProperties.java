@@ -1,6 +1,12 @@
 package com.sturdy.alterra.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties specific to Sturdyalterra.
@@ -10,7 +16,949 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Security security = new Security();
+
+    private final Cache cache = new Cache();
+
+    private final Users users = new Users();
+
     // jhipster-needle-application-properties-property
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Users getUsers() {
+        return users;
+    }
+
     // jhipster-needle-application-properties-property-getter
+
+    public static class Security {
+
+        private final AuthenticationCache authenticationCache = new AuthenticationCache();
+
+        private final Jwt jwt = new Jwt();
+
+        private final TokenRevocation tokenRevocation = new TokenRevocation();
+
+        private final RefreshToken refreshToken = new RefreshToken();
+
+        private final PasswordHashing passwordHashing = new PasswordHashing();
+
+        private final LoginThrottling loginThrottling = new LoginThrottling();
+
+        private final KnownUsers knownUsers = new KnownUsers();
+
+        private List<String> trustedProxies = new ArrayList<>();
+
+        public AuthenticationCache getAuthenticationCache() {
+            return authenticationCache;
+        }
+
+        public Jwt getJwt() {
+            return jwt;
+        }
+
+        public TokenRevocation getTokenRevocation() {
+            return tokenRevocation;
+        }
+
+        public RefreshToken getRefreshToken() {
+            return refreshToken;
+        }
+
+        public PasswordHashing getPasswordHashing() {
+            return passwordHashing;
+        }
+
+        public LoginThrottling getLoginThrottling() {
+            return loginThrottling;
+        }
+
+        public KnownUsers getKnownUsers() {
+            return knownUsers;
+        }
+
+        /**
+         * @return the addresses or CIDR ranges of the reverse proxies whose forwarded headers are trusted, with
+         * {@code server.forward-headers-strategy: framework}, see {@code TrustedProxyForwardedHeaderFilter}.
+         */
+        public List<String> getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(List<String> trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        /**
+         * Cache of the authentications built from already verified JWTs.
+         */
+        public static class AuthenticationCache {
+
+            private boolean enabled = true;
+
+            private long maxEntries = 10000;
+
+            private long timeToLiveSeconds = 3600;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+        }
+
+        /**
+         * Signing mode of the JWTs.
+         * <p>
+         * HMAC algorithms use the {@code jhipster.security.authentication.jwt} secret. Asymmetric algorithms use the
+         * {@link #getKeys() key ring}: tokens are signed with the active key and carry its id in their {@code kid}
+         * header, and are verified with the public key of the matching id.
+         */
+        public static class Jwt {
+
+            private String signingAlgorithm = "HS512";
+
+            private String activeKeyId;
+
+            private List<Key> keys = new ArrayList<>();
+
+            private boolean compactAuthorities = false;
+
+            public String getSigningAlgorithm() {
+                return signingAlgorithm;
+            }
+
+            public void setSigningAlgorithm(String signingAlgorithm) {
+                this.signingAlgorithm = signingAlgorithm;
+            }
+
+            public String getActiveKeyId() {
+                return activeKeyId;
+            }
+
+            public void setActiveKeyId(String activeKeyId) {
+                this.activeKeyId = activeKeyId;
+            }
+
+            public List<Key> getKeys() {
+                return keys;
+            }
+
+            public void setKeys(List<Key> keys) {
+                this.keys = keys;
+            }
+
+            public boolean isCompactAuthorities() {
+                return compactAuthorities;
+            }
+
+            public void setCompactAuthorities(boolean compactAuthorities) {
+                this.compactAuthorities = compactAuthorities;
+            }
+
+            /**
+             * A key pair of the key ring, as Base64-encoded DER or PEM.
+             * <p>
+             * The private key is only needed on the nodes issuing tokens, and only for the active key.
+             */
+            public static class Key {
+
+                private String id;
+
+                private String privateKey;
+
+                private String publicKey;
+
+                public String getId() {
+                    return id;
+                }
+
+                public void setId(String id) {
+                    this.id = id;
+                }
+
+                public String getPrivateKey() {
+                    return privateKey;
+                }
+
+                public void setPrivateKey(String privateKey) {
+                    this.privateKey = privateKey;
+                }
+
+                public String getPublicKey() {
+                    return publicKey;
+                }
+
+                public void setPublicKey(String publicKey) {
+                    this.publicKey = publicKey;
+                }
+            }
+        }
+
+        /**
+         * Revocation list of the JWTs, held by every node as a Bloom filter over the revocation table.
+         * <p>
+         * A revocation reaches the other nodes within {@code sync-interval}. The filter is rebuilt every
+         * {@code rebuild-interval} to drop the expired tokens, or as soon as it holds more than
+         * {@code expected-revocations} ids.
+         */
+        public static class TokenRevocation {
+
+            private long expectedRevocations = 100000;
+
+            private double falsePositiveRate = 0.001;
+
+            private Duration syncInterval = Duration.ofSeconds(10);
+
+            private Duration rebuildInterval = Duration.ofHours(1);
+
+            private int rebuildBatchSize = 10000;
+
+            public long getExpectedRevocations() {
+                return expectedRevocations;
+            }
+
+            public void setExpectedRevocations(long expectedRevocations) {
+                this.expectedRevocations = expectedRevocations;
+            }
+
+            public double getFalsePositiveRate() {
+                return falsePositiveRate;
+            }
+
+            public void setFalsePositiveRate(double falsePositiveRate) {
+                this.falsePositiveRate = falsePositiveRate;
+            }
+
+            public Duration getSyncInterval() {
+                return syncInterval;
+            }
+
+            public void setSyncInterval(Duration syncInterval) {
+                this.syncInterval = syncInterval;
+            }
+
+            public Duration getRebuildInterval() {
+                return rebuildInterval;
+            }
+
+            public void setRebuildInterval(Duration rebuildInterval) {
+                this.rebuildInterval = rebuildInterval;
+            }
+
+            public int getRebuildBatchSize() {
+                return rebuildBatchSize;
+            }
+
+            public void setRebuildBatchSize(int rebuildBatchSize) {
+                this.rebuildBatchSize = rebuildBatchSize;
+            }
+        }
+
+        /**
+         * Refresh tokens, exchanged for new access tokens without checking the password again.
+         * <p>
+         * Once enabled, the access tokens last {@code access-token-validity} only, and a refresh token lasting
+         * {@code token-validity}, or {@code token-validity-for-remember-me}, is issued along with them. This lifetime is
+         * not extended by the rotations.
+         */
+        public static class RefreshToken {
+
+            private boolean enabled = false;
+
+            private Duration accessTokenValidity = Duration.ofMinutes(15);
+
+            private Duration tokenValidity = Duration.ofDays(1);
+
+            private Duration tokenValidityForRememberMe = Duration.ofDays(30);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getAccessTokenValidity() {
+                return accessTokenValidity;
+            }
+
+            public void setAccessTokenValidity(Duration accessTokenValidity) {
+                this.accessTokenValidity = accessTokenValidity;
+            }
+
+            public Duration getTokenValidity() {
+                return tokenValidity;
+            }
+
+            public void setTokenValidity(Duration tokenValidity) {
+                this.tokenValidity = tokenValidity;
+            }
+
+            public Duration getTokenValidityForRememberMe() {
+                return tokenValidityForRememberMe;
+            }
+
+            public void setTokenValidityForRememberMe(Duration tokenValidityForRememberMe) {
+                this.tokenValidityForRememberMe = tokenValidityForRememberMe;
+            }
+        }
+
+        /**
+         * Password hashing, run on a dedicated bounded pool so that login storms cannot starve the request threads.
+         * <p>
+         * At most {@code max-concurrency} passwords are hashed at once, {@code 0} meaning half the available processors.
+         * Up to {@code queue-capacity} more wait for at most {@code max-wait}, the others are rejected right away. Stored
+         * hashes using another {@code algorithm}, or lower cost parameters, are rehashed on the next successful login.
+         */
+        public static class PasswordHashing {
+
+            private String algorithm = "bcrypt";
+
+            private int maxConcurrency = 0;
+
+            private int queueCapacity = 100;
+
+            private Duration maxWait = Duration.ofSeconds(5);
+
+            private final Bcrypt bcrypt = new Bcrypt();
+
+            private final Argon2 argon2 = new Argon2();
+
+            private final Pbkdf2 pbkdf2 = new Pbkdf2();
+
+            public String getAlgorithm() {
+                return algorithm;
+            }
+
+            public void setAlgorithm(String algorithm) {
+                this.algorithm = algorithm;
+            }
+
+            public int getMaxConcurrency() {
+                return maxConcurrency;
+            }
+
+            public void setMaxConcurrency(int maxConcurrency) {
+                this.maxConcurrency = maxConcurrency;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public Duration getMaxWait() {
+                return maxWait;
+            }
+
+            public void setMaxWait(Duration maxWait) {
+                this.maxWait = maxWait;
+            }
+
+            public Bcrypt getBcrypt() {
+                return bcrypt;
+            }
+
+            public Argon2 getArgon2() {
+                return argon2;
+            }
+
+            public Pbkdf2 getPbkdf2() {
+                return pbkdf2;
+            }
+
+            public static class Bcrypt {
+
+                private int strength = 10;
+
+                public int getStrength() {
+                    return strength;
+                }
+
+                public void setStrength(int strength) {
+                    this.strength = strength;
+                }
+            }
+
+            public static class Argon2 {
+
+                private int saltLength = 16;
+
+                private int hashLength = 32;
+
+                private int parallelism = 1;
+
+                private int memory = 1 << 14;
+
+                private int iterations = 2;
+
+                public int getSaltLength() {
+                    return saltLength;
+                }
+
+                public void setSaltLength(int saltLength) {
+                    this.saltLength = saltLength;
+                }
+
+                public int getHashLength() {
+                    return hashLength;
+                }
+
+                public void setHashLength(int hashLength) {
+                    this.hashLength = hashLength;
+                }
+
+                public int getParallelism() {
+                    return parallelism;
+                }
+
+                public void setParallelism(int parallelism) {
+                    this.parallelism = parallelism;
+                }
+
+                public int getMemory() {
+                    return memory;
+                }
+
+                public void setMemory(int memory) {
+                    this.memory = memory;
+                }
+
+                public int getIterations() {
+                    return iterations;
+                }
+
+                public void setIterations(int iterations) {
+                    this.iterations = iterations;
+                }
+            }
+
+            public static class Pbkdf2 {
+
+                private int iterations = 310000;
+
+                public int getIterations() {
+                    return iterations;
+                }
+
+                public void setIterations(int iterations) {
+                    this.iterations = iterations;
+                }
+            }
+        }
+
+        /**
+         * Throttling of the login attempts, counted per login and per client address over a sliding {@code window}.
+         * <p>
+         * Each count is held in {@code buckets} slots whatever the number of logins and addresses, a larger value makes
+         * unrelated logins or addresses less likely to share their count.
+         */
+        public static class LoginThrottling {
+
+            private boolean enabled = true;
+
+            private Duration window = Duration.ofMinutes(1);
+
+            private int maxAttemptsPerLogin = 10;
+
+            private int maxAttemptsPerAddress = 50;
+
+            private int buckets = 16384;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getWindow() {
+                return window;
+            }
+
+            public void setWindow(Duration window) {
+                this.window = window;
+            }
+
+            public int getMaxAttemptsPerLogin() {
+                return maxAttemptsPerLogin;
+            }
+
+            public void setMaxAttemptsPerLogin(int maxAttemptsPerLogin) {
+                this.maxAttemptsPerLogin = maxAttemptsPerLogin;
+            }
+
+            public int getMaxAttemptsPerAddress() {
+                return maxAttemptsPerAddress;
+            }
+
+            public void setMaxAttemptsPerAddress(int maxAttemptsPerAddress) {
+                this.maxAttemptsPerAddress = maxAttemptsPerAddress;
+            }
+
+            public int getBuckets() {
+                return buckets;
+            }
+
+            public void setBuckets(int buckets) {
+                this.buckets = buckets;
+            }
+        }
+
+        /**
+         * Bloom filter of the logins and emails of the users, held by every node so that the login attempts of unknown
+         * users are rejected without a database lookup.
+         * <p>
+         * A user created on another node is known to this one within {@code sync-interval}. The filter is rebuilt every
+         * {@code rebuild-interval} to drop the deleted users, or as soon as it holds the keys of more users than it was
+         * sized for, at least {@code expected-users}. The rebuild reads {@code rebuild-batch-size} users at a time.
+         */
+        public static class KnownUsers {
+
+            private boolean enabled = true;
+
+            private long expectedUsers = 100000;
+
+            private double falsePositiveRate = 0.01;
+
+            private Duration syncInterval = Duration.ofSeconds(10);
+
+            private Duration rebuildInterval = Duration.ofHours(1);
+
+            private int rebuildBatchSize = 10000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getExpectedUsers() {
+                return expectedUsers;
+            }
+
+            public void setExpectedUsers(long expectedUsers) {
+                this.expectedUsers = expectedUsers;
+            }
+
+            public double getFalsePositiveRate() {
+                return falsePositiveRate;
+            }
+
+            public void setFalsePositiveRate(double falsePositiveRate) {
+                this.falsePositiveRate = falsePositiveRate;
+            }
+
+            public Duration getSyncInterval() {
+                return syncInterval;
+            }
+
+            public void setSyncInterval(Duration syncInterval) {
+                this.syncInterval = syncInterval;
+            }
+
+            public Duration getRebuildInterval() {
+                return rebuildInterval;
+            }
+
+            public void setRebuildInterval(Duration rebuildInterval) {
+                this.rebuildInterval = rebuildInterval;
+            }
+
+            public int getRebuildBatchSize() {
+                return rebuildBatchSize;
+            }
+
+            public void setRebuildBatchSize(int rebuildBatchSize) {
+                this.rebuildBatchSize = rebuildBatchSize;
+            }
+        }
+    }
+
+    /**
+     * Policies of the caches, by cache name.
+     * <p>
+     * A cache without a policy, or a policy setting neither bound nor expiry, falls back to the
+     * {@code jhipster.cache.ehcache} ones. Hibernate caches are named after their entity or collection, so their name
+     * must be bracketed in {@code application.yml}, such as {@code "[com.sturdy.alterra.domain.Authority]"}.
+     * <p>
+     * The disk tiers of every cache are stored under {@code disk-storage-path}, which a single node may use at a time.
+     */
+    public static class Cache {
+
+        private Duration expirySweepInterval = Duration.ofMinutes(1);
+
+        private String diskStoragePath;
+
+        private Map<String, Policy> policies = new LinkedHashMap<>();
+
+        private final Invalidation invalidation = new Invalidation();
+
+        private final WarmUp warmUp = new WarmUp();
+
+        public Duration getExpirySweepInterval() {
+            return expirySweepInterval;
+        }
+
+        public void setExpirySweepInterval(Duration expirySweepInterval) {
+            this.expirySweepInterval = expirySweepInterval;
+        }
+
+        public String getDiskStoragePath() {
+            return diskStoragePath;
+        }
+
+        public void setDiskStoragePath(String diskStoragePath) {
+            this.diskStoragePath = diskStoragePath;
+        }
+
+        public Map<String, Policy> getPolicies() {
+            return policies;
+        }
+
+        public void setPolicies(Map<String, Policy> policies) {
+            this.policies = policies;
+        }
+
+        public Invalidation getInvalidation() {
+            return invalidation;
+        }
+
+        public WarmUp getWarmUp() {
+            return warmUp;
+        }
+
+        /**
+         * Bound and expiry of a cache.
+         * <p>
+         * The heap tier of a cache is bounded by {@code max-entries} or by {@code max-size}, the heap size of its keys
+         * and values, not both. Its entries expire {@code expire-after} their creation or update with {@code time-to-live}, or their
+         * last access with {@code time-to-idle}, and never with {@code none}. Expired entries are dropped when read,
+         * or every {@code expiry-sweep-interval} as well with {@code eager-expiry}, so that they do not hold memory
+         * until then.
+         * <p>
+         * The entries of a cache looked up with {@code @Cacheable(sync = true)} that are read {@code refresh-after}
+         * their load are reloaded in the background, so that they are replaced before they expire.
+         * <p>
+         * Large caches can overflow to an {@code off-heap-size} tier outside of the Java heap, and then to a
+         * {@code disk-size} tier, each larger than the previous one. The entries of such a cache are serialized, so they
+         * must be {@link java.io.Serializable}, and copied in the heap tier as well. A {@code disk-persistent} disk tier
+         * is kept across restarts, as long as the node shuts down cleanly.
+         */
+        public static class Policy {
+
+            private Long maxEntries;
+
+            private DataSize maxSize;
+
+            private DataSize offHeapSize;
+
+            private DataSize diskSize;
+
+            private boolean diskPersistent = true;
+
+            private Expiry expiry = Expiry.TIME_TO_LIVE;
+
+            private Duration expireAfter;
+
+            private Duration refreshAfter;
+
+            private boolean eagerExpiry = false;
+
+            private boolean statistics = true;
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public DataSize getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(DataSize maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public DataSize getOffHeapSize() {
+                return offHeapSize;
+            }
+
+            public void setOffHeapSize(DataSize offHeapSize) {
+                this.offHeapSize = offHeapSize;
+            }
+
+            public DataSize getDiskSize() {
+                return diskSize;
+            }
+
+            public void setDiskSize(DataSize diskSize) {
+                this.diskSize = diskSize;
+            }
+
+            public boolean isDiskPersistent() {
+                return diskPersistent;
+            }
+
+            public void setDiskPersistent(boolean diskPersistent) {
+                this.diskPersistent = diskPersistent;
+            }
+
+            public Expiry getExpiry() {
+                return expiry;
+            }
+
+            public void setExpiry(Expiry expiry) {
+                this.expiry = expiry;
+            }
+
+            public Duration getExpireAfter() {
+                return expireAfter;
+            }
+
+            public void setExpireAfter(Duration expireAfter) {
+                this.expireAfter = expireAfter;
+            }
+
+            public Duration getRefreshAfter() {
+                return refreshAfter;
+            }
+
+            public void setRefreshAfter(Duration refreshAfter) {
+                this.refreshAfter = refreshAfter;
+            }
+
+            public boolean isEagerExpiry() {
+                return eagerExpiry;
+            }
+
+            public void setEagerExpiry(boolean eagerExpiry) {
+                this.eagerExpiry = eagerExpiry;
+            }
+
+            public boolean isStatistics() {
+                return statistics;
+            }
+
+            public void setStatistics(boolean statistics) {
+                this.statistics = statistics;
+            }
+
+            public enum Expiry {
+                TIME_TO_LIVE,
+                TIME_TO_IDLE,
+                NONE,
+            }
+        }
+
+        /**
+         * Invalidation of the caches of the other nodes, see {@code CacheInvalidationBus}.
+         * <p>
+         * With the {@code postgres} transport, the nodes notify each other on the {@code channel} of the database they
+         * share. Evictions are sent every {@code coalesce-window}, and the connection listening to the other nodes is
+         * reopened {@code reconnect-delay} after it fails.
+         */
+        public static class Invalidation {
+
+            private Transport transport = Transport.NONE;
+
+            private String channel = "cache_invalidation";
+
+            private Duration coalesceWindow = Duration.ofMillis(100);
+
+            private Duration reconnectDelay = Duration.ofSeconds(5);
+
+            public Transport getTransport() {
+                return transport;
+            }
+
+            public void setTransport(Transport transport) {
+                this.transport = transport;
+            }
+
+            public String getChannel() {
+                return channel;
+            }
+
+            public void setChannel(String channel) {
+                this.channel = channel;
+            }
+
+            public Duration getCoalesceWindow() {
+                return coalesceWindow;
+            }
+
+            public void setCoalesceWindow(Duration coalesceWindow) {
+                this.coalesceWindow = coalesceWindow;
+            }
+
+            public Duration getReconnectDelay() {
+                return reconnectDelay;
+            }
+
+            public void setReconnectDelay(Duration reconnectDelay) {
+                this.reconnectDelay = reconnectDelay;
+            }
+
+            public enum Transport {
+                NONE,
+                POSTGRES,
+            }
+        }
+
+        /**
+         * Preloading of the caches on startup, see {@code CacheWarmUp}.
+         * <p>
+         * The authorities, and the {@code users} most recently active users, are loaded {@code batch-size} users at a
+         * time. The application is not ready until then.
+         */
+        public static class WarmUp {
+
+            private boolean enabled = false;
+
+            private int users = 1000;
+
+            private int batchSize = 100;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getUsers() {
+                return users;
+            }
+
+            public void setUsers(int users) {
+                this.users = users;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+        }
+    }
+
+    public static class Users {
+
+        private final Cleanup cleanup = new Cleanup();
+
+        private final Bulk bulk = new Bulk();
+
+        public Cleanup getCleanup() {
+            return cleanup;
+        }
+
+        public Bulk getBulk() {
+            return bulk;
+        }
+
+        public static class Cleanup {
+
+            private int batchSize = 500;
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+        }
+
+        /**
+         * Bulk import and export of the users, see {@code UserBulkService}.
+         * <p>
+         * Their responses are streamed by asynchronous requests, see {@code WebAsyncConfiguration}, which run on a pool of
+         * {@code max-concurrency} threads, with up to {@code queue-capacity} requests waiting for one, and are cut off
+         * after {@code request-timeout}.
+         */
+        public static class Bulk {
+
+            private int batchSize = 100;
+
+            private Duration requestTimeout = Duration.ofHours(1);
+
+            private int maxConcurrency = 4;
+
+            private int queueCapacity = 16;
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public Duration getRequestTimeout() {
+                return requestTimeout;
+            }
+
+            public void setRequestTimeout(Duration requestTimeout) {
+                this.requestTimeout = requestTimeout;
+            }
+
+            public int getMaxConcurrency() {
+                return maxConcurrency;
+            }
+
+            public void setMaxConcurrency(int maxConcurrency) {
+                this.maxConcurrency = maxConcurrency;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
@@ -1,38 +1,178 @@
 package com.sturdy.alterra.config;
 
+import com.sturdy.alterra.repository.cache.CacheInvalidationTransport;
+import com.sturdy.alterra.repository.cache.CoalescingCache;
+import com.sturdy.alterra.repository.cache.PostgresCacheInvalidationTransport;
+import com.sturdy.alterra.security.jwt.TokenAuthenticationCache;
+import java.io.File;
+import java.time.Clock;
 import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.ehcache.config.ResourcePools;
 import org.ehcache.config.builders.*;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration;
 import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
 import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.availability.ReadinessStateHealthIndicator;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.JCacheCacheMeterBinderProvider;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.boot.info.GitProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.jcache.JCacheCache;
+import org.springframework.cache.jcache.JCacheCacheManager;
 import org.springframework.context.annotation.*;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import tech.jhipster.config.JHipsterProperties;
 import tech.jhipster.config.cache.PrefixedKeyGenerator;
 
+/**
+ * Caches of the application, with the policies of {@code application.cache.policies}.
+ * <p>
+ * Statistics are enabled on every cache unless its policy disables them, so that their gets, hits and misses are
+ * exported as the {@code cache.gets} meters.
+ * <p>
+ * The JCache manager is built here rather than by Spring Boot, so that it gets a persistence service for the disk
+ * tiers when a policy has one.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
 
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+    private final ApplicationProperties.Cache cacheProperties;
+    private final javax.cache.configuration.Configuration<Object, Object> tokenAuthenticationCacheConfiguration;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache = jHipsterProperties.getCache().getEhcache();
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.ehcache = jHipsterProperties.getCache().getEhcache();
+        this.cacheProperties = applicationProperties.getCache();
+        ApplicationProperties.Security.AuthenticationCache authenticationCache = applicationProperties
+            .getSecurity()
+            .getAuthenticationCache();
 
-        jcacheConfiguration =
-            Eh107Configuration.fromEhcacheCacheConfiguration(
-                CacheConfigurationBuilder
-                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
-                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ehcache.getTimeToLiveSeconds())))
-                    .build()
-            );
+        if (authenticationCache.isEnabled()) {
+            tokenAuthenticationCacheConfiguration =
+                Eh107Configuration.fromEhcacheCacheConfiguration(
+                    CacheConfigurationBuilder
+                        .newCacheConfigurationBuilder(
+                            Object.class,
+                            Object.class,
+                            ResourcePoolsBuilder.heap(authenticationCache.getMaxEntries())
+                        )
+                        .withExpiry(new TokenExpiryPolicy(Duration.ofSeconds(authenticationCache.getTimeToLiveSeconds())))
+                        .build()
+                );
+        } else {
+            tokenAuthenticationCacheConfiguration = null;
+        }
+    }
+
+    @Bean
+    public javax.cache.CacheManager jCacheCacheManager(ObjectProvider<JCacheManagerCustomizer> cacheManagerCustomizers) {
+        EhcacheCachingProvider cachingProvider = (EhcacheCachingProvider) javax.cache.Caching.getCachingProvider(
+            EhcacheCachingProvider.class.getName()
+        );
+        DefaultConfiguration configuration;
+        if (cacheProperties.getPolicies().values().stream().anyMatch(policy -> policy.getDiskSize() != null)) {
+            if (cacheProperties.getDiskStoragePath() == null) {
+                throw new IllegalArgumentException("application.cache.disk-storage-path must be set for the disk tiers");
+            }
+            configuration =
+                new DefaultConfiguration(
+                    cachingProvider.getDefaultClassLoader(),
+                    new DefaultPersistenceConfiguration(new File(cacheProperties.getDiskStoragePath()))
+                );
+        } else {
+            configuration = new DefaultConfiguration(cachingProvider.getDefaultClassLoader());
+        }
+        javax.cache.CacheManager cacheManager = cachingProvider.getCacheManager(cachingProvider.getDefaultURI(), configuration);
+        cacheManagerCustomizers.orderedStream().forEach(customizer -> customizer.customize(cacheManager));
+        return cacheManager;
+    }
+
+    /**
+     * Spring caches over the JCache ones, loading each missing key once and refreshing the entries of the policies with
+     * {@code refresh-after}, see {@link CoalescingCache}.
+     */
+    @Bean
+    public JCacheCacheManager cacheManager(
+        javax.cache.CacheManager jCacheCacheManager,
+        @Qualifier("taskExecutor") Executor taskExecutor
+    ) {
+        return new JCacheCacheManager(jCacheCacheManager) {
+            @Override
+            protected org.springframework.cache.Cache decorateCache(org.springframework.cache.Cache cache) {
+                ApplicationProperties.Cache.Policy policy = cacheProperties.getPolicies().get(cache.getName());
+                Duration refreshAfter = policy != null ? policy.getRefreshAfter() : null;
+                return super.decorateCache(new CoalescingCache(cache, refreshAfter, taskExecutor, Clock.systemUTC()));
+            }
+        };
+    }
+
+    /**
+     * Meters of the decorated caches, the ones of the JCache caches they decorate.
+     */
+    @Bean
+    public CacheMeterBinderProvider<CoalescingCache> coalescingCacheMeterBinderProvider() {
+        JCacheCacheMeterBinderProvider jCacheCacheMeterBinderProvider = new JCacheCacheMeterBinderProvider();
+        return (cache, tags) ->
+            cache.getTarget() instanceof JCacheCache
+                ? jCacheCacheMeterBinderProvider.getMeterBinder((JCacheCache) cache.getTarget(), tags)
+                : null;
+    }
+
+    /**
+     * Readiness of the application, which refuses traffic until the caches are warmed up, see {@link CacheWarmUp}.
+     */
+    @Bean
+    public ReadinessStateHealthIndicator readinessStateHealthIndicator(
+        ApplicationAvailability applicationAvailability,
+        CacheWarmUp cacheWarmUp
+    ) {
+        return new ReadinessStateHealthIndicator(applicationAvailability) {
+            @Override
+            protected AvailabilityState getState(ApplicationAvailability applicationAvailability) {
+                return cacheWarmUp.isDone() ? super.getState(applicationAvailability) : ReadinessState.REFUSING_TRAFFIC;
+            }
+        };
+    }
+
+    /**
+     * Transport of the cache invalidations between the nodes sharing the database, over connections of its own rather
+     * than pooled ones.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "application.cache.invalidation", name = "transport", havingValue = "postgres")
+    public CacheInvalidationTransport cacheInvalidationTransport(DataSourceProperties dataSourceProperties) {
+        ApplicationProperties.Cache.Invalidation invalidation = cacheProperties.getInvalidation();
+        return new PostgresCacheInvalidationTransport(
+            dataSourceProperties.initializeDataSourceBuilder().type(SimpleDriverDataSource.class).build(),
+            invalidation.getChannel(),
+            invalidation.getReconnectDelay()
+        );
     }
 
     @Bean
@@ -48,17 +188,114 @@ public class CacheConfiguration {
             createCache(cm, com.sturdy.alterra.domain.User.class.getName());
             createCache(cm, com.sturdy.alterra.domain.Authority.class.getName());
             createCache(cm, com.sturdy.alterra.domain.User.class.getName() + ".authorities");
+            if (tokenAuthenticationCacheConfiguration != null) {
+                createCache(cm, TokenAuthenticationCache.AUTHENTICATIONS_BY_TOKEN_CACHE, tokenAuthenticationCacheConfiguration);
+            }
             // jhipster-needle-ehcache-add-entry
         };
     }
 
+    /**
+     * Drop the expired entries of the caches with eager expiry, which Ehcache otherwise only drops when they are read.
+     */
+    @Bean
+    public SchedulingConfigurer cacheExpirySweeper(javax.cache.CacheManager cacheManager) {
+        List<String> eagerCacheNames = cacheProperties
+            .getPolicies()
+            .entrySet()
+            .stream()
+            .filter(policy -> policy.getValue().isEagerExpiry())
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+        return taskRegistrar -> {
+            if (!eagerCacheNames.isEmpty()) {
+                taskRegistrar.addFixedDelayTask(
+                    () -> sweepExpiredEntries(cacheManager, eagerCacheNames),
+                    cacheProperties.getExpirySweepInterval().toMillis()
+                );
+            }
+        };
+    }
+
+    static void sweepExpiredEntries(javax.cache.CacheManager cacheManager, List<String> cacheNames) {
+        for (String cacheName : cacheNames) {
+            javax.cache.Cache<Object, Object> cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                // Iterating over an Ehcache cache drops the expired entries it meets
+                org.ehcache.Cache<?, ?> ehcacheCache = cache.unwrap(org.ehcache.Cache.class);
+                Iterator<?> entries = ehcacheCache.iterator();
+                while (entries.hasNext()) {
+                    entries.next();
+                }
+            }
+        }
+    }
+
     private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        createCache(cm, cacheName, jcacheConfiguration(cacheName));
+    }
+
+    javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(String cacheName) {
+        ApplicationProperties.Cache.Policy policy = cacheProperties.getPolicies().get(cacheName);
+        if (policy == null) {
+            policy = new ApplicationProperties.Cache.Policy();
+        }
+        Duration expireAfter = policy.getExpireAfter() != null
+            ? policy.getExpireAfter()
+            : Duration.ofSeconds(ehcache.getTimeToLiveSeconds());
+        ExpiryPolicy<Object, Object> expiry;
+        switch (policy.getExpiry()) {
+            case NONE:
+                expiry = ExpiryPolicyBuilder.noExpiration();
+                break;
+            case TIME_TO_IDLE:
+                expiry = ExpiryPolicyBuilder.timeToIdleExpiration(expireAfter);
+                break;
+            default:
+                expiry = ExpiryPolicyBuilder.timeToLiveExpiration(expireAfter);
+        }
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, resourcePools(cacheName, policy))
+            .withExpiry(expiry);
+        if (policy.getOffHeapSize() != null || policy.getDiskSize() != null) {
+            // The lower tiers hold serialized entries, keep the heap tier from sharing mutable ones with the callers
+            builder = builder.withValueSerializingCopier();
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(builder.build());
+    }
+
+    private ResourcePools resourcePools(String cacheName, ApplicationProperties.Cache.Policy policy) {
+        ResourcePoolsBuilder resourcePools;
+        if (policy.getMaxSize() != null) {
+            if (policy.getMaxEntries() != null) {
+                throw new IllegalArgumentException("Cache " + cacheName + " cannot be bounded by both max-entries and max-size");
+            }
+            resourcePools = ResourcePoolsBuilder.newResourcePoolsBuilder().heap(policy.getMaxSize().toBytes(), MemoryUnit.B);
+        } else {
+            resourcePools = ResourcePoolsBuilder.heap(policy.getMaxEntries() != null ? policy.getMaxEntries() : ehcache.getMaxEntries());
+        }
+        if (policy.getOffHeapSize() != null) {
+            resourcePools = resourcePools.offheap(policy.getOffHeapSize().toBytes(), MemoryUnit.B);
+        }
+        if (policy.getDiskSize() != null) {
+            resourcePools = resourcePools.disk(policy.getDiskSize().toBytes(), MemoryUnit.B, policy.isDiskPersistent());
+        }
+        return resourcePools.build();
+    }
+
+    private void createCache(
+        javax.cache.CacheManager cm,
+        String cacheName,
+        javax.cache.configuration.Configuration<Object, Object> configuration
+    ) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, configuration);
         }
+        ApplicationProperties.Cache.Policy policy = cacheProperties.getPolicies().get(cacheName);
+        cm.enableStatistics(cacheName, policy == null || policy.isStatistics());
     }
 
     @Autowired(required = false)
@@ -75,4 +312,39 @@ public class CacheConfiguration {
     public KeyGenerator keyGenerator() {
         return new PrefixedKeyGenerator(this.gitProperties, this.buildProperties);
     }
+
+    /**
+     * Expires a cached authentication when its token expires, or after the configured time to live if that comes first.
+     */
+    private static final class TokenExpiryPolicy implements ExpiryPolicy<Object, Object> {
+
+        private final Duration timeToLive;
+
+        private TokenExpiryPolicy(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        @Override
+        public Duration getExpiryForCreation(Object key, Object value) {
+            if (!(value instanceof TokenAuthenticationCache.CachedAuthentication)) {
+                return timeToLive;
+            }
+            long remaining = ((TokenAuthenticationCache.CachedAuthentication) value).getExpiresAt() - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return Duration.ZERO;
+            }
+            Duration untilTokenExpiry = Duration.ofMillis(remaining);
+            return untilTokenExpiry.compareTo(timeToLive) < 0 ? untilTokenExpiry : timeToLive;
+        }
+
+        @Override
+        public Duration getExpiryForAccess(Object key, Supplier<?> value) {
+            return null;
+        }
+
+        @Override
+        public Duration getExpiryForUpdate(Object key, Supplier<?> oldValue, Object newValue) {
+            return getExpiryForCreation(key, newValue);
+        }
+    }
 }
@@ -0,0 +1,261 @@
+package com.sturdy.alterra.config;
+
+import com.sturdy.alterra.repository.cache.CacheInvalidationBus;
+import com.sturdy.alterra.repository.cache.CoalescingCache;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.ehcache.sizeof.SizeOf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Statistics of the caches of the application at {@code /management/cachestats}, and eviction of their entries by key
+ * or key prefix.
+ * <p>
+ * Hits, misses and evictions are the JCache statistics of the caches, which are missing for the caches whose policy
+ * disables them. Loads are only known for the caches looked up through Spring. The size of a cache is counted, and
+ * its memory footprint estimated from the heap size of up to {@value #FOOTPRINT_SAMPLE_SIZE} of its entries, on each
+ * request: both cost a pass over the cache. Ehcache counts each entry of such a pass as a hit, which the reported hits
+ * leave out, unlike the JCache statistics themselves.
+ * <p>
+ * Entries with {@code String} keys, such as the users by login or email, are evicted from every node, see
+ * {@link CacheInvalidationBus}, the others only from this one.
+ */
+@Component
+@Endpoint(id = "cachestats")
+public class CacheStatsEndpoint {
+
+    static final int FOOTPRINT_SAMPLE_SIZE = 100;
+
+    private final Logger log = LoggerFactory.getLogger(CacheStatsEndpoint.class);
+
+    private final javax.cache.CacheManager jCacheCacheManager;
+
+    private final CacheManager cacheManager;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    private final SizeOf sizeOf = SizeOf.newInstance();
+
+    private final ConcurrentMap<String, LongAdder> scannedEntries = new ConcurrentHashMap<>();
+
+    public CacheStatsEndpoint(
+        javax.cache.CacheManager jCacheCacheManager,
+        CacheManager cacheManager,
+        CacheInvalidationBus cacheInvalidationBus
+    ) {
+        this.jCacheCacheManager = jCacheCacheManager;
+        this.cacheManager = cacheManager;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    @ReadOperation
+    public Map<String, CacheStats> cacheStats() {
+        Map<String, CacheStats> cacheStats = new TreeMap<>();
+        for (String cacheName : jCacheCacheManager.getCacheNames()) {
+            CacheStats stats = cacheStats(cacheName);
+            if (stats != null) {
+                cacheStats.put(cacheName, stats);
+            }
+        }
+        return cacheStats;
+    }
+
+    /**
+     * @return the statistics of the cache, or {@code null} for a 404 if there is no such cache.
+     */
+    @ReadOperation
+    public CacheStats cacheStats(@Selector String cacheName) {
+        javax.cache.Cache<Object, Object> cache = jCacheCacheManager.getCache(cacheName);
+        if (cache == null) {
+            return null;
+        }
+        CacheStats stats = new CacheStats();
+        readStatistics(cacheName, stats);
+        Cache springCache = cacheManager.getCache(cacheName);
+        if (springCache instanceof CoalescingCache) {
+            CoalescingCache coalescingCache = (CoalescingCache) springCache;
+            stats.loads = coalescingCache.getLoadCount();
+            stats.averageLoadTime = coalescingCache.getLoadCount() > 0
+                ? (float) coalescingCache.getTotalLoadTime() / coalescingCache.getLoadCount() / TimeUnit.MILLISECONDS.toNanos(1)
+                : 0f;
+        }
+        Iterator<? extends org.ehcache.Cache.Entry<?, ?>> entries = entries(cacheName, cache);
+        long size = 0;
+        long sampledFootprint = 0;
+        while (entries.hasNext()) {
+            org.ehcache.Cache.Entry<?, ?> entry = entries.next();
+            if (size < FOOTPRINT_SAMPLE_SIZE) {
+                sampledFootprint += sizeOf.deepSizeOf(entry.getKey(), entry.getValue());
+            }
+            size++;
+        }
+        stats.size = size;
+        stats.approximateFootprint = size > 0 ? sampledFootprint * size / Math.min(size, FOOTPRINT_SAMPLE_SIZE) : 0;
+        return stats;
+    }
+
+    /**
+     * Evict the entries of a cache with the given key, or with keys starting with the given prefix.
+     *
+     * @return the number of evicted entries, or {@code null} for a 404 if there is no such cache.
+     */
+    @DeleteOperation
+    public Map<String, Integer> evict(@Selector String cacheName, @Nullable String key, @Nullable String prefix) {
+        if ((key == null) == (prefix == null)) {
+            throw new InvalidEndpointRequestException("Either key or prefix is required", "Either key or prefix is required");
+        }
+        javax.cache.Cache<Object, Object> cache = jCacheCacheManager.getCache(cacheName);
+        Cache springCache = cacheManager.getCache(cacheName);
+        if (cache == null || springCache == null) {
+            return null;
+        }
+        List<Object> keys = new ArrayList<>();
+        Iterator<? extends org.ehcache.Cache.Entry<?, ?>> entries = entries(cacheName, cache);
+        while (entries.hasNext()) {
+            Object entryKey = entries.next().getKey();
+            String keyString = String.valueOf(entryKey);
+            if (key != null ? keyString.equals(key) : keyString.startsWith(prefix)) {
+                keys.add(entryKey);
+            }
+        }
+        for (Object evictedKey : keys) {
+            if (evictedKey instanceof String) {
+                cacheInvalidationBus.evict(cacheName, (String) evictedKey);
+            } else {
+                springCache.evict(evictedKey);
+            }
+        }
+        log.info("Evicted {} entries of cache {}", keys.size(), cacheName);
+        return Map.of("evicted", keys.size());
+    }
+
+    /**
+     * The entries of the cache, counting the ones iterated over, which Ehcache counts as hits.
+     */
+    private Iterator<? extends org.ehcache.Cache.Entry<?, ?>> entries(String cacheName, javax.cache.Cache<Object, Object> cache) {
+        @SuppressWarnings("unchecked")
+        org.ehcache.Cache<Object, Object> ehcache = cache.unwrap(org.ehcache.Cache.class);
+        Iterator<org.ehcache.Cache.Entry<Object, Object>> entries = ehcache.iterator();
+        LongAdder scanned = scannedEntries.computeIfAbsent(cacheName, name -> new LongAdder());
+        return new Iterator<org.ehcache.Cache.Entry<?, ?>>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public org.ehcache.Cache.Entry<?, ?> next() {
+                org.ehcache.Cache.Entry<?, ?> entry = entries.next();
+                scanned.increment();
+                return entry;
+            }
+        };
+    }
+
+    private void readStatistics(String cacheName, CacheStats stats) {
+        try {
+            ObjectName pattern = new ObjectName(
+                "javax.cache:type=CacheStatistics,CacheManager=" +
+                objectNameValue(jCacheCacheManager.getURI().toString()) +
+                ",Cache=" +
+                objectNameValue(cacheName)
+            );
+            for (ObjectName name : mBeanServer.queryNames(pattern, null)) {
+                LongAdder scanned = scannedEntries.get(cacheName);
+                long hits = (Long) mBeanServer.getAttribute(name, "CacheHits") - (scanned != null ? scanned.sum() : 0);
+                // Fewer hits than scanned entries once the statistics are cleared
+                stats.hits = Math.max(hits, 0);
+                stats.misses = (Long) mBeanServer.getAttribute(name, "CacheMisses");
+                stats.evictions = (Long) mBeanServer.getAttribute(name, "CacheEvictions");
+            }
+        } catch (MalformedObjectNameException e) {
+            log.debug("No statistics for cache {}: {}", cacheName, e.getMessage());
+        } catch (javax.management.JMException e) {
+            log.warn("Could not read the statistics of cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * The value as Ehcache registers it in object names, with the characters they reserve replaced by dots.
+     */
+    private static String objectNameValue(String value) {
+        return value.replaceAll("[,:=\n]", ".");
+    }
+
+    /**
+     * Statistics of a cache.
+     */
+    public static class CacheStats {
+
+        private long size;
+
+        private Long hits;
+
+        private Long misses;
+
+        private Long evictions;
+
+        private Long loads;
+
+        private Float averageLoadTime;
+
+        private long approximateFootprint;
+
+        public long getSize() {
+            return size;
+        }
+
+        public Long getHits() {
+            return hits;
+        }
+
+        public Long getMisses() {
+            return misses;
+        }
+
+        public Long getEvictions() {
+            return evictions;
+        }
+
+        public Long getLoads() {
+            return loads;
+        }
+
+        /**
+         * @return the average time of the loads, in milliseconds.
+         */
+        public Float getAverageLoadTime() {
+            return averageLoadTime;
+        }
+
+        /**
+         * @return the approximate heap size of the entries, in bytes.
+         */
+        public long getApproximateFootprint() {
+            return approximateFootprint;
+        }
+    }
+}
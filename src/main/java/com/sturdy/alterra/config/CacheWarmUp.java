@@ -0,0 +1,144 @@
+package com.sturdy.alterra.config;
+
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.UserPrincipal;
+import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.repository.cache.CoalescingCache;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StopWatch;
+
+/**
+ * Preload the caches of the users on startup, so that the first requests after a deploy do not all miss them, with
+ * {@code application.cache.warm-up.enabled}.
+ * <p>
+ * Once the database is migrated, the authorities and the most recently active users are loaded on the task executor,
+ * a batch of users per transaction, which fills the second level cache of the entities as well. The
+ * {@code readinessState} health indicator reports the application as refusing traffic until the warm-up is over,
+ * whether it succeeded or not.
+ */
+@Component
+public class CacheWarmUp {
+
+    private final Logger log = LoggerFactory.getLogger(CacheWarmUp.class);
+
+    private final ApplicationProperties.Cache.WarmUp properties;
+
+    private final DatabaseMigrationExecutor databaseMigrationExecutor;
+
+    private final Executor taskExecutor;
+
+    private final UserRepository userRepository;
+
+    private final AuthorityRepository authorityRepository;
+
+    private final CacheManager cacheManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean done;
+
+    public CacheWarmUp(
+        ApplicationProperties applicationProperties,
+        DatabaseMigrationExecutor databaseMigrationExecutor,
+        @Qualifier("taskExecutor") Executor taskExecutor,
+        UserRepository userRepository,
+        AuthorityRepository authorityRepository,
+        CacheManager cacheManager,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.properties = applicationProperties.getCache().getWarmUp();
+        this.databaseMigrationExecutor = databaseMigrationExecutor;
+        this.taskExecutor = taskExecutor;
+        this.userRepository = userRepository;
+        this.authorityRepository = authorityRepository;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.done = !properties.isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (done) {
+            return;
+        }
+        databaseMigrationExecutor
+            .whenMigrated()
+            .thenRunAsync(this::warmUp, taskExecutor)
+            .whenComplete((result, e) -> {
+                if (e != null) {
+                    log.warn("Could not warm up the caches: {}", e.getMessage());
+                }
+                done = true;
+            });
+    }
+
+    /**
+     * @return {@code true} once the caches are warmed up, or if they are not.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return the number of users loaded in the caches.
+     */
+    int warmUp() {
+        StopWatch watch = new StopWatch();
+        watch.start();
+        List<String> logins = transactionTemplate.execute(status -> {
+            authorityRepository.findAll();
+            return userRepository.findAllLoginsByRecentActivity(PageRequest.of(0, properties.getUsers()));
+        });
+        Cache usersByLogin = Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE));
+        Cache usersByEmail = Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE));
+        int users = 0;
+        for (int from = 0; from < logins.size(); from += properties.getBatchSize()) {
+            List<String> batch = logins.subList(from, Math.min(from + properties.getBatchSize(), logins.size()));
+            // Taken before the read: the users changed meanwhile are evicted, and are not stored as read
+            CoalescingCache.Versions loginVersions = versions(usersByLogin);
+            CoalescingCache.Versions emailVersions = versions(usersByEmail);
+            List<User> batchUsers = transactionTemplate.execute(status -> userRepository.findAllWithAuthoritiesByLoginIn(batch));
+            for (User user : batchUsers) {
+                // Entries cached meanwhile are at least as recent
+                putIfAbsent(usersByLogin, user.getLogin(), UserPrincipal.of(user), loginVersions);
+                if (user.getEmail() != null) {
+                    putIfAbsent(usersByEmail, user.getEmail(), user.getLogin(), emailVersions);
+                }
+            }
+            users += batchUsers.size();
+        }
+        watch.stop();
+        log.info("Warmed up the caches with {} users in {} ms", users, watch.getTotalTimeMillis());
+        return users;
+    }
+
+    private static CoalescingCache.Versions versions(Cache cache) {
+        return cache instanceof CoalescingCache ? ((CoalescingCache) cache).getVersions() : null;
+    }
+
+    /**
+     * Store a value unless its key was evicted since the versions were taken, for the caches which keep them.
+     */
+    private static void putIfAbsent(Cache cache, Object key, Object value, CoalescingCache.Versions versions) {
+        if (versions != null) {
+            ((CoalescingCache) cache).putIfAbsent(key, value, versions);
+        } else {
+            cache.putIfAbsent(key, value);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.sturdy.alterra.config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor of the Liquibase migration when it runs asynchronously, as in {@code dev}, telling when the database is
+ * migrated.
+ */
+final class DatabaseMigrationExecutor implements Executor {
+
+    private final Executor executor;
+
+    private final CompletableFuture<Void> migration = new CompletableFuture<>();
+
+    private volatile boolean asynchronous;
+
+    DatabaseMigrationExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        asynchronous = true;
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                migration.complete(null);
+            }
+        });
+    }
+
+    /**
+     * @return a stage completed once the migration is over, at once if it ran, or was skipped, while the context
+     * started.
+     */
+    CompletableFuture<Void> whenMigrated() {
+        return asynchronous ? migration : CompletableFuture.completedFuture(null);
+    }
+}
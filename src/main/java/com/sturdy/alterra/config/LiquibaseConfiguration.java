@@ -28,9 +28,14 @@ public class LiquibaseConfiguration {
         this.env = env;
     }
 
+    @Bean
+    DatabaseMigrationExecutor databaseMigrationExecutor(@Qualifier("taskExecutor") Executor executor) {
+        return new DatabaseMigrationExecutor(executor);
+    }
+
     @Bean
     public SpringLiquibase liquibase(
-        @Qualifier("taskExecutor") Executor executor,
+        DatabaseMigrationExecutor executor,
         @LiquibaseDataSource ObjectProvider<DataSource> liquibaseDataSource,
         LiquibaseProperties liquibaseProperties,
         ObjectProvider<DataSource> dataSource,
@@ -0,0 +1,51 @@
+package com.sturdy.alterra.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration of the asynchronous requests of Spring MVC, the streamed responses of the bulk import and export of the
+ * users and of the stream of all the users, see {@code UserResource}.
+ * <p>
+ * They would otherwise run on a new thread each, and be cut off by the 30 seconds timeout of the servlet container once
+ * their response is under way, leaving the client with a truncated body. They run on a bounded pool of their own
+ * instead, with the timeout of {@code application.users.bulk}.
+ * <p>
+ * Ordered last, to override the executor Spring Boot configures when there is an {@code applicationTaskExecutor}.
+ */
+@Configuration
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class WebAsyncConfiguration implements WebMvcConfigurer, DisposableBean {
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final long requestTimeout;
+
+    public WebAsyncConfiguration(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Users.Bulk properties = applicationProperties.getUsers().getBulk();
+        this.requestTimeout = properties.getRequestTimeout().toMillis();
+        int maxConcurrency = Math.max(1, properties.getMaxConcurrency());
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(maxConcurrency);
+        this.executor.setMaxPoolSize(maxConcurrency);
+        this.executor.setQueueCapacity(Math.max(0, properties.getQueueCapacity()));
+        this.executor.setThreadNamePrefix("web-async-");
+        this.executor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(executor);
+        configurer.setDefaultTimeout(requestTimeout);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
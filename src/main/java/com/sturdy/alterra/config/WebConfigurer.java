@@ -2,23 +2,28 @@ package com.sturdy.alterra.config;
 
 import static java.net.URLDecoder.decode;
 
+import com.sturdy.alterra.web.filter.TrustedProxyForwardedHeaderFilter;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import javax.servlet.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.server.*;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.filter.ForwardedHeaderFilter;
 import tech.jhipster.config.JHipsterConstants;
 import tech.jhipster.config.JHipsterProperties;
 
@@ -96,4 +101,21 @@ public class WebConfigurer implements ServletContextInitializer, WebServerFactor
         }
         return new CorsFilter(source);
     }
+
+    /**
+     * Replaces the {@code ForwardedHeaderFilter} of {@code server.forward-headers-strategy: framework} with one which
+     * only trusts the forwarded headers of {@code application.security.trusted-proxies}, registered the same way: its
+     * type keeps Spring Boot from registering its own.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "server.forward-headers-strategy", havingValue = "framework")
+    public FilterRegistrationBean<ForwardedHeaderFilter> trustedProxyForwardedHeaderFilter(ApplicationProperties applicationProperties) {
+        log.debug("Registering forwarded headers filter, trusting {}", applicationProperties.getSecurity().getTrustedProxies());
+        FilterRegistrationBean<ForwardedHeaderFilter> registration = new FilterRegistrationBean<>(
+            new TrustedProxyForwardedHeaderFilter(applicationProperties.getSecurity().getTrustedProxies())
+        );
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC, DispatcherType.ERROR);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
 }
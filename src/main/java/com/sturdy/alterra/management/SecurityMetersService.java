@@ -2,6 +2,8 @@ package com.sturdy.alterra.management;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,16 +15,83 @@ public class SecurityMetersService {
     public static final String INVALID_TOKENS_METER_BASE_UNIT = "errors";
     public static final String INVALID_TOKENS_METER_CAUSE_DIMENSION = "cause";
 
+    public static final String TOKEN_CACHE_METER_NAME = "security.authentication.token-cache";
+    public static final String TOKEN_CACHE_METER_DESCRIPTION = "Indicates lookups of verified tokens in the authentication cache.";
+    public static final String TOKEN_CACHE_METER_BASE_UNIT = "lookups";
+    public static final String TOKEN_CACHE_METER_RESULT_DIMENSION = "result";
+
+    public static final String REVOCATION_LOOKUPS_METER_NAME = "security.authentication.revocation-lookups";
+    public static final String REVOCATION_LOOKUPS_METER_DESCRIPTION = "Indicates lookups of token ids in the revocation list.";
+    public static final String REVOCATION_LOOKUPS_METER_BASE_UNIT = "lookups";
+    public static final String REVOCATION_LOOKUPS_METER_RESULT_DIMENSION = "result";
+
+    public static final String USER_LOOKUPS_METER_NAME = "security.authentication.user-lookups";
+    public static final String USER_LOOKUPS_METER_DESCRIPTION = "Indicates lookups of logins and emails in the known user filter.";
+    public static final String USER_LOOKUPS_METER_BASE_UNIT = "lookups";
+    public static final String USER_LOOKUPS_METER_RESULT_DIMENSION = "result";
+
+    public static final String THROTTLED_LOGINS_METER_NAME = "security.authentication.throttled-logins";
+    public static final String THROTTLED_LOGINS_METER_DESCRIPTION =
+        "Indicates login attempts rejected because of too many recent attempts.";
+    public static final String THROTTLED_LOGINS_METER_BASE_UNIT = "attempts";
+    public static final String THROTTLED_LOGINS_METER_KEY_DIMENSION = "key";
+
+    public static final String PASSWORD_HASHING_METER_NAME = "security.password-hashing";
+    public static final String PASSWORD_HASHING_METER_DESCRIPTION = "Indicates the time spent hashing passwords.";
+    public static final String PASSWORD_HASHING_METER_OPERATION_DIMENSION = "operation";
+    public static final String PASSWORD_HASHING_WAIT_METER_NAME = "security.password-hashing.wait";
+    public static final String PASSWORD_HASHING_WAIT_METER_DESCRIPTION = "Indicates the time passwords waited in the hashing queue.";
+    public static final String PASSWORD_HASHING_REJECTED_METER_NAME = "security.password-hashing.rejected";
+    public static final String PASSWORD_HASHING_REJECTED_METER_DESCRIPTION =
+        "Indicates password hashes rejected because the hashing pool was saturated.";
+    public static final String PASSWORD_HASHING_REJECTED_METER_BASE_UNIT = "requests";
+    public static final String PASSWORD_HASHING_REJECTED_METER_CAUSE_DIMENSION = "cause";
+
     private final Counter tokenInvalidSignatureCounter;
     private final Counter tokenExpiredCounter;
     private final Counter tokenUnsupportedCounter;
     private final Counter tokenMalformedCounter;
+    private final Counter tokenRevokedCounter;
+    private final Counter tokenCacheHitCounter;
+    private final Counter tokenCacheMissCounter;
+    private final Counter revocationLookupAbsentCounter;
+    private final Counter revocationLookupRevokedCounter;
+    private final Counter revocationLookupFalsePositiveCounter;
+    private final Counter userLookupAbsentCounter;
+    private final Counter userLookupMaybePresentCounter;
+    private final Counter loginThrottledByLoginCounter;
+    private final Counter loginThrottledByAddressCounter;
+    private final Timer passwordEncodeTimer;
+    private final Timer passwordMatchesTimer;
+    private final Timer passwordHashingWaitTimer;
+    private final Counter passwordHashingQueueFullCounter;
+    private final Counter passwordHashingTimeoutCounter;
 
     public SecurityMetersService(MeterRegistry registry) {
         this.tokenInvalidSignatureCounter = invalidTokensCounterForCauseBuilder("invalid-signature").register(registry);
         this.tokenExpiredCounter = invalidTokensCounterForCauseBuilder("expired").register(registry);
         this.tokenUnsupportedCounter = invalidTokensCounterForCauseBuilder("unsupported").register(registry);
         this.tokenMalformedCounter = invalidTokensCounterForCauseBuilder("malformed").register(registry);
+        this.tokenRevokedCounter = invalidTokensCounterForCauseBuilder("revoked").register(registry);
+        this.tokenCacheHitCounter = tokenCacheCounterForResultBuilder("hit").register(registry);
+        this.tokenCacheMissCounter = tokenCacheCounterForResultBuilder("miss").register(registry);
+        this.revocationLookupAbsentCounter = revocationLookupsCounterForResultBuilder("absent").register(registry);
+        this.revocationLookupRevokedCounter = revocationLookupsCounterForResultBuilder("revoked").register(registry);
+        this.revocationLookupFalsePositiveCounter = revocationLookupsCounterForResultBuilder("false-positive").register(registry);
+        this.userLookupAbsentCounter = userLookupsCounterForResultBuilder("absent").register(registry);
+        this.userLookupMaybePresentCounter = userLookupsCounterForResultBuilder("maybe-present").register(registry);
+        this.loginThrottledByLoginCounter = throttledLoginsCounterForKeyBuilder("login").register(registry);
+        this.loginThrottledByAddressCounter = throttledLoginsCounterForKeyBuilder("address").register(registry);
+        this.passwordEncodeTimer = passwordHashingTimerForOperationBuilder("encode").register(registry);
+        this.passwordMatchesTimer = passwordHashingTimerForOperationBuilder("matches").register(registry);
+        this.passwordHashingWaitTimer =
+            Timer
+                .builder(PASSWORD_HASHING_WAIT_METER_NAME)
+                .description(PASSWORD_HASHING_WAIT_METER_DESCRIPTION)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.passwordHashingQueueFullCounter = passwordHashingRejectedCounterForCauseBuilder("queue-full").register(registry);
+        this.passwordHashingTimeoutCounter = passwordHashingRejectedCounterForCauseBuilder("timeout").register(registry);
     }
 
     private Counter.Builder invalidTokensCounterForCauseBuilder(String cause) {
@@ -33,6 +102,54 @@ public class SecurityMetersService {
             .tag(INVALID_TOKENS_METER_CAUSE_DIMENSION, cause);
     }
 
+    private Counter.Builder tokenCacheCounterForResultBuilder(String result) {
+        return Counter
+            .builder(TOKEN_CACHE_METER_NAME)
+            .baseUnit(TOKEN_CACHE_METER_BASE_UNIT)
+            .description(TOKEN_CACHE_METER_DESCRIPTION)
+            .tag(TOKEN_CACHE_METER_RESULT_DIMENSION, result);
+    }
+
+    private Counter.Builder revocationLookupsCounterForResultBuilder(String result) {
+        return Counter
+            .builder(REVOCATION_LOOKUPS_METER_NAME)
+            .baseUnit(REVOCATION_LOOKUPS_METER_BASE_UNIT)
+            .description(REVOCATION_LOOKUPS_METER_DESCRIPTION)
+            .tag(REVOCATION_LOOKUPS_METER_RESULT_DIMENSION, result);
+    }
+
+    private Counter.Builder userLookupsCounterForResultBuilder(String result) {
+        return Counter
+            .builder(USER_LOOKUPS_METER_NAME)
+            .baseUnit(USER_LOOKUPS_METER_BASE_UNIT)
+            .description(USER_LOOKUPS_METER_DESCRIPTION)
+            .tag(USER_LOOKUPS_METER_RESULT_DIMENSION, result);
+    }
+
+    private Counter.Builder throttledLoginsCounterForKeyBuilder(String key) {
+        return Counter
+            .builder(THROTTLED_LOGINS_METER_NAME)
+            .baseUnit(THROTTLED_LOGINS_METER_BASE_UNIT)
+            .description(THROTTLED_LOGINS_METER_DESCRIPTION)
+            .tag(THROTTLED_LOGINS_METER_KEY_DIMENSION, key);
+    }
+
+    private Timer.Builder passwordHashingTimerForOperationBuilder(String operation) {
+        return Timer
+            .builder(PASSWORD_HASHING_METER_NAME)
+            .description(PASSWORD_HASHING_METER_DESCRIPTION)
+            .publishPercentileHistogram()
+            .tag(PASSWORD_HASHING_METER_OPERATION_DIMENSION, operation);
+    }
+
+    private Counter.Builder passwordHashingRejectedCounterForCauseBuilder(String cause) {
+        return Counter
+            .builder(PASSWORD_HASHING_REJECTED_METER_NAME)
+            .baseUnit(PASSWORD_HASHING_REJECTED_METER_BASE_UNIT)
+            .description(PASSWORD_HASHING_REJECTED_METER_DESCRIPTION)
+            .tag(PASSWORD_HASHING_REJECTED_METER_CAUSE_DIMENSION, cause);
+    }
+
     public void trackTokenInvalidSignature() {
         this.tokenInvalidSignatureCounter.increment();
     }
@@ -48,4 +165,64 @@ public class SecurityMetersService {
     public void trackTokenMalformed() {
         this.tokenMalformedCounter.increment();
     }
+
+    public void trackTokenRevoked() {
+        this.tokenRevokedCounter.increment();
+    }
+
+    public void trackTokenCacheHit() {
+        this.tokenCacheHitCounter.increment();
+    }
+
+    public void trackTokenCacheMiss() {
+        this.tokenCacheMissCounter.increment();
+    }
+
+    public void trackRevocationLookupAbsent() {
+        this.revocationLookupAbsentCounter.increment();
+    }
+
+    public void trackRevocationLookupRevoked() {
+        this.revocationLookupRevokedCounter.increment();
+    }
+
+    public void trackRevocationLookupFalsePositive() {
+        this.revocationLookupFalsePositiveCounter.increment();
+    }
+
+    public void trackUserLookupAbsent() {
+        this.userLookupAbsentCounter.increment();
+    }
+
+    public void trackUserLookupMaybePresent() {
+        this.userLookupMaybePresentCounter.increment();
+    }
+
+    public void trackLoginThrottledByLogin() {
+        this.loginThrottledByLoginCounter.increment();
+    }
+
+    public void trackLoginThrottledByAddress() {
+        this.loginThrottledByAddressCounter.increment();
+    }
+
+    public void recordPasswordEncode(long durationInNanoseconds) {
+        this.passwordEncodeTimer.record(durationInNanoseconds, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPasswordMatches(long durationInNanoseconds) {
+        this.passwordMatchesTimer.record(durationInNanoseconds, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPasswordHashingWait(long durationInNanoseconds) {
+        this.passwordHashingWaitTimer.record(durationInNanoseconds, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackPasswordHashingQueueFull() {
+        this.passwordHashingQueueFullCounter.increment();
+    }
+
+    public void trackPasswordHashingTimeout() {
+        this.passwordHashingTimeoutCounter.increment();
+    }
 }
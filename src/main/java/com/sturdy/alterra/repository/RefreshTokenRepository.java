@@ -0,0 +1,40 @@
+package com.sturdy.alterra.repository;
+
+import com.sturdy.alterra.domain.RefreshToken;
+import com.sturdy.alterra.domain.User;
+import java.time.Instant;
+import java.util.Optional;
+import javax.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link RefreshToken} entity.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    /**
+     * Find a token and lock it until the end of the transaction, so that concurrent rotations of the same token are
+     * serialized.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RefreshToken> findOneForUpdateByTokenHash(String tokenHash);
+
+    Optional<RefreshToken> findOneByTokenHash(String tokenHash);
+
+    @Modifying
+    @Query("delete from RefreshToken refreshToken where refreshToken.familyId = :familyId")
+    int deleteAllByFamilyId(@Param("familyId") String familyId);
+
+    @Modifying
+    @Query("delete from RefreshToken refreshToken where refreshToken.user = :user")
+    int deleteAllByUser(@Param("user") User user);
+
+    @Modifying
+    @Query("delete from RefreshToken refreshToken where refreshToken.expiresAt <= :now")
+    int deleteAllByExpiresAtBefore(@Param("now") Instant now);
+}
@@ -0,0 +1,31 @@
+package com.sturdy.alterra.repository;
+
+import com.sturdy.alterra.domain.RevokedToken;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Spring Data JPA repository for the {@link RevokedToken} entity.
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    @Query("select revokedToken.tokenId from RevokedToken revokedToken where revokedToken.expiresAt > :now")
+    List<String> findAllTokenIdsByExpiresAtAfter(@Param("now") Instant now);
+
+    @Query(
+        "select revokedToken.tokenId from RevokedToken revokedToken " +
+        "where revokedToken.revokedAt > :since and revokedToken.expiresAt > :now"
+    )
+    List<String> findAllTokenIdsByRevokedAtAfter(@Param("since") Instant since, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken revokedToken where revokedToken.expiresAt <= :now")
+    int deleteAllByExpiresAtBefore(@Param("now") Instant now);
+}
@@ -0,0 +1,40 @@
+package com.sturdy.alterra.repository;
+
+import com.sturdy.alterra.domain.User;
+import java.util.Collection;
+import javax.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for changing many {@link User} entities at once, with a statement per table instead of one per user.
+ * <p>
+ * The statements bypass the persistence context and the second level cache of the users: Hibernate drops the cached
+ * users, and their cached authorities, of this node after each of them, and the callers evict the users from the other
+ * caches.
+ */
+@Repository
+public class UserBulkRepository {
+
+    private final EntityManager entityManager;
+
+    public UserBulkRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Delete the users with the given ids, and their authorities.
+     *
+     * @return the number of users deleted.
+     */
+    public int deleteAllByIdIn(Collection<Long> ids) {
+        entityManager
+            .createNativeQuery("delete from jhi_user_authority where user_id in (:ids)")
+            .unwrap(NativeQuery.class)
+            // Only the authorities of the users are dropped from the second level cache, instead of all of it
+            .addSynchronizedQuerySpace("jhi_user_authority")
+            .setParameter("ids", ids)
+            .executeUpdate();
+        return entityManager.createQuery("delete from User user where user.id in (:ids)").setParameter("ids", ids).executeUpdate();
+    }
+}
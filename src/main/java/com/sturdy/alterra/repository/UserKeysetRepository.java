@@ -0,0 +1,95 @@
+package com.sturdy.alterra.repository;
+
+import com.sturdy.alterra.domain.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for reading the {@link User} entities page by page with a keyset, or seek, instead of an offset: each page
+ * starts right after the sort value and id of the last user of the previous one, so that the database seeks to it in
+ * the index of the sort instead of reading and skipping all the users before it.
+ * <p>
+ * The users are ordered by the sort property, then by id to break the ties, both in the direction of the sort. The
+ * {@code null} values come last in ascending order and first in descending order, as PostgreSQL orders them.
+ */
+@Repository
+public class UserKeysetRepository {
+
+    /**
+     * The properties which are never {@code null}, whose seek leaves out the {@code null} values.
+     */
+    private static final Set<String> NOT_NULL_PROPERTIES = Set.of("id", "login", "activated", "createdBy");
+
+    private final EntityManager entityManager;
+
+    public UserKeysetRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param activatedOnly whether to read the activated users only.
+     * @param order the order of the users, by a single property.
+     * @param lastId the id of the last user of the previous page, or {@code null} for the first page.
+     * @param lastValue the value of the sort property of the last user of the previous page.
+     * @param limit the maximum number of users to read.
+     * @return the users following the last user of the previous page.
+     */
+    public List<User> findAllAfter(boolean activatedOnly, Sort.Order order, @Nullable Long lastId, @Nullable Object lastValue, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> user = query.from(User.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (activatedOnly) {
+            where.add(cb.isTrue(user.get("activated")));
+        }
+        if (lastId != null) {
+            where.add(after(cb, user, order, lastId, lastValue));
+        }
+        List<Order> orderBy = new ArrayList<>();
+        if (!order.getProperty().equals("id")) {
+            orderBy.add(order.isAscending() ? cb.asc(user.get(order.getProperty())) : cb.desc(user.get(order.getProperty())));
+        }
+        orderBy.add(order.isAscending() ? cb.asc(user.get("id")) : cb.desc(user.get("id")));
+
+        query.select(user).where(where.toArray(new Predicate[0])).orderBy(orderBy);
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * The users after the given one, written as a range of the sort property first, for the database to seek to its
+     * start in the index of the sort.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Predicate after(CriteriaBuilder cb, Root<User> user, Sort.Order order, long lastId, @Nullable Object lastValue) {
+        Path<Long> id = user.get("id");
+        Predicate afterId = order.isAscending() ? cb.gt(id, lastId) : cb.lt(id, lastId);
+        if (order.getProperty().equals("id")) {
+            return afterId;
+        }
+        Path<Comparable> property = user.get(order.getProperty());
+        boolean nullable = !NOT_NULL_PROPERTIES.contains(order.getProperty());
+        if (lastValue == null) {
+            // The null values come last in ascending order, and first in descending order
+            return order.isAscending()
+                ? cb.and(cb.isNull(property), afterId)
+                : cb.or(cb.and(cb.isNull(property), afterId), cb.isNotNull(property));
+        }
+        Comparable value = (Comparable) lastValue;
+        Predicate after = order.isAscending()
+            ? cb.and(cb.greaterThanOrEqualTo(property, value), cb.or(cb.greaterThan(property, value), afterId))
+            : cb.and(cb.lessThanOrEqualTo(property, value), cb.or(cb.lessThan(property, value), afterId));
+        return nullable && order.isAscending() ? cb.or(after, cb.isNull(property)) : after;
+    }
+}
@@ -0,0 +1,130 @@
+package com.sturdy.alterra.repository;
+
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.domain.User;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * What authenticating a user needs of it, and its version for the conditional requests of its resources, cached by
+ * login instead of the {@link User} entity, see {@link UserPrincipalRepository}.
+ * <p>
+ * Immutable, and small: the authority names are interned, so that the principals of the users share them, including
+ * once deserialized from the off-heap or disk tiers of the cache.
+ */
+public final class UserPrincipal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final String login;
+
+    private final String email;
+
+    private final String password;
+
+    private final boolean activated;
+
+    private final Set<String> authorities;
+
+    private final Instant lastModifiedDate;
+
+    public UserPrincipal(
+        Long id,
+        String login,
+        String email,
+        String password,
+        boolean activated,
+        Set<String> authorities,
+        Instant lastModifiedDate
+    ) {
+        this.id = id;
+        this.login = login;
+        this.email = email;
+        this.password = password;
+        this.activated = activated;
+        this.authorities = authorities.stream().map(String::intern).collect(Collectors.toUnmodifiableSet());
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    /**
+     * @param user a user, with its authorities loaded.
+     */
+    public static UserPrincipal of(User user) {
+        return new UserPrincipal(
+            user.getId(),
+            user.getLogin(),
+            user.getEmail(),
+            user.getPassword(),
+            user.isActivated(),
+            user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toSet()),
+            user.getLastModifiedDate()
+        );
+    }
+
+    /**
+     * The version of a user, which any change to it moves on: its last modification date, to the microsecond the
+     * database keeps, and its authorities, whose changes do not always update the date.
+     */
+    public static String version(Long id, Instant lastModifiedDate, Set<String> authorities) {
+        long lastModified = lastModifiedDate != null
+            ? lastModifiedDate.getEpochSecond() * 1_000_000 + lastModifiedDate.getNano() / 1_000
+            : 0;
+        return Long.toHexString(id) + "-" + Long.toHexString(lastModified) + "-" + Integer.toHexString(authorities.hashCode());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * @return the password hash.
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isActivated() {
+        return activated;
+    }
+
+    public Set<String> getAuthorities() {
+        return authorities;
+    }
+
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    /**
+     * @see #version(Long, Instant, Set)
+     */
+    public String getVersion() {
+        return version(id, lastModifiedDate, authorities);
+    }
+
+    private Object readResolve() {
+        return new UserPrincipal(id, login, email, password, activated, authorities, lastModifiedDate);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "UserPrincipal{" +
+            "login='" + login + '\'' +
+            ", activated='" + activated + '\'' +
+            ", authorities=" + authorities +
+            "}";
+    }
+}
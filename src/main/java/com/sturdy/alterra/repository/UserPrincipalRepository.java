@@ -0,0 +1,25 @@
+package com.sturdy.alterra.repository;
+
+import java.util.Optional;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the {@link UserPrincipal} of the users, cached in {@link UserRepository#USERS_BY_LOGIN_CACHE}.
+ * <p>
+ * The {@link com.sturdy.alterra.domain.User} entity is loaded to build the principal on a miss, and for any change.
+ */
+@Repository
+public class UserPrincipalRepository {
+
+    private final UserRepository userRepository;
+
+    public UserPrincipalRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Cacheable(cacheNames = UserRepository.USERS_BY_LOGIN_CACHE, sync = true)
+    public Optional<UserPrincipal> findOneByLogin(String login) {
+        return userRepository.findOneWithAuthoritiesByLogin(login).map(UserPrincipal::of);
+    }
+}
@@ -2,12 +2,15 @@ package com.sturdy.alterra.repository;
 
 import com.sturdy.alterra.domain.User;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -20,17 +23,112 @@ public interface UserRepository extends JpaRepository<User, Long> {
     String USERS_BY_EMAIL_CACHE = "usersByEmail";
     Optional<User> findOneByActivationKey(String activationKey);
     List<User> findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant dateTime);
+
+    /**
+     * Keys of the users not activated, with an activation key, created before the given date, and after the given id,
+     * by id: a batch of them at a time, instead of all of them.
+     */
+    @Query(
+        "select user.id as id, user.login as login, user.email as email from User user " +
+        "where user.activated = false and user.activationKey is not null and user.createdDate < :createdBefore " +
+        "and user.id > :afterId order by user.id"
+    )
+    List<IdLoginAndEmail> findAllNotActivatedByCreatedDateBeforeAndIdGreaterThan(
+        @Param("createdBefore") Instant createdBefore,
+        @Param("afterId") long afterId,
+        Pageable pageable
+    );
+
     Optional<User> findOneByResetKey(String resetKey);
     Optional<User> findOneByEmailIgnoreCase(String email);
     Optional<User> findOneByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_LOGIN_CACHE)
     Optional<User> findOneWithAuthoritiesByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_EMAIL_CACHE)
     Optional<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
+    /**
+     * Login of the user with the given email, cached as an index into {@link UserPrincipalRepository#findOneByLogin(String)}
+     * rather than as a second copy of the user.
+     */
+    @Cacheable(cacheNames = USERS_BY_EMAIL_CACHE, sync = true)
+    @Query("select user.login from User user where upper(user.email) = upper(:email)")
+    Optional<String> findLoginByEmailIgnoreCase(@Param("email") String email);
+
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByLoginIn(Collection<String> logins);
+
+    /**
+     * The given logins which are already used, a batch of them at a time.
+     */
+    @Query("select user.login from User user where user.login in (:logins)")
+    List<String> findAllLoginsByLoginIn(@Param("logins") Collection<String> logins);
+
+    /**
+     * The given emails, upper case, which are already used ignoring their case, a batch of them at a time.
+     */
+    @Query("select upper(user.email) from User user where upper(user.email) in (:emails)")
+    List<String> findAllUpperEmailsByUpperEmailIn(@Param("emails") Collection<String> emails);
+
+    /**
+     * Logins of the activated users, the ones who last got a refresh token, from a login or a renewal, first, and then
+     * the ones last modified.
+     */
+    @Query(
+        "select user.login from User user left join RefreshToken refreshToken on refreshToken.user = user " +
+        "where user.activated = true group by user.id, user.login, user.lastModifiedDate " +
+        "order by coalesce(max(refreshToken.createdDate), user.lastModifiedDate) desc"
+    )
+    List<String> findAllLoginsByRecentActivity(Pageable pageable);
+
+    /**
+     * Keys of the users after the given id, by id: a batch of them at a time, instead of all of them.
+     */
+    @Query("select user.id as id, user.login as login, user.email as email from User user where user.id > :afterId order by user.id")
+    List<IdLoginAndEmail> findAllLoginsAndEmailsByIdGreaterThan(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select user.login as login, user.email as email from User user where user.lastModifiedDate > :since")
+    List<LoginAndEmail> findAllLoginsAndEmailsByLastModifiedDateAfter(@Param("since") Instant since);
+
     Page<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    long countByActivatedIsTrue();
+
+    /**
+     * Number of users, as PostgreSQL estimates it from the statistics of the table instead of counting them: negative
+     * if the table was never analyzed.
+     */
+    @Query(value = "select cast(reltuples as bigint) from pg_class where oid = cast('jhi_user' as regclass)", nativeQuery = true)
+    long estimateCount();
+
+    /**
+     * Number of activated users, as PostgreSQL estimates it from the statistics of the table and of its
+     * {@code activated} column instead of counting them: negative if the table was never analyzed.
+     */
+    @Query(
+        value = "select cast(c.reltuples * coalesce(" +
+        "(select coalesce(s.most_common_freqs[array_position(cast(cast(s.most_common_vals as text) as boolean[]), true)], 0) " +
+        "from pg_stats s where s.schemaname = current_schema() and s.tablename = 'jhi_user' and s.attname = 'activated'), 1" +
+        ") as bigint) from pg_class c where c.oid = cast('jhi_user' as regclass)",
+        nativeQuery = true
+    )
+    long estimateCountByActivatedIsTrue();
+
+    /**
+     * The keys a user logs in with.
+     */
+    interface LoginAndEmail {
+        String getLogin();
+
+        String getEmail();
+    }
+
+    /**
+     * The keys a user is cached by.
+     */
+    interface IdLoginAndEmail extends LoginAndEmail {
+        Long getId();
+    }
 }
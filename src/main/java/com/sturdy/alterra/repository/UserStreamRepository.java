@@ -0,0 +1,64 @@
+package com.sturdy.alterra.repository;
+
+import com.sturdy.alterra.domain.User;
+import java.util.*;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for reading all the {@link User} entities with a forward-only cursor, instead of a page at a time.
+ * <p>
+ * The users are read {@code fetchSize} rows at a time, which the PostgreSQL driver only does within a transaction, and
+ * neither go through the second level cache nor are checked for changes. They still stay in the persistence context
+ * until the callers detach them.
+ */
+@Repository
+public class UserStreamRepository {
+
+    private final EntityManager entityManager;
+
+    public UserStreamRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param fetchSize the number of users to read at a time.
+     * @return all the users, by id, which must be closed once read.
+     */
+    public Stream<User> streamAllByOrderById(int fetchSize) {
+        return entityManager
+            .createQuery("select user from User user order by user.id", User.class)
+            .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+            .setHint(QueryHints.HINT_READONLY, true)
+            .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+            .getResultStream();
+    }
+
+    /**
+     * The names of the authorities of the given users, all of them with one query, instead of a query per user.
+     *
+     * @return the names of the authorities by user id, for the users who have authorities.
+     */
+    public Map<Long, Set<String>> findAuthorityNamesByUserIdIn(Collection<Long> userIds) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager
+            .createNativeQuery("select user_id, authority_name from jhi_user_authority where user_id in (:ids)")
+            .setParameter("ids", userIds)
+            .getResultList();
+        Map<Long, Set<String>> authorities = new HashMap<>();
+        for (Object[] row : rows) {
+            authorities.computeIfAbsent(((Number) row[0]).longValue(), id -> new HashSet<>()).add((String) row[1]);
+        }
+        return authorities;
+    }
+
+    /**
+     * Drop the given users from the persistence context, once read.
+     */
+    public void detachAll(Collection<User> users) {
+        users.forEach(entityManager::detach);
+    }
+}
@@ -0,0 +1,335 @@
+package com.sturdy.alterra.repository.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sturdy.alterra.config.ApplicationProperties;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evict entries from the caches of every node of the application, not only the local ones.
+ * <p>
+ * Evictions are applied to the local caches at once, and sent to the other nodes over the
+ * {@link CacheInvalidationTransport} once the current transaction commits, so that they do not reload the entries
+ * before the change is visible to them. The evictions made during {@code application.cache.invalidation.coalesce-window}
+ * are sent together, with duplicates sent once, in as few messages as the transport carries.
+ * <p>
+ * Without a transport, as with {@code application.cache.invalidation.transport} set to {@code none} for a single
+ * node, evictions are only applied locally.
+ */
+@Component
+public class CacheInvalidationBus implements CacheInvalidationTransport.Listener, SchedulingConfigurer {
+
+    private static final String ORIGIN = "origin";
+
+    private static final String CACHES = "caches";
+
+    private static final String ENTITIES = "entities";
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final CacheManager cacheManager;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final CacheInvalidationTransport transport;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration coalesceWindow;
+
+    private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+    private final Queue<Invalidation> pendingInvalidations = new ConcurrentLinkedQueue<>();
+
+    private final Set<String> invalidatedCaches = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> invalidatedEntities = ConcurrentHashMap.newKeySet();
+
+    public CacheInvalidationBus(
+        CacheManager cacheManager,
+        EntityManagerFactory entityManagerFactory,
+        ObjectProvider<CacheInvalidationTransport> transport,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transport = transport.getIfAvailable();
+        this.objectMapper = objectMapper;
+        this.coalesceWindow = applicationProperties.getCache().getInvalidation().getCoalesceWindow();
+        if (this.transport != null) {
+            this.transport.subscribe(this);
+        }
+    }
+
+    /**
+     * Evict an entry of a Spring cache, on this node at once, and on every node once the current transaction commits.
+     * <p>
+     * The local entry is evicted again after the commit, in case a concurrent request cached it from the database
+     * before the change was visible.
+     */
+    public void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+        afterCommit(() -> {
+            if (cache != null) {
+                cache.evict(key);
+            }
+            enqueue(CACHES, cacheName, key);
+        });
+    }
+
+    /**
+     * Evict entries of a Spring cache in bulk, as {@link #evict(String, String)} does one by one, with a single
+     * synchronization of the current transaction.
+     */
+    public void evictAll(String cacheName, Collection<String> keys) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            keys.forEach(cache::evict);
+        }
+        afterCommit(() ->
+            keys.forEach(key -> {
+                if (cache != null) {
+                    cache.evict(key);
+                }
+                enqueue(CACHES, cacheName, key);
+            })
+        );
+    }
+
+    /**
+     * Evict an entity, and the collections it owns, from the second level cache of the other nodes once the current
+     * transaction commits. Hibernate keeps the second level cache of this node up to date by itself.
+     */
+    public void evictEntity(Class<?> entityClass, Object id) {
+        if (id != null) {
+            afterCommit(() -> enqueue(ENTITIES, entityClass.getName(), id.toString()));
+        }
+    }
+
+    /**
+     * Evict entities in bulk, as {@link #evictEntity(Class, Object)} does one by one, with a single synchronization of
+     * the current transaction.
+     */
+    public void evictEntities(Class<?> entityClass, Collection<?> ids) {
+        afterCommit(() -> ids.forEach(id -> enqueue(ENTITIES, entityClass.getName(), id.toString())));
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (transport != null) {
+            taskRegistrar.addFixedDelayTask(this::flush, coalesceWindow.toMillis());
+        }
+    }
+
+    /**
+     * Send the pending evictions to the other nodes.
+     */
+    void flush() {
+        Set<Invalidation> invalidations = new LinkedHashSet<>();
+        Invalidation invalidation;
+        while ((invalidation = pendingInvalidations.poll()) != null) {
+            invalidations.add(invalidation);
+        }
+        if (!invalidations.isEmpty()) {
+            publish(new ArrayList<>(invalidations));
+        }
+    }
+
+    private void publish(List<Invalidation> invalidations) {
+        String message = encode(invalidations);
+        if (message.getBytes(StandardCharsets.UTF_8).length <= transport.getMaxMessageSize()) {
+            try {
+                transport.publish(message);
+            } catch (RuntimeException e) {
+                log.warn("Could not send {} cache invalidations: {}", invalidations.size(), e.getMessage());
+            }
+        } else if (invalidations.size() > 1) {
+            int half = invalidations.size() / 2;
+            publish(invalidations.subList(0, half));
+            publish(invalidations.subList(half, invalidations.size()));
+        } else {
+            log.warn("Could not send the cache invalidation of {}, too large for the transport", invalidations.get(0));
+        }
+    }
+
+    private String encode(List<Invalidation> invalidations) {
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put(ORIGIN, nodeId);
+        for (Invalidation invalidation : invalidations) {
+            ObjectNode section = message.has(invalidation.kind)
+                ? (ObjectNode) message.get(invalidation.kind)
+                : message.putObject(invalidation.kind);
+            ArrayNode keys = section.has(invalidation.region)
+                ? (ArrayNode) section.get(invalidation.region)
+                : section.putArray(invalidation.region);
+            keys.add(invalidation.key);
+        }
+        return message.toString();
+    }
+
+    @Override
+    public void onMessage(String message) {
+        JsonNode invalidations;
+        try {
+            invalidations = objectMapper.readTree(message);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", message);
+            return;
+        }
+        if (nodeId.equals(invalidations.path(ORIGIN).asText())) {
+            return;
+        }
+        invalidations
+            .path(CACHES)
+            .fields()
+            .forEachRemaining(region -> {
+                invalidatedCaches.add(region.getKey());
+                Cache cache = cacheManager.getCache(region.getKey());
+                if (cache != null) {
+                    region.getValue().forEach(key -> cache.evict(key.asText()));
+                }
+            });
+        invalidations
+            .path(ENTITIES)
+            .fields()
+            .forEachRemaining(region -> {
+                invalidatedEntities.add(region.getKey());
+                region.getValue().forEach(id -> evictEntityLocally(region.getKey(), id.asText()));
+            });
+    }
+
+    /**
+     * Clear the caches and entities invalidations were received or sent for, as some of their invalidations might
+     * have been lost.
+     */
+    @Override
+    public void onMissedMessages() {
+        for (String cacheName : invalidatedCaches) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        if (!invalidatedEntities.isEmpty()) {
+            org.hibernate.Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache();
+            for (String entityName : invalidatedEntities) {
+                secondLevelCache.evictEntityData(entityName);
+                collectionRoles(entityName).forEach(secondLevelCache::evictCollectionData);
+            }
+        }
+    }
+
+    private void evictEntityLocally(String entityName, String id) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(entityName);
+        Class<?> identifierClass = persister.getIdentifierType().getReturnedClass();
+        Serializable identifier = (Serializable) conversionService.convert(id, identifierClass);
+        sessionFactory.getCache().evictEntityData(entityName, identifier);
+        collectionRoles(entityName).forEach(role -> sessionFactory.getCache().evictCollectionData(role, identifier));
+    }
+
+    private List<String> collectionRoles(String entityName) {
+        EntityPersister persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(entityName);
+        List<String> roles = new ArrayList<>();
+        for (Type type : persister.getPropertyTypes()) {
+            if (type instanceof CollectionType) {
+                roles.add(((CollectionType) type).getRole());
+            }
+        }
+        return roles;
+    }
+
+    private void enqueue(String kind, String region, String key) {
+        if (transport != null) {
+            if (CACHES.equals(kind)) {
+                invalidatedCaches.add(region);
+            } else {
+                invalidatedEntities.add(region);
+            }
+            pendingInvalidations.add(new Invalidation(kind, region, key));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        action.run();
+                    }
+                }
+            );
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class Invalidation {
+
+        private final String kind;
+
+        private final String region;
+
+        private final String key;
+
+        private Invalidation(String kind, String region, String key) {
+            this.kind = kind;
+            this.region = region;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Invalidation)) {
+                return false;
+            }
+            Invalidation other = (Invalidation) o;
+            return kind.equals(other.kind) && region.equals(other.region) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, region, key);
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + region + " " + key;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.sturdy.alterra.repository.cache;
+
+/**
+ * Carries the messages of the {@link CacheInvalidationBus} between the nodes of the application.
+ * <p>
+ * A message published by a node is delivered to every subscribed node, the publisher included, at most once. A
+ * transport that may have lost messages, for instance while reconnecting, tells its listeners so.
+ */
+public interface CacheInvalidationTransport {
+    /**
+     * @param message the message, at most {@link #getMaxMessageSize()} bytes once encoded in UTF-8.
+     */
+    void publish(String message);
+
+    void subscribe(Listener listener);
+
+    /**
+     * @return the size in bytes of the largest message this transport carries.
+     */
+    int getMaxMessageSize();
+
+    interface Listener {
+        void onMessage(String message);
+
+        /**
+         * Called when messages published by the other nodes might not have been delivered.
+         */
+        default void onMissedMessages() {}
+    }
+}
@@ -0,0 +1,416 @@
+package com.sturdy.alterra.repository.cache;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A {@link Cache} loading each missing key once, however many callers miss it at the same time, and reloading the
+ * entries read {@code refresh-after} their load in the background, before they expire.
+ * <p>
+ * Both apply to the {@code @Cacheable(sync = true)} lookups, which go through {@link #get(Object, Callable)}: the
+ * first caller missing a key loads it while the others wait for its result, and a caller reading an entry due for
+ * refresh gets it at once while it is reloaded. Missing values are not cached, the next lookup loads them again.
+ * <p>
+ * Keys are versioned, each eviction moving the version of the key on, and a value is only stored if the version of
+ * its key is the one it was read at: a load still running when its key is evicted, or the cache cleared, does not
+ * store its result, which might predate the change the eviction is for. Versions are kept for stripes of keys rather
+ * than for each key, an eviction drops the loads of the other keys of its stripe as well.
+ * <p>
+ * Within a read-write transaction, values might hold its uncommitted changes: they are stored once it commits, if
+ * their key was not evicted meanwhile, and the missing keys are loaded by the caller alone.
+ * <p>
+ * The values read outside of the lookups, such as by a warm-up, are stored with
+ * {@link #putIfAbsent(Object, Object, Versions)} at the {@link #getVersions() versions} taken before they were read:
+ * {@link #put(Object, Object)} and {@link #putIfAbsent(Object, Object)} take the values as current.
+ */
+public class CoalescingCache implements Cache {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(CoalescingCache.class);
+
+    private final Cache target;
+
+    private final Duration refreshAfter;
+
+    private final Executor executor;
+
+    private final Clock clock;
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    private final Object[] versionLocks = new Object[VERSION_STRIPES];
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder loadTime = new LongAdder();
+
+    /**
+     * @param target the cache holding the entries.
+     * @param refreshAfter the age of the entries reloaded when read, or {@code null} not to reload them.
+     * @param executor the executor of the reloads.
+     * @param clock the clock the entries are aged with.
+     */
+    public CoalescingCache(Cache target, Duration refreshAfter, Executor executor, Clock clock) {
+        this.target = target;
+        this.refreshAfter = refreshAfter;
+        this.executor = executor;
+        this.clock = clock;
+        for (int stripe = 0; stripe < VERSION_STRIPES; stripe++) {
+            versionLocks[stripe] = new Object();
+        }
+    }
+
+    public Cache getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the number of loads, including the refreshes.
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * @return the total time spent loading, in nanoseconds.
+     */
+    public long getTotalLoadTime() {
+        return loadTime.sum();
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper cached = target.get(key);
+        return cached != null ? new SimpleValueWrapper(value(cached)) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper cached = get(key);
+        Object value = cached != null ? cached.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = target.get(key);
+        if (cached != null) {
+            if (isDueForRefresh(cached.get())) {
+                refresh(key, valueLoader);
+            }
+            return (T) value(cached);
+        }
+        if (isReadWriteTransaction()) {
+            // The loader might see the uncommitted changes of the transaction, which the other callers must not get
+            try {
+                return (T) load(key, valueLoader);
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> runningLoad = loads.putIfAbsent(key, load);
+        if (runningLoad != null) {
+            try {
+                return (T) runningLoad.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+        try {
+            return (T) load(key, valueLoader, load);
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store(key, value, version(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (isReadWriteTransaction()) {
+            ValueWrapper existing = get(key);
+            if (existing == null) {
+                store(key, value, version(key));
+            }
+            return existing;
+        }
+        ValueWrapper existing = target.putIfAbsent(key, stored(value));
+        return existing != null ? new SimpleValueWrapper(value(existing)) : null;
+    }
+
+    /**
+     * @return the current versions of the keys, to take before reading values stored with
+     * {@link #putIfAbsent(Object, Object, Versions)}.
+     */
+    public Versions getVersions() {
+        long[] current = new long[VERSION_STRIPES];
+        for (int stripe = 0; stripe < VERSION_STRIPES; stripe++) {
+            synchronized (versionLocks[stripe]) {
+                current[stripe] = versions[stripe];
+            }
+        }
+        return new Versions(current);
+    }
+
+    /**
+     * Store a value if its key has none, and was not evicted since the given versions were taken, once the current
+     * transaction commits if it might hold its uncommitted changes.
+     *
+     * @param versions the versions taken before the value was read.
+     */
+    public void putIfAbsent(Object key, Object value, Versions versions) {
+        long version = versions.versions[stripe(key)];
+        if (isReadWriteTransaction()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        storeIfAbsentAndCurrent(key, value, version);
+                    }
+                }
+            );
+        } else {
+            storeIfAbsentAndCurrent(key, value, version);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        loads.remove(key);
+        nextVersion(key);
+        target.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        loads.remove(key);
+        nextVersion(key);
+        return target.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        loads.clear();
+        nextVersions();
+        target.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        loads.clear();
+        nextVersions();
+        return target.invalidate();
+    }
+
+    private boolean isDueForRefresh(Object cached) {
+        return (
+            refreshAfter != null &&
+            cached instanceof LoadedValue &&
+            clock.millis() - ((LoadedValue) cached).loadedAt >= refreshAfter.toMillis()
+        );
+    }
+
+    private void refresh(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        if (loads.putIfAbsent(key, load) == null) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        load(key, valueLoader, load);
+                    } catch (Exception e) {
+                        log.warn("Could not refresh the entry {} of cache {}: {}", key, getName(), e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Refreshed on a later read, or loaded once expired
+                loads.remove(key, load);
+                load.completeExceptionally(e);
+            }
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader, CompletableFuture<Object> load) throws Exception {
+        try {
+            Object value = load(key, valueLoader);
+            load.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader) throws Exception {
+        long version = version(key);
+        long startedAt = System.nanoTime();
+        try {
+            Object value = valueLoader.call();
+            if (value != null) {
+                store(key, value, version);
+            }
+            return value;
+        } finally {
+            recordLoad(startedAt);
+        }
+    }
+
+    /**
+     * Store a value read at the given version of its key, once the current transaction commits if it might hold its
+     * uncommitted changes. The value is dropped if the transaction rolls back, or if the key was evicted since.
+     */
+    private void store(Object key, Object value, long version) {
+        if (isReadWriteTransaction()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        storeIfCurrent(key, value, version);
+                    }
+                }
+            );
+        } else {
+            storeIfCurrent(key, value, version);
+        }
+    }
+
+    private void storeIfCurrent(Object key, Object value, long version) {
+        int stripe = stripe(key);
+        synchronized (versionLocks[stripe]) {
+            if (versions[stripe] == version) {
+                target.put(key, stored(value));
+            }
+        }
+    }
+
+    private void storeIfAbsentAndCurrent(Object key, Object value, long version) {
+        int stripe = stripe(key);
+        synchronized (versionLocks[stripe]) {
+            if (versions[stripe] == version) {
+                target.putIfAbsent(key, stored(value));
+            }
+        }
+    }
+
+    /**
+     * The version of a key, which each eviction of a key of its stripe moves on.
+     */
+    private long version(Object key) {
+        int stripe = stripe(key);
+        synchronized (versionLocks[stripe]) {
+            return versions[stripe];
+        }
+    }
+
+    private void nextVersion(Object key) {
+        int stripe = stripe(key);
+        synchronized (versionLocks[stripe]) {
+            versions[stripe]++;
+        }
+    }
+
+    private void nextVersions() {
+        for (int stripe = 0; stripe < VERSION_STRIPES; stripe++) {
+            synchronized (versionLocks[stripe]) {
+                versions[stripe]++;
+            }
+        }
+    }
+
+    private static int stripe(Object key) {
+        return Math.floorMod(key.hashCode(), VERSION_STRIPES);
+    }
+
+    /**
+     * The value to store, with its load time if it is refreshed. Others are stored as is, for the expiry policies
+     * reading them.
+     */
+    private Object stored(Object value) {
+        return refreshAfter != null ? new LoadedValue(value, clock.millis()) : value;
+    }
+
+    private void recordLoad(long startedAt) {
+        loadCount.increment();
+        loadTime.add(System.nanoTime() - startedAt);
+    }
+
+    private static boolean isReadWriteTransaction() {
+        return (
+            TransactionSynchronizationManager.isSynchronizationActive() &&
+            TransactionSynchronizationManager.isActualTransactionActive() &&
+            !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        );
+    }
+
+    private static Object value(ValueWrapper cached) {
+        Object value = cached.get();
+        return value instanceof LoadedValue ? ((LoadedValue) value).value : value;
+    }
+
+    /**
+     * A cached value, with the time it was loaded at.
+     */
+    static final class LoadedValue implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+
+        private final long loadedAt;
+
+        LoadedValue(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * The versions of the keys at some point, see {@link #getVersions()}.
+     */
+    public static final class Versions {
+
+        private final long[] versions;
+
+        private Versions(long[] versions) {
+            this.versions = versions;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.sturdy.alterra.repository.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * {@link CacheInvalidationTransport} over PostgreSQL {@code LISTEN}/{@code NOTIFY}, so that the nodes sharing a
+ * database need nothing else to invalidate each other's caches.
+ * <p>
+ * Notifications are only delivered to the sessions listening when they are sent, so this transport holds two
+ * connections of its own outside of the connection pool: one listening on the channel, and one publishing to it. The
+ * listening connection is reopened every {@code reconnect-delay} after a failure, and the listeners are told they
+ * might have missed messages every time it starts listening.
+ */
+public class PostgresCacheInvalidationTransport implements CacheInvalidationTransport, DisposableBean {
+
+    /**
+     * The limit of PostgreSQL is 8000 bytes, keep some room for the channel name.
+     */
+    static final int MAX_MESSAGE_SIZE = 7900;
+
+    private static final Pattern CHANNEL_PATTERN = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+
+    private final Logger log = LoggerFactory.getLogger(PostgresCacheInvalidationTransport.class);
+
+    private final DataSource dataSource;
+
+    private final String channel;
+
+    private final Duration reconnectDelay;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object publishLock = new Object();
+
+    private Connection publishConnection;
+
+    private Thread listeningThread;
+
+    private volatile boolean running = true;
+
+    private volatile boolean listening;
+
+    /**
+     * @param dataSource a data source of connections to PostgreSQL, which should not be pooled since this transport
+     * holds its connections for as long as it runs.
+     * @param channel the channel the nodes notify each other on.
+     * @param reconnectDelay the delay before reopening a failed connection.
+     */
+    public PostgresCacheInvalidationTransport(DataSource dataSource, String channel, Duration reconnectDelay) {
+        if (!CHANNEL_PATTERN.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid cache invalidation channel: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.channel = channel;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void publish(String message) {
+        synchronized (publishLock) {
+            try {
+                if (publishConnection == null || publishConnection.isClosed()) {
+                    publishConnection = dataSource.getConnection();
+                    publishConnection.setAutoCommit(true);
+                }
+                try (PreparedStatement statement = publishConnection.prepareStatement("select pg_notify(?, ?)")) {
+                    statement.setString(1, channel);
+                    statement.setString(2, message);
+                    statement.execute();
+                }
+            } catch (SQLException e) {
+                closePublishConnection();
+                throw new DataAccessResourceFailureException("Could not notify channel " + channel, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Listener listener) {
+        listeners.add(listener);
+        if (listeningThread == null && running) {
+            listeningThread = new Thread(this::listen, "cache-invalidation-" + channel);
+            listeningThread.setDaemon(true);
+            listeningThread.start();
+        }
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    boolean isListening() {
+        return listening;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                listening = true;
+                log.debug("Listening for cache invalidations on channel {}", channel);
+                listeners.forEach(Listener::onMissedMessages);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost the cache invalidation channel {}, reconnecting in {}: {}", channel, reconnectDelay, e.getMessage());
+                    pause();
+                }
+            } finally {
+                listening = false;
+            }
+        }
+    }
+
+    private void deliver(String message) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onMessage(message);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener failed on {}", message, e);
+            }
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void closePublishConnection() {
+        if (publishConnection != null) {
+            try {
+                publishConnection.close();
+            } catch (SQLException e) {
+                log.debug("Could not close the cache invalidation connection: {}", e.getMessage());
+            }
+            publishConnection = null;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        Thread thread;
+        synchronized (this) {
+            thread = listeningThread;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(2L * POLL_TIMEOUT_MILLIS);
+        }
+        synchronized (publishLock) {
+            closePublishConnection();
+        }
+    }
+}
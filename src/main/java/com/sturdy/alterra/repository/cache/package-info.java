@@ -0,0 +1,4 @@
+/**
+ * Invalidation of the caches of every node of the application.
+ */
+package com.sturdy.alterra.repository.cache;
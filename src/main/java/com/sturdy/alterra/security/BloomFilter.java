@@ -0,0 +1,132 @@
+package com.sturdy.alterra.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of strings, such as token ids or logins.
+ * <p>
+ * The bits of a key are derived from two 64-bit hashes (Kirsch-Mitzenmacher double hashing), so a lookup costs one
+ * pass over the key, without allocation, and {@link #getHashFunctions()} array reads. Keys cannot be removed: the
+ * filter is rebuilt from its source once too many of the keys it holds are stale.
+ */
+public final class BloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashFunctions;
+
+    private final long capacity;
+
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(long bitCount, int hashFunctions, long capacity) {
+        this.words = new AtomicLongArray((int) ((bitCount + Long.SIZE - 1) / Long.SIZE));
+        this.bitCount = bitCount;
+        this.hashFunctions = hashFunctions;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Create a filter holding {@code expectedInsertions} keys with the given false-positive rate.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing: " + expectedInsertions + " keys at " + falsePositiveRate);
+        }
+        double bitsPerId = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bitCount = Math.max(Long.SIZE, (long) Math.ceil(expectedInsertions * bitsPerId));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        return new BloomFilter(bitCount, hashFunctions, expectedInsertions);
+    }
+
+    /**
+     * Add a key to the filter. Keys already in the filter, or colliding with it entirely, are not counted as insertions.
+     */
+    public void put(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0) {
+                if (words.compareAndSet(index, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+                word = words.get(index);
+            }
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * @return the number of keys the filter was sized for.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    /**
+     * @return the expected false-positive rate for the keys inserted so far.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashFunctions * (double) insertions.get() / bitCount), hashFunctions);
+    }
+
+    private static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3 finalizer, spreads the FNV-1a hash over all 64 bits.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,16 +1,18 @@
 package com.sturdy.alterra.security;
 
-import com.sturdy.alterra.domain.Authority;
 import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.UserPrincipal;
+import com.sturdy.alterra.repository.UserPrincipalRepository;
 import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.repository.cache.CacheInvalidationBus;
 import java.util.*;
 import java.util.stream.Collectors;
-import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
@@ -18,16 +20,37 @@ import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Authenticate a user from the database.
+ * <p>
+ * Users are looked up as their cached {@link UserPrincipal}, the {@link User} entity is only loaded to change it.
+ * <p>
+ * The password hash of a user is upgraded on a successful login when it does not match the configured algorithm or
+ * cost anymore, see {@link PasswordHashingService#upgradeEncoding(String)}.
+ * <p>
+ * Logins and emails the {@link KnownUserFilter} does not hold are rejected without looking them up.
  */
 @Component("userDetailsService")
-public class DomainUserDetailsService implements UserDetailsService {
+public class DomainUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final Logger log = LoggerFactory.getLogger(DomainUserDetailsService.class);
 
     private final UserRepository userRepository;
 
-    public DomainUserDetailsService(UserRepository userRepository) {
+    private final UserPrincipalRepository userPrincipalRepository;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final KnownUserFilter knownUserFilter;
+
+    public DomainUserDetailsService(
+        UserRepository userRepository,
+        UserPrincipalRepository userPrincipalRepository,
+        CacheInvalidationBus cacheInvalidationBus,
+        KnownUserFilter knownUserFilter
+    ) {
         this.userRepository = userRepository;
+        this.userPrincipalRepository = userPrincipalRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.knownUserFilter = knownUserFilter;
     }
 
     @Override
@@ -35,28 +58,62 @@ public class DomainUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
 
-        if (new EmailValidator().isValid(login, null)) {
-            return userRepository
-                .findOneWithAuthoritiesByEmailIgnoreCase(login)
+        if (LoginIdentifier.isEmail(login)) {
+            String lowercaseEmail = login.toLowerCase(Locale.ENGLISH);
+            if (!knownUserFilter.mightExist(lowercaseEmail)) {
+                throw new UsernameNotFoundException("User with email " + login + " was not found in the database");
+            }
+            return findOneByEmail(lowercaseEmail)
                 .map(user -> createSpringSecurityUser(login, user))
                 .orElseThrow(() -> new UsernameNotFoundException("User with email " + login + " was not found in the database"));
         }
 
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        return userRepository
-            .findOneWithAuthoritiesByLogin(lowercaseLogin)
+        if (!knownUserFilter.mightExist(lowercaseLogin)) {
+            throw new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database");
+        }
+        return userPrincipalRepository
+            .findOneByLogin(lowercaseLogin)
             .map(user -> createSpringSecurityUser(lowercaseLogin, user))
             .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database"));
     }
 
-    private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        log.debug("Upgrading the password hash of {}", userDetails.getUsername());
+        userRepository
+            .findOneByLogin(userDetails.getUsername())
+            .ifPresent(user -> {
+                user.setPassword(newPassword);
+                // The users by email only hold logins, which are unchanged
+                cacheInvalidationBus.evict(UserRepository.USERS_BY_LOGIN_CACHE, user.getLogin());
+                cacheInvalidationBus.evictEntity(User.class, user.getId());
+            });
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails).password(newPassword).build();
+    }
+
+    /**
+     * Look the user up by login through the index of the logins by email, unless the entry of the index is stale, as
+     * when the email moved to another user and its eviction did not reach this node yet.
+     */
+    private Optional<UserPrincipal> findOneByEmail(String lowercaseEmail) {
+        Optional<UserPrincipal> user = userRepository
+            .findLoginByEmailIgnoreCase(lowercaseEmail)
+            .flatMap(userPrincipalRepository::findOneByLogin);
+        if (user.isPresent() && !lowercaseEmail.equalsIgnoreCase(user.get().getEmail())) {
+            return userRepository.findOneWithAuthoritiesByEmailIgnoreCase(lowercaseEmail).map(UserPrincipal::of);
+        }
+        return user;
+    }
+
+    private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, UserPrincipal user) {
         if (!user.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
         List<GrantedAuthority> grantedAuthorities = user
             .getAuthorities()
             .stream()
-            .map(Authority::getName)
             .map(SimpleGrantedAuthority::new)
             .collect(Collectors.toList());
         return new org.springframework.security.core.userdetails.User(user.getLogin(), user.getPassword(), grantedAuthorities);
@@ -0,0 +1,197 @@
+package com.sturdy.alterra.security;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Negative lookup cache of the logins and emails, so that looking up an unknown user does not reach the database.
+ * <p>
+ * Every node holds a {@link BloomFilter} of the lowercased logins and emails of the users: a key the filter does not
+ * contain belongs to no user, the other ones are looked up as usual. Unlike caching the empty lookup results, the
+ * filter has a fixed size whatever the number of unknown keys tried, and does not push the known users out of the user
+ * caches.
+ * <p>
+ * {@link #add(User)} must be called whenever a login or an email is created or changed, which {@code UserService}
+ * does, and is kept by the rebuild when called while it reads the user table. Users created or changed on another
+ * node, or outside of {@code UserService}, are added on the next synchronization, every
+ * {@code application.security.known-users.sync-interval}. Deleted users are only dropped by the rebuild, every
+ * {@code rebuild-interval}, which reads the users by batches of {@code rebuild-batch-size}. Until the first
+ * synchronization, or when disabled, every key might be present.
+ */
+@Component
+public class KnownUserFilter implements SchedulingConfigurer {
+
+    public static final String FILTER_METER_NAME = "security.authentication.known-user-filter";
+
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private final Logger log = LoggerFactory.getLogger(KnownUserFilter.class);
+
+    private final UserRepository userRepository;
+
+    private final SecurityMetersService securityMetersService;
+
+    private final ApplicationProperties.Security.KnownUsers properties;
+
+    private volatile BloomFilter filter;
+
+    private volatile Instant lastSync;
+
+    private volatile Instant lastRebuild;
+
+    /**
+     * Logins and emails added during a rebuild, to add to the rebuilt filter too, {@code null} unless rebuilding.
+     */
+    private List<String> addedDuringRebuild;
+
+    public KnownUserFilter(
+        UserRepository userRepository,
+        SecurityMetersService securityMetersService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.userRepository = userRepository;
+        this.securityMetersService = securityMetersService;
+        this.properties = applicationProperties.getSecurity().getKnownUsers();
+        Gauge
+            .builder(FILTER_METER_NAME + ".keys", this, knownUserFilter -> {
+                BloomFilter current = knownUserFilter.filter;
+                return current == null ? Double.NaN : current.getInsertions();
+            })
+            .baseUnit("keys")
+            .description("Logins and emails held by the known user Bloom filter.")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (properties.isEnabled()) {
+            taskRegistrar.addFixedDelayTask(this::sync, properties.getSyncInterval().toMillis());
+        }
+    }
+
+    /**
+     * Check whether a login or an email might belong to a user.
+     *
+     * @param loginOrEmail the login or email, in any case.
+     * @return {@code false} if no user has this login or email, {@code true} if one might.
+     */
+    public boolean mightExist(String loginOrEmail) {
+        BloomFilter current = filter;
+        if (current == null || !properties.isEnabled()) {
+            return true;
+        }
+        if (!current.mightContain(loginOrEmail.toLowerCase(Locale.ENGLISH))) {
+            securityMetersService.trackUserLookupAbsent();
+            return false;
+        }
+        securityMetersService.trackUserLookupMaybePresent();
+        return true;
+    }
+
+    /**
+     * Add the login and email of a created or changed user to the filter.
+     *
+     * @param user the user.
+     */
+    public void add(User user) {
+        synchronized (this) {
+            BloomFilter current = filter;
+            if (current != null) {
+                put(current, user.getLogin(), user.getEmail());
+            }
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(user.getLogin());
+                addedDuringRebuild.add(user.getEmail());
+            }
+        }
+    }
+
+    /**
+     * Add the users created or changed on other nodes since the last synchronization to the filter, or rebuild it from
+     * the user table once it is due or holds more keys than it was sized for.
+     */
+    public void sync() {
+        Instant now = Instant.now();
+        BloomFilter current = filter;
+        if (
+            current == null ||
+            current.getInsertions() > current.getCapacity() ||
+            !now.isBefore(lastRebuild.plus(properties.getRebuildInterval()))
+        ) {
+            rebuild(now);
+            return;
+        }
+        // Users are timestamped by the node that changed them, look back far enough to absorb clock skew
+        userRepository
+            .findAllLoginsAndEmailsByLastModifiedDateAfter(lastSync.minus(CLOCK_SKEW))
+            .forEach(user -> put(current, user.getLogin(), user.getEmail()));
+        lastSync = now;
+    }
+
+    /**
+     * Rebuild the filter from the user table, read by batches of users ordered by id.
+     */
+    private void rebuild(Instant now) {
+        synchronized (this) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+        int batchSize = Math.max(1, properties.getRebuildBatchSize());
+        // Two keys per user, with room for as many users again before the next rebuild
+        BloomFilter rebuilt = BloomFilter.create(
+            2 * Math.max(properties.getExpectedUsers(), 2L * userRepository.count()),
+            properties.getFalsePositiveRate()
+        );
+        long users = 0;
+        long lastId = 0;
+        List<UserRepository.IdLoginAndEmail> batch;
+        try {
+            do {
+                batch = userRepository.findAllLoginsAndEmailsByIdGreaterThan(lastId, PageRequest.of(0, batchSize));
+                batch.forEach(user -> put(rebuilt, user.getLogin(), user.getEmail()));
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                    users += batch.size();
+                }
+            } while (batch.size() == batchSize);
+            synchronized (this) {
+                // Users added to the previous filter while the table was read
+                for (int i = 0; i < addedDuringRebuild.size(); i += 2) {
+                    put(rebuilt, addedDuringRebuild.get(i), addedDuringRebuild.get(i + 1));
+                }
+                lastSync = now;
+                lastRebuild = now;
+                filter = rebuilt;
+            }
+        } finally {
+            synchronized (this) {
+                addedDuringRebuild = null;
+            }
+        }
+        log.debug("Rebuilt the known user filter with {} users", users);
+    }
+
+    private static void put(BloomFilter filter, String login, String email) {
+        if (login != null) {
+            filter.put(login.toLowerCase(Locale.ENGLISH));
+        }
+        if (email != null) {
+            filter.put(email.toLowerCase(Locale.ENGLISH));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.sturdy.alterra.security;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.management.SecurityMetersService;
+import java.time.Duration;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Throttle the login attempts per login and per client address, before any database lookup or password hash.
+ * <p>
+ * Every attempt is counted over a sliding {@code application.security.login-throttling.window}, by a
+ * {@link SlidingWindowCounter} of a fixed size whatever the number of logins and addresses seen. An attempt over
+ * {@code max-attempts-per-login} for its login, or over {@code max-attempts-per-address} for its address, is rejected
+ * with a {@link LoginThrottledException}.
+ */
+@Component
+public class LoginAttemptThrottle {
+
+    private final Logger log = LoggerFactory.getLogger(LoginAttemptThrottle.class);
+
+    private final ApplicationProperties.Security.LoginThrottling properties;
+
+    private final SecurityMetersService securityMetersService;
+
+    private final SlidingWindowCounter attemptsByLogin;
+
+    private final SlidingWindowCounter attemptsByAddress;
+
+    public LoginAttemptThrottle(ApplicationProperties applicationProperties, SecurityMetersService securityMetersService) {
+        this.properties = applicationProperties.getSecurity().getLoginThrottling();
+        this.securityMetersService = securityMetersService;
+        long origin = System.nanoTime();
+        long window = properties.getWindow().toNanos();
+        this.attemptsByLogin = new SlidingWindowCounter(properties.getBuckets(), window, () -> System.nanoTime() - origin);
+        this.attemptsByAddress = new SlidingWindowCounter(properties.getBuckets(), window, () -> System.nanoTime() - origin);
+    }
+
+    /**
+     * Count a login attempt, and reject it if its login or its address made too many attempts lately.
+     *
+     * @param login the login or email given by the client.
+     * @param address the address of the client.
+     * @throws LoginThrottledException if the attempt is rejected.
+     */
+    public void acquire(String login, String address) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        boolean loginThrottled =
+            login != null && attemptsByLogin.incrementAndEstimate(login.toLowerCase(Locale.ENGLISH)) > properties.getMaxAttemptsPerLogin();
+        boolean addressThrottled = address != null && attemptsByAddress.incrementAndEstimate(address) > properties.getMaxAttemptsPerAddress();
+        if (loginThrottled) {
+            securityMetersService.trackLoginThrottledByLogin();
+            log.debug("Too many login attempts for {}", login);
+            throw new LoginThrottledException("Too many login attempts", retryAfter(attemptsByLogin));
+        }
+        if (addressThrottled) {
+            securityMetersService.trackLoginThrottledByAddress();
+            log.debug("Too many login attempts from {}", address);
+            throw new LoginThrottledException("Too many login attempts", retryAfter(attemptsByAddress));
+        }
+    }
+
+    private static Duration retryAfter(SlidingWindowCounter counter) {
+        return Duration.ofNanos(counter.nanosecondsUntilNextWindow());
+    }
+}
@@ -0,0 +1,111 @@
+package com.sturdy.alterra.security;
+
+import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
+
+/**
+ * Tell the emails from the logins a user authenticates with, the way the {@code @Email} constraint validating the
+ * emails of the users does.
+ * <p>
+ * Identifiers without {@code @}, which every plain login is, are told apart by a single scan, and plain ASCII emails by
+ * a second one, without allocating nor running a regex. The rare identifiers with quoted local parts, IP address
+ * domains or non-ASCII characters are left to the Hibernate {@link EmailValidator}, whose rules the scan follows.
+ */
+final class LoginIdentifier {
+
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+
+    private static final int MAX_DOMAIN_PART_LENGTH = 255;
+
+    private static final int MAX_DOMAIN_LABEL_LENGTH = 63;
+
+    private static final String ATOM_SYMBOLS = "!#$%&'*+/=?^_`{|}~";
+
+    private static final EmailValidator EMAIL_VALIDATOR = new EmailValidator();
+
+    private LoginIdentifier() {}
+
+    /**
+     * @param identifier the login or email given by the client.
+     * @return {@code true} if the identifier is an email, and should be looked up as such.
+     */
+    static boolean isEmail(String identifier) {
+        if (identifier == null || identifier.isEmpty()) {
+            // As the validator does
+            return true;
+        }
+        int at = identifier.lastIndexOf('@');
+        if (at < 0) {
+            return false;
+        }
+        for (int i = 0; i < identifier.length(); i++) {
+            char c = identifier.charAt(i);
+            if (c >= 0x80 || c == '"' || c == '[') {
+                return EMAIL_VALIDATOR.isValid(identifier, null);
+            }
+        }
+        return isDotAtom(identifier, 0, at) && isDomain(identifier, at + 1, identifier.length());
+    }
+
+    /**
+     * Match an unquoted local part: atoms separated by single dots.
+     */
+    private static boolean isDotAtom(String identifier, int start, int end) {
+        if (end - start > MAX_LOCAL_PART_LENGTH) {
+            return false;
+        }
+        boolean atomStarted = false;
+        for (int i = start; i < end; i++) {
+            char c = identifier.charAt(i);
+            if (c == '.') {
+                if (!atomStarted) {
+                    return false;
+                }
+                atomStarted = false;
+            } else if (isDomainChar(c) || c == '-') {
+                atomStarted = true;
+            } else {
+                return false;
+            }
+        }
+        return atomStarted;
+    }
+
+    /**
+     * Match a domain: labels separated by single dots, neither starting nor ending with a dash.
+     */
+    private static boolean isDomain(String identifier, int start, int end) {
+        if (end - start > MAX_DOMAIN_PART_LENGTH) {
+            return false;
+        }
+        int labelStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || identifier.charAt(i) == '.') {
+                if (!isDomainLabel(identifier, labelStart, i)) {
+                    return false;
+                }
+                labelStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDomainLabel(String identifier, int start, int end) {
+        if (end == start || end - start > MAX_DOMAIN_LABEL_LENGTH) {
+            return false;
+        }
+        if (identifier.charAt(start) == '-' || identifier.charAt(end - 1) == '-') {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = identifier.charAt(i);
+            if (!isDomainChar(c) && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDomainChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || ATOM_SYMBOLS.indexOf(c) >= 0;
+    }
+}
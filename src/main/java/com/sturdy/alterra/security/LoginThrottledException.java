@@ -0,0 +1,23 @@
+package com.sturdy.alterra.security;
+
+import java.time.Duration;
+
+/**
+ * This exception is thrown in case of a login attempt rejected because its login or its address made too many
+ * attempts lately.
+ */
+public class LoginThrottledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public LoginThrottledException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
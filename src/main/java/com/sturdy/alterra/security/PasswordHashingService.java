@@ -0,0 +1,243 @@
+package com.sturdy.alterra.security;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.management.SecurityMetersService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/**
+ * Hash the passwords on a dedicated bounded pool, with the algorithm configured in
+ * {@code application.security.password-hashing}.
+ * <p>
+ * The calling thread still waits for the hash, but at most {@code max-concurrency} hashes run at once, so a login storm
+ * cannot use every core, and requests that do not hash passwords keep being served. When {@code queue-capacity} hashes
+ * are already waiting, or a hash waited longer than {@code max-wait}, a {@link PasswordHashingUnavailableException} is
+ * thrown instead.
+ * <p>
+ * BCrypt hashes are stored as is, as they always were, the other algorithms are prefixed with their id:
+ * {@code {argon2}} and {@code {pbkdf2@<iterations>}}, since PBKDF2 hashes do not hold their own cost. Hashes of another
+ * algorithm, or with lower cost parameters than configured, need to be upgraded, which
+ * {@link DomainUserDetailsService} does on the next successful login.
+ */
+public class PasswordHashingService implements PasswordEncoder, DisposableBean {
+
+    public static final String BCRYPT = "bcrypt";
+
+    public static final String ARGON2 = "argon2";
+
+    public static final String PBKDF2 = "pbkdf2";
+
+    public static final String POOL_METER_NAME = "security.password-hashing.pool";
+
+    private static final String ARGON2_PREFIX = "{" + ARGON2 + "}";
+
+    private static final String PBKDF2_PREFIX = "{" + PBKDF2 + "@";
+
+    private static final int PBKDF2_SALT_LENGTH = 16;
+
+    private static final int PBKDF2_HASH_WIDTH = 256;
+
+    private final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final String algorithm;
+
+    private final BCryptPasswordEncoder bcrypt;
+
+    private final Argon2PasswordEncoder argon2;
+
+    private final int pbkdf2Iterations;
+
+    private final Map<Integer, Pbkdf2PasswordEncoder> pbkdf2ByIterations = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final Duration maxWait;
+
+    private final SecurityMetersService securityMetersService;
+
+    public PasswordHashingService(
+        ApplicationProperties applicationProperties,
+        SecurityMetersService securityMetersService,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Security.PasswordHashing properties = applicationProperties.getSecurity().getPasswordHashing();
+        this.algorithm = properties.getAlgorithm().toLowerCase(Locale.ENGLISH);
+        if (!BCRYPT.equals(algorithm) && !ARGON2.equals(algorithm) && !PBKDF2.equals(algorithm)) {
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + properties.getAlgorithm());
+        }
+        this.bcrypt = new BCryptPasswordEncoder(properties.getBcrypt().getStrength());
+        ApplicationProperties.Security.PasswordHashing.Argon2 argon2Properties = properties.getArgon2();
+        this.argon2 =
+            new Argon2PasswordEncoder(
+                argon2Properties.getSaltLength(),
+                argon2Properties.getHashLength(),
+                argon2Properties.getParallelism(),
+                argon2Properties.getMemory(),
+                argon2Properties.getIterations()
+            );
+        this.pbkdf2Iterations = properties.getPbkdf2().getIterations();
+        this.maxWait = properties.getMaxWait();
+        this.securityMetersService = securityMetersService;
+
+        int maxConcurrency = properties.getMaxConcurrency() > 0
+            ? properties.getMaxConcurrency()
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        this.executor =
+            new ThreadPoolExecutor(
+                maxConcurrency,
+                maxConcurrency,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                threadFactory
+            );
+        log.debug("Hashing passwords with {} on {} threads", algorithm, maxConcurrency);
+
+        Gauge
+            .builder(POOL_METER_NAME + ".queued", executor, pool -> pool.getQueue().size())
+            .description("Indicates the passwords waiting to be hashed.")
+            .register(meterRegistry);
+        Gauge
+            .builder(POOL_METER_NAME + ".active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Indicates the passwords being hashed.")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> encodeNow(rawPassword), securityMetersService::recordPasswordEncode);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        return execute(() -> matchesNow(rawPassword, encodedPassword), securityMetersService::recordPasswordMatches);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        if (encodedPassword.startsWith(ARGON2_PREFIX)) {
+            return !ARGON2.equals(algorithm) || argon2.upgradeEncoding(encodedPassword.substring(ARGON2_PREFIX.length()));
+        }
+        if (encodedPassword.startsWith(PBKDF2_PREFIX)) {
+            return !PBKDF2.equals(algorithm) || pbkdf2IterationsOf(encodedPassword) < pbkdf2Iterations;
+        }
+        return !BCRYPT.equals(algorithm) || bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    private String encodeNow(CharSequence rawPassword) {
+        switch (algorithm) {
+            case ARGON2:
+                return ARGON2_PREFIX + argon2.encode(rawPassword);
+            case PBKDF2:
+                return PBKDF2_PREFIX + pbkdf2Iterations + "}" + pbkdf2(pbkdf2Iterations).encode(rawPassword);
+            default:
+                return bcrypt.encode(rawPassword);
+        }
+    }
+
+    private boolean matchesNow(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword.startsWith(ARGON2_PREFIX)) {
+            return argon2.matches(rawPassword, encodedPassword.substring(ARGON2_PREFIX.length()));
+        }
+        if (encodedPassword.startsWith(PBKDF2_PREFIX)) {
+            int end = encodedPassword.indexOf('}');
+            return pbkdf2(pbkdf2IterationsOf(encodedPassword)).matches(rawPassword, encodedPassword.substring(end + 1));
+        }
+        return bcrypt.matches(rawPassword, encodedPassword);
+    }
+
+    private int pbkdf2IterationsOf(String encodedPassword) {
+        int end = encodedPassword.indexOf('}');
+        try {
+            return Integer.parseInt(encodedPassword.substring(PBKDF2_PREFIX.length(), end));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid PBKDF2 password hash");
+        }
+    }
+
+    private Pbkdf2PasswordEncoder pbkdf2(int iterations) {
+        return pbkdf2ByIterations.computeIfAbsent(
+            iterations,
+            i -> {
+                Pbkdf2PasswordEncoder encoder = new Pbkdf2PasswordEncoder("", PBKDF2_SALT_LENGTH, i, PBKDF2_HASH_WIDTH);
+                encoder.setAlgorithm(Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+                return encoder;
+            }
+        );
+    }
+
+    private <T> T execute(Callable<T> hash, LongConsumer durationRecorder) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future =
+                executor.submit(() -> {
+                    long startedAt = System.nanoTime();
+                    securityMetersService.recordPasswordHashingWait(startedAt - submittedAt);
+                    try {
+                        return hash.call();
+                    } finally {
+                        durationRecorder.accept(System.nanoTime() - startedAt);
+                    }
+                });
+        } catch (RejectedExecutionException e) {
+            securityMetersService.trackPasswordHashingQueueFull();
+            throw new PasswordHashingUnavailableException("Too many passwords are waiting to be hashed", maxWait);
+        }
+        try {
+            return future.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The hash is skipped if it did not start yet
+            future.cancel(false);
+            securityMetersService.trackPasswordHashingTimeout();
+            throw new PasswordHashingUnavailableException("Timed out waiting for the password to be hashed", maxWait);
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Interrupted while waiting for the password to be hashed", maxWait);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,25 @@
+package com.sturdy.alterra.security;
+
+import java.time.Duration;
+
+/**
+ * This exception is thrown in case of a password that cannot be hashed because the hashing pool is saturated.
+ * <p>
+ * It is not an {@link org.springframework.security.core.AuthenticationException}: the credentials were not checked,
+ * and the client should retry later rather than consider them wrong.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public PasswordHashingUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
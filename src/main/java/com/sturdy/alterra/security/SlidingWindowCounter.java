@@ -0,0 +1,109 @@
+package com.sturdy.alterra.security;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate count of the events per key over a sliding window, in a fixed amount of memory and without locks.
+ * <p>
+ * Every key is hashed to one bucket in each of two rows, count-min sketch style, and its estimate is the lowest of
+ * both: keys sharing a bucket can only make the estimate higher than the real count, never lower. A bucket is a single
+ * {@code long} holding the index of its current window, and the counts of that window and of the previous one, updated
+ * with a compare-and-set. The sliding count weights the previous window by the part of it still in the sliding window.
+ * <p>
+ * The hashes are seeded randomly, so that callers cannot pick keys colliding with someone else's on purpose.
+ */
+final class SlidingWindowCounter {
+
+    private static final int ROWS = 2;
+
+    private static final long MAX_COUNT = 0xFFFF;
+
+    private final AtomicLongArray buckets;
+
+    private final int bucketsPerRow;
+
+    private final long windowInNanoseconds;
+
+    private final LongSupplier nanoClock;
+
+    private final long[] seeds = new long[ROWS];
+
+    SlidingWindowCounter(int bucketsPerRow, long windowInNanoseconds, LongSupplier nanoClock) {
+        if (bucketsPerRow < 1 || windowInNanoseconds < 1) {
+            throw new IllegalArgumentException("Buckets and window must be positive");
+        }
+        this.buckets = new AtomicLongArray(ROWS * bucketsPerRow);
+        this.bucketsPerRow = bucketsPerRow;
+        this.windowInNanoseconds = windowInNanoseconds;
+        this.nanoClock = nanoClock;
+        SecureRandom random = new SecureRandom();
+        for (int row = 0; row < ROWS; row++) {
+            seeds[row] = random.nextLong();
+        }
+    }
+
+    /**
+     * Count an event for a key.
+     *
+     * @param key the key.
+     * @return the estimated count of the events of the key over the sliding window, this one included.
+     */
+    double incrementAndEstimate(String key) {
+        long now = nanoClock.getAsLong();
+        long window = now / windowInNanoseconds;
+        double previousWeight = 1 - (double) (now % windowInNanoseconds) / windowInNanoseconds;
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            int index = row * bucketsPerRow + bucket(key, row);
+            long current;
+            long updated;
+            do {
+                current = buckets.get(index);
+                updated = increment(current, window);
+            } while (current != updated && !buckets.compareAndSet(index, current, updated));
+            estimate = Math.min(estimate, estimate(updated, window, previousWeight));
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the time left until the current window ends, and the events counted so far start to weigh less.
+     */
+    long nanosecondsUntilNextWindow() {
+        return windowInNanoseconds - nanoClock.getAsLong() % windowInNanoseconds;
+    }
+
+    private int bucket(String key, int row) {
+        long hash = seeds[row];
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        // MurmurHash3 finalizer
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) Long.remainderUnsigned(hash, bucketsPerRow);
+    }
+
+    private static long increment(long bucket, long window) {
+        long bucketWindow = bucket >>> 32;
+        long windowIndex = window & 0xFFFFFFFFL;
+        long count = bucket & MAX_COUNT;
+        if (bucketWindow == windowIndex) {
+            return count == MAX_COUNT ? bucket : bucket + 1;
+        }
+        long previous = bucketWindow == ((windowIndex - 1) & 0xFFFFFFFFL) ? count : 0;
+        return (windowIndex << 32) | (previous << 16) | 1;
+    }
+
+    private static double estimate(long bucket, long window, double previousWeight) {
+        if ((bucket >>> 32) != (window & 0xFFFFFFFFL)) {
+            return 0;
+        }
+        return ((bucket >>> 16) & MAX_COUNT) * previousWeight + (bucket & MAX_COUNT);
+    }
+}
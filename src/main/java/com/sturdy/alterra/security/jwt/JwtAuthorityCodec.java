@@ -0,0 +1,244 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.MalformedJwtException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the authorities of a JWT, and reads them back as shared {@link GrantedAuthority} instances.
+ * <p>
+ * By default the authorities are written as comma-separated names in the {@code auth} claim. With
+ * {@code application.security.jwt.compact-authorities} enabled, they are written in the {@code ath} claim as a bitmask
+ * over the {@code jhi_authority} table, sorted by name, prefixed with a fingerprint of that table: a token issued
+ * against another version of the table is rejected instead of being decoded with the wrong index. Both claims are
+ * always read, so the setting can be switched without invalidating the tokens already issued.
+ * <p>
+ * Decoded authority lists are immutable and cached per claim value, so reading the authorities of a token allocates
+ * no authority object once its combination of authorities has been seen.
+ */
+@Component
+public class JwtAuthorityCodec {
+
+    private final Logger log = LoggerFactory.getLogger(JwtAuthorityCodec.class);
+
+    static final String AUTHORITIES_KEY = "auth";
+
+    static final String COMPACT_AUTHORITIES_KEY = "ath";
+
+    private static final char GENERATION_SEPARATOR = '.';
+
+    private static final int MAX_CACHED_COMBINATIONS = 1024;
+
+    private static final long INDEX_RELOAD_INTERVAL_MILLIS = 60000;
+
+    private final AuthorityRepository authorityRepository;
+
+    private final boolean compactAuthorities;
+
+    private final ConcurrentMap<String, GrantedAuthority> grantedAuthorities = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, List<GrantedAuthority>> authoritiesByClaim = new ConcurrentHashMap<>();
+
+    private volatile AuthorityIndex authorityIndex;
+
+    public JwtAuthorityCodec(AuthorityRepository authorityRepository, ApplicationProperties applicationProperties) {
+        this.authorityRepository = authorityRepository;
+        this.compactAuthorities = applicationProperties.getSecurity().getJwt().isCompactAuthorities();
+    }
+
+    /**
+     * Add the authorities claim to a token.
+     *
+     * @param builder the token being built.
+     * @param authorities the authorities of the authenticated user.
+     */
+    public void encode(JwtBuilder builder, Collection<? extends GrantedAuthority> authorities) {
+        if (compactAuthorities) {
+            String encoded = getAuthorityIndex().encode(authorities);
+            if (encoded != null) {
+                builder.claim(COMPACT_AUTHORITIES_KEY, encoded);
+                return;
+            }
+        }
+        builder.claim(AUTHORITIES_KEY, authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.joining(",")));
+    }
+
+    /**
+     * Read the authorities of a verified token.
+     *
+     * @param claims the claims of the token.
+     * @return the shared, immutable list of its authorities.
+     * @throws MalformedJwtException if the compact authorities claim cannot be decoded against the authority table.
+     */
+    public List<GrantedAuthority> decode(Claims claims) {
+        String compact = claims.get(COMPACT_AUTHORITIES_KEY, String.class);
+        if (compact != null) {
+            return decodeCompact(compact);
+        }
+        return cached(authoritiesByClaim, claims.get(AUTHORITIES_KEY).toString(), this::decodeNames);
+    }
+
+    private List<GrantedAuthority> decodeNames(String names) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) {
+                authorities.add(grantedAuthority(name));
+            }
+        }
+        return Collections.unmodifiableList(authorities);
+    }
+
+    private List<GrantedAuthority> decodeCompact(String compact) {
+        int separator = compact.indexOf(GENERATION_SEPARATOR);
+        if (separator < 0) {
+            throw new MalformedJwtException("Invalid compact authorities claim");
+        }
+        String generation = compact.substring(0, separator);
+        AuthorityIndex index = getAuthorityIndex();
+        if (!index.generation.equals(generation)) {
+            index = reloadAuthorityIndex();
+            if (!index.generation.equals(generation)) {
+                throw new MalformedJwtException("Authorities were encoded against another version of the authority table");
+            }
+        }
+        long mask;
+        try {
+            mask = Long.parseUnsignedLong(compact.substring(separator + 1), Character.MAX_RADIX);
+        } catch (NumberFormatException e) {
+            throw new MalformedJwtException("Invalid compact authorities claim", e);
+        }
+        return index.decode(mask);
+    }
+
+    private GrantedAuthority grantedAuthority(String name) {
+        return grantedAuthorities.computeIfAbsent(name, SimpleGrantedAuthority::new);
+    }
+
+    private AuthorityIndex getAuthorityIndex() {
+        AuthorityIndex index = authorityIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = authorityIndex;
+                if (index == null) {
+                    index = loadAuthorityIndex();
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Reload the index when a token was encoded against another version of the table, at most once per interval so
+     * that tokens issued before a change of the table do not hit the database on every request.
+     */
+    private synchronized AuthorityIndex reloadAuthorityIndex() {
+        AuthorityIndex index = authorityIndex;
+        if (index != null && System.currentTimeMillis() - index.loadedAt < INDEX_RELOAD_INTERVAL_MILLIS) {
+            return index;
+        }
+        return loadAuthorityIndex();
+    }
+
+    private AuthorityIndex loadAuthorityIndex() {
+        List<String> names = authorityRepository.findAll().stream().map(Authority::getName).sorted().collect(Collectors.toList());
+        if (names.size() > Long.SIZE) {
+            log.warn("More than {} authorities, the ones after {} are written by name", Long.SIZE, names.get(Long.SIZE - 1));
+            names = names.subList(0, Long.SIZE);
+        }
+        CRC32 fingerprint = new CRC32();
+        fingerprint.update(String.join(",", names).getBytes(StandardCharsets.UTF_8));
+        List<GrantedAuthority> authorities = names.stream().map(this::grantedAuthority).collect(Collectors.toUnmodifiableList());
+        AuthorityIndex index = new AuthorityIndex(Long.toString(fingerprint.getValue(), Character.MAX_RADIX), authorities);
+        log.debug("Loaded the JWT authority index {} of {} authorities", index.generation, authorities.size());
+        authorityIndex = index;
+        return index;
+    }
+
+    private static <K> List<GrantedAuthority> cached(
+        ConcurrentMap<K, List<GrantedAuthority>> cache,
+        K key,
+        Function<K, List<GrantedAuthority>> decoder
+    ) {
+        List<GrantedAuthority> authorities = cache.get(key);
+        if (authorities != null) {
+            return authorities;
+        }
+        if (cache.size() >= MAX_CACHED_COMBINATIONS) {
+            return decoder.apply(key);
+        }
+        return cache.computeIfAbsent(key, decoder);
+    }
+
+    private static final class AuthorityIndex {
+
+        private final String generation;
+
+        private final List<GrantedAuthority> authorities;
+
+        private final Map<String, Integer> bits = new HashMap<>();
+
+        private final ConcurrentMap<Long, List<GrantedAuthority>> authoritiesByMask = new ConcurrentHashMap<>();
+
+        private final long loadedAt = System.currentTimeMillis();
+
+        private AuthorityIndex(String generation, List<GrantedAuthority> authorities) {
+            this.generation = generation;
+            this.authorities = authorities;
+            for (int bit = 0; bit < authorities.size(); bit++) {
+                bits.put(authorities.get(bit).getAuthority(), bit);
+            }
+        }
+
+        /**
+         * @return the encoded authorities, or {@code null} if one of them is not in the index.
+         */
+        private String encode(Collection<? extends GrantedAuthority> grantedAuthorities) {
+            long mask = 0;
+            for (GrantedAuthority grantedAuthority : grantedAuthorities) {
+                Integer bit = bits.get(grantedAuthority.getAuthority());
+                if (bit == null) {
+                    return null;
+                }
+                mask |= 1L << bit;
+            }
+            return generation + GENERATION_SEPARATOR + Long.toUnsignedString(mask, Character.MAX_RADIX);
+        }
+
+        private List<GrantedAuthority> decode(long mask) {
+            if (authorities.size() < Long.SIZE && mask >>> authorities.size() != 0) {
+                throw new MalformedJwtException("Unknown authority in the compact authorities claim");
+            }
+            return cached(authoritiesByMask, mask, this::select);
+        }
+
+        private List<GrantedAuthority> select(long mask) {
+            List<GrantedAuthority> selected = new ArrayList<>(Long.bitCount(mask));
+            for (int bit = 0; bit < authorities.size(); bit++) {
+                if ((mask & (1L << bit)) != 0) {
+                    selected.add(authorities.get(bit));
+                }
+            }
+            return Collections.unmodifiableList(selected);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.SignatureException;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Asymmetric keys used to sign and verify JWTs, indexed by their {@code kid} header.
+ * <p>
+ * All the public keys are decoded once, so that verifying a token only costs a map lookup on top of the signature
+ * check. Retired keys keep verifying the tokens they signed until those expire, which allows rotating the active key
+ * without downtime: publish the new public key to every node, then switch {@code active-key-id} on the issuing nodes,
+ * and remove the old key once the longest-lived token signed with it has expired. Nodes without the private key of
+ * the active key can only verify tokens.
+ */
+final class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private final SignatureAlgorithm algorithm;
+
+    private final String activeKeyId;
+
+    private final PrivateKey signingKey;
+
+    private final Map<String, PublicKey> verificationKeys;
+
+    private JwtKeyRing(SignatureAlgorithm algorithm, String activeKeyId, PrivateKey signingKey, Map<String, PublicKey> verificationKeys) {
+        this.algorithm = algorithm;
+        this.activeKeyId = activeKeyId;
+        this.signingKey = signingKey;
+        this.verificationKeys = verificationKeys;
+    }
+
+    static JwtKeyRing of(SignatureAlgorithm algorithm, ApplicationProperties.Security.Jwt jwt) {
+        if (!algorithm.isEllipticCurve() && !algorithm.isRsa()) {
+            throw new IllegalArgumentException("A key ring needs an asymmetric signing algorithm, not " + algorithm);
+        }
+        String keyAlgorithm = algorithm.isRsa() ? "RSA" : "EC";
+        Map<String, PublicKey> verificationKeys = new HashMap<>();
+        PrivateKey signingKey = null;
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+            for (ApplicationProperties.Security.Jwt.Key key : jwt.getKeys()) {
+                if (ObjectUtils.isEmpty(key.getId()) || ObjectUtils.isEmpty(key.getPublicKey())) {
+                    throw new IllegalArgumentException("Every JWT key needs an id and a public key");
+                }
+                verificationKeys.put(key.getId(), keyFactory.generatePublic(new X509EncodedKeySpec(decode(key.getPublicKey()))));
+                if (key.getId().equals(jwt.getActiveKeyId()) && !ObjectUtils.isEmpty(key.getPrivateKey())) {
+                    signingKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decode(key.getPrivateKey())));
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid JWT key for " + algorithm, e);
+        }
+        if (verificationKeys.isEmpty()) {
+            throw new IllegalArgumentException("No JWT key is configured for " + algorithm);
+        }
+        return new JwtKeyRing(algorithm, jwt.getActiveKeyId(), signingKey, Collections.unmodifiableMap(verificationKeys));
+    }
+
+    SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * @return the private key of the active key, or {@code null} on nodes that only verify tokens.
+     */
+    PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return resolveVerificationKey(header);
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, String plaintext) {
+        return resolveVerificationKey(header);
+    }
+
+    private Key resolveVerificationKey(JwsHeader header) {
+        if (!algorithm.getValue().equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Unexpected JWT signing algorithm " + header.getAlgorithm());
+        }
+        String keyId = header.getKeyId();
+        PublicKey key = keyId == null ? null : verificationKeys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("Unknown JWT key id " + keyId);
+        }
+        return key;
+    }
+
+    private static byte[] decode(String key) {
+        return Decoders.BASE64.decode(key.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", ""));
+    }
+}
@@ -0,0 +1,210 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.domain.RefreshToken;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.RefreshTokenRepository;
+import com.sturdy.alterra.repository.UserRepository;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Issue and rotate the refresh tokens, exchanged for new access tokens without checking the password again.
+ * <p>
+ * A refresh token is 256 random bits, only their SHA-256 hash is stored: unlike a password, such a token cannot be
+ * brute-forced, so a single fast hash is enough. Every refresh replaces the token by a new one of the same family, and
+ * presenting an already used token revokes the whole family, as it was either stolen or replayed.
+ */
+@Component
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final String INVALID_REFRESH_TOKEN = "Invalid refresh token";
+
+    private final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final UserRepository userRepository;
+
+    private final ApplicationProperties.Security.RefreshToken properties;
+
+    public RefreshTokenService(
+        RefreshTokenRepository refreshTokenRepository,
+        UserRepository userRepository,
+        ApplicationProperties applicationProperties
+    ) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.properties = applicationProperties.getSecurity().getRefreshToken();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Issue the first refresh token of a new family, after the user authenticated with their password.
+     *
+     * @param login the login of the authenticated user.
+     * @param rememberMe whether the family lasts {@code token-validity-for-remember-me} instead of {@code token-validity}.
+     * @return the refresh token to give to the client.
+     */
+    @Transactional
+    public String createRefreshToken(String login, boolean rememberMe) {
+        User user = userRepository
+            .findOneByLogin(login)
+            .orElseThrow(() -> new IllegalStateException("User " + login + " was not found in the database"));
+        Duration validity = rememberMe ? properties.getTokenValidityForRememberMe() : properties.getTokenValidity();
+        Instant now = Instant.now();
+        return save(user, UUID.randomUUID().toString(), now, now.plus(validity));
+    }
+
+    /**
+     * Exchange a refresh token for a new one of the same family.
+     *
+     * @param refreshToken the refresh token given by the client.
+     * @return the new refresh token, and the authentication of its user to issue the access token with.
+     * @throws BadCredentialsException if the refresh flow is disabled, or if the token is unknown, expired or was
+     * already used, or its user was deactivated.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public RotatedRefreshToken rotate(String refreshToken) {
+        if (!properties.isEnabled()) {
+            throw new BadCredentialsException(INVALID_REFRESH_TOKEN);
+        }
+        RefreshToken current = refreshTokenRepository
+            .findOneForUpdateByTokenHash(hash(refreshToken))
+            .orElseThrow(() -> new BadCredentialsException(INVALID_REFRESH_TOKEN));
+        Instant now = Instant.now();
+        if (!now.isBefore(current.getExpiresAt())) {
+            throw new BadCredentialsException(INVALID_REFRESH_TOKEN);
+        }
+        User user = current.getUser();
+        if (current.getUsedDate() != null) {
+            log.warn("Refresh token of user {} was used twice, revoking its family {}", user.getLogin(), current.getFamilyId());
+            refreshTokenRepository.deleteAllByFamilyId(current.getFamilyId());
+            throw new BadCredentialsException(INVALID_REFRESH_TOKEN);
+        }
+        if (!user.isActivated()) {
+            refreshTokenRepository.deleteAllByFamilyId(current.getFamilyId());
+            throw new BadCredentialsException(INVALID_REFRESH_TOKEN);
+        }
+        current.setUsedDate(now);
+
+        List<GrantedAuthority> authorities = user
+            .getAuthorities()
+            .stream()
+            .map(Authority::getName)
+            .map(SimpleGrantedAuthority::new)
+            .collect(Collectors.toList());
+        Authentication authentication = new UsernamePasswordAuthenticationToken(user.getLogin(), null, authorities);
+        return new RotatedRefreshToken(save(user, current.getFamilyId(), now, current.getExpiresAt()), authentication);
+    }
+
+    /**
+     * Revoke the family of a refresh token, on logout.
+     *
+     * @param refreshToken the refresh token given by the client.
+     */
+    @Transactional
+    public void revokeRefreshToken(String refreshToken) {
+        refreshTokenRepository
+            .findOneByTokenHash(hash(refreshToken))
+            .ifPresent(token -> refreshTokenRepository.deleteAllByFamilyId(token.getFamilyId()));
+    }
+
+    /**
+     * Revoke every refresh token of a user, whose password changed: the sessions opened with the previous password
+     * cannot be renewed anymore.
+     *
+     * @param user the user whose password changed.
+     */
+    @Transactional
+    public void revokeAll(User user) {
+        int revoked = refreshTokenRepository.deleteAllByUser(user);
+        log.debug("Revoked {} refresh tokens of user {}", revoked, user.getLogin());
+    }
+
+    /**
+     * Expired refresh tokens should be automatically deleted.
+     * <p>
+     * This is scheduled to get fired everyday, at 01:30 (am).
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    @Transactional
+    public void removeExpiredRefreshTokens() {
+        int removed = refreshTokenRepository.deleteAllByExpiresAtBefore(Instant.now());
+        log.debug("Deleted {} expired refresh tokens", removed);
+    }
+
+    private String save(User user, String familyId, Instant now, Instant expiresAt) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = ENCODER.encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setUser(user);
+        refreshToken.setCreatedDate(now);
+        refreshToken.setExpiresAt(expiresAt);
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    static String hash(String token) {
+        try {
+            return ENCODER.encodeToString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Result of a rotation: the new refresh token, and the authentication to issue the new access token with.
+     */
+    public static class RotatedRefreshToken {
+
+        private final String refreshToken;
+
+        private final Authentication authentication;
+
+        RotatedRefreshToken(String refreshToken, Authentication authentication) {
+            this.refreshToken = refreshToken;
+            this.authentication = authentication;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+
+        public Authentication getAuthentication() {
+            return authentication;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.management.SecurityMetersService;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the authentications built from already verified JWTs.
+ * <p>
+ * Entries are keyed by a SHA-256 digest of the token, so that raw bearer tokens are not kept in memory, and never
+ * outlive the {@code exp} claim of their token: the backing cache expires them and {@link #get(String)} checks the
+ * expiration again before serving an entry, as well as the {@link TokenRevocationList}. If the
+ * {@link #AUTHENTICATIONS_BY_TOKEN_CACHE} cache is not configured, every lookup is a pass-through.
+ */
+@Component
+public class TokenAuthenticationCache {
+
+    public static final String AUTHENTICATIONS_BY_TOKEN_CACHE = "authenticationsByToken";
+
+    private final Cache cache;
+
+    private final SecurityMetersService securityMetersService;
+
+    private final TokenRevocationList tokenRevocationList;
+
+    public TokenAuthenticationCache(
+        CacheManager cacheManager,
+        SecurityMetersService securityMetersService,
+        TokenRevocationList tokenRevocationList
+    ) {
+        this.cache = cacheManager.getCache(AUTHENTICATIONS_BY_TOKEN_CACHE);
+        this.securityMetersService = securityMetersService;
+        this.tokenRevocationList = tokenRevocationList;
+    }
+
+    public Optional<Authentication> get(String token) {
+        if (cache == null) {
+            return Optional.empty();
+        }
+        String key = digest(token);
+        CachedAuthentication cached = cache.get(key, CachedAuthentication.class);
+        if (cached == null || cached.isExpired(System.currentTimeMillis()) || tokenRevocationList.isRevoked(cached.getTokenId())) {
+            if (cached != null) {
+                cache.evict(key);
+            }
+            this.securityMetersService.trackTokenCacheMiss();
+            return Optional.empty();
+        }
+        this.securityMetersService.trackTokenCacheHit();
+        User principal = cached.getPrincipal();
+        return Optional.of(new UsernamePasswordAuthenticationToken(principal, token, principal.getAuthorities()));
+    }
+
+    public void put(String token, User principal, String tokenId, Date expiration) {
+        if (cache == null || expiration == null) {
+            return;
+        }
+        cache.put(digest(token), new CachedAuthentication(principal, tokenId, expiration.getTime()));
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Principal of a verified token, along with the token id and expiration.
+     */
+    public static final class CachedAuthentication implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final User principal;
+
+        private final String tokenId;
+
+        private final long expiresAt;
+
+        CachedAuthentication(User principal, String tokenId, long expiresAt) {
+            this.principal = principal;
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+        }
+
+        public User getPrincipal() {
+            return principal;
+        }
+
+        public String getTokenId() {
+            return tokenId;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
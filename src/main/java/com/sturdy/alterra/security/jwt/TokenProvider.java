@@ -1,5 +1,6 @@
 package com.sturdy.alterra.security.jwt;
 
+import com.sturdy.alterra.config.ApplicationProperties;
 import com.sturdy.alterra.management.SecurityMetersService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
@@ -8,13 +9,11 @@ import io.jsonwebtoken.security.SignatureException;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.*;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
@@ -25,102 +24,206 @@ public class TokenProvider {
 
     private final Logger log = LoggerFactory.getLogger(TokenProvider.class);
 
-    private static final String AUTHORITIES_KEY = "auth";
-
     private static final String INVALID_JWT_TOKEN = "Invalid JWT token.";
 
     private final Key key;
 
+    private final String keyId;
+
+    private final SignatureAlgorithm signatureAlgorithm;
+
     private final JwtParser jwtParser;
 
     private final long tokenValidityInMilliseconds;
 
     private final long tokenValidityInMillisecondsForRememberMe;
 
+    private final long accessTokenValidityInMilliseconds;
+
     private final SecurityMetersService securityMetersService;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties, SecurityMetersService securityMetersService) {
-        byte[] keyBytes;
-        String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret();
-        if (!ObjectUtils.isEmpty(secret)) {
-            log.debug("Using a Base64-encoded JWT secret key");
-            keyBytes = Decoders.BASE64.decode(secret);
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+
+    private final JwtAuthorityCodec jwtAuthorityCodec;
+
+    private final TokenRevocationList tokenRevocationList;
+
+    public TokenProvider(
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
+        SecurityMetersService securityMetersService,
+        TokenAuthenticationCache tokenAuthenticationCache,
+        JwtAuthorityCodec jwtAuthorityCodec,
+        TokenRevocationList tokenRevocationList
+    ) {
+        ApplicationProperties.Security.Jwt jwt = applicationProperties.getSecurity().getJwt();
+        signatureAlgorithm = SignatureAlgorithm.forName(jwt.getSigningAlgorithm());
+        if (signatureAlgorithm.isHmac()) {
+            byte[] keyBytes;
+            String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret();
+            if (!ObjectUtils.isEmpty(secret)) {
+                log.debug("Using a Base64-encoded JWT secret key");
+                keyBytes = Decoders.BASE64.decode(secret);
+            } else {
+                log.warn(
+                    "Warning: the JWT key used is not Base64-encoded. " +
+                    "We recommend using the `jhipster.security.authentication.jwt.base64-secret` key for optimum security."
+                );
+                secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getSecret();
+                keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            }
+            key = Keys.hmacShaKeyFor(keyBytes);
+            keyId = null;
+            jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
         } else {
-            log.warn(
-                "Warning: the JWT key used is not Base64-encoded. " +
-                "We recommend using the `jhipster.security.authentication.jwt.base64-secret` key for optimum security."
-            );
-            secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getSecret();
-            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            JwtKeyRing keyRing = JwtKeyRing.of(signatureAlgorithm, jwt);
+            log.debug("Using the {} JWT key ring, with active key {}", signatureAlgorithm, keyRing.getActiveKeyId());
+            if (keyRing.getSigningKey() == null) {
+                log.warn("No private key is configured for the active JWT key, this node can only verify tokens");
+            }
+            key = keyRing.getSigningKey();
+            keyId = keyRing.getActiveKeyId();
+            jwtParser = Jwts.parserBuilder().setSigningKeyResolver(keyRing).build();
         }
-        key = Keys.hmacShaKeyFor(keyBytes);
-        jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
         this.tokenValidityInMilliseconds = 1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds();
         this.tokenValidityInMillisecondsForRememberMe =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
+        this.accessTokenValidityInMilliseconds = applicationProperties.getSecurity().getRefreshToken().getAccessTokenValidity().toMillis();
 
         this.securityMetersService = securityMetersService;
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.jwtAuthorityCodec = jwtAuthorityCodec;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
-        String authorities = authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.joining(","));
-
-        long now = (new Date()).getTime();
-        Date validity;
         if (rememberMe) {
-            validity = new Date(now + this.tokenValidityInMillisecondsForRememberMe);
+            return createToken(authentication, this.tokenValidityInMillisecondsForRememberMe);
         } else {
-            validity = new Date(now + this.tokenValidityInMilliseconds);
+            return createToken(authentication, this.tokenValidityInMilliseconds);
+        }
+    }
+
+    /**
+     * Create a short-lived access token, issued along with a refresh token.
+     *
+     * @param authentication the authentication of the user.
+     * @return a JWT lasting {@code application.security.refresh-token.access-token-validity}.
+     */
+    public String createAccessToken(Authentication authentication) {
+        return createToken(authentication, this.accessTokenValidityInMilliseconds);
+    }
+
+    private String createToken(Authentication authentication, long validityInMilliseconds) {
+        if (key == null) {
+            throw new IllegalStateException("No private key is configured for the active JWT key");
         }
+        Date validity = new Date((new Date()).getTime() + validityInMilliseconds);
 
-        return Jwts
-            .builder()
-            .setSubject(authentication.getName())
-            .claim(AUTHORITIES_KEY, authorities)
-            .signWith(key, SignatureAlgorithm.HS512)
-            .setExpiration(validity)
-            .compact();
+        JwtBuilder builder = Jwts.builder();
+        if (keyId != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, keyId);
+        }
+        builder.setId(UUID.randomUUID().toString()).setSubject(authentication.getName());
+        jwtAuthorityCodec.encode(builder, authentication.getAuthorities());
+        return builder.signWith(key, signatureAlgorithm).setExpiration(validity).compact();
     }
 
     public Authentication getAuthentication(String token) {
         Claims claims = jwtParser.parseClaimsJws(token).getBody();
 
-        Collection<? extends GrantedAuthority> authorities = Arrays
-            .stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-            .filter(auth -> !auth.trim().isEmpty())
-            .map(SimpleGrantedAuthority::new)
-            .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
+        return createAuthentication(claims, token);
+    }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    /**
+     * Get the authentication of an already verified token, without parsing it again.
+     *
+     * @param token the JWT.
+     * @return the cached authentication, or empty if the token was not verified recently or has expired or been revoked
+     * since.
+     */
+    public Optional<Authentication> getCachedAuthentication(String token) {
+        return tokenAuthenticationCache.get(token);
     }
 
     public boolean validateToken(String authToken) {
+        return validate(authToken).isValid();
+    }
+
+    /**
+     * Verify a token and build its authentication from a single parse.
+     * <p>
+     * This replaces a {@link #validateToken(String)} call followed by {@link #getAuthentication(String)}, which parses
+     * and verifies the token twice.
+     *
+     * @param authToken the JWT.
+     * @return the parsed claims and authentication if the token is valid, or the cause of the failure.
+     */
+    public TokenValidationResult validate(String authToken) {
         try {
-            jwtParser.parseClaimsJws(authToken);
+            Claims claims = jwtParser.parseClaimsJws(authToken).getBody();
+            if (tokenRevocationList.isRevoked(claims.getId())) {
+                this.securityMetersService.trackTokenRevoked();
+
+                log.trace("Revoked JWT token {}", claims.getId());
+                return TokenValidationResult.invalid(TokenValidationResult.FailureCause.REVOKED);
+            }
 
-            return true;
+            return TokenValidationResult.valid(claims, createAuthentication(claims, authToken));
         } catch (ExpiredJwtException e) {
             this.securityMetersService.trackTokenExpired();
 
             log.trace(INVALID_JWT_TOKEN, e);
+            return TokenValidationResult.invalid(TokenValidationResult.FailureCause.EXPIRED);
         } catch (UnsupportedJwtException e) {
             this.securityMetersService.trackTokenUnsupported();
 
             log.trace(INVALID_JWT_TOKEN, e);
+            return TokenValidationResult.invalid(TokenValidationResult.FailureCause.UNSUPPORTED);
         } catch (MalformedJwtException e) {
             this.securityMetersService.trackTokenMalformed();
 
             log.trace(INVALID_JWT_TOKEN, e);
+            return TokenValidationResult.invalid(TokenValidationResult.FailureCause.MALFORMED);
         } catch (SignatureException e) {
             this.securityMetersService.trackTokenInvalidSignature();
 
             log.trace(INVALID_JWT_TOKEN, e);
+            return TokenValidationResult.invalid(TokenValidationResult.FailureCause.INVALID_SIGNATURE);
         } catch (IllegalArgumentException e) { // TODO: should we let it bubble (no catch), to avoid defensive programming and follow the fail-fast principle?
             log.error("Token validation error {}", e.getMessage());
+            return TokenValidationResult.invalid(TokenValidationResult.FailureCause.INVALID);
+        }
+    }
+
+    /**
+     * Revoke a token, on every node, until it expires.
+     * <p>
+     * Tokens issued without a {@code jti} claim cannot be revoked, and invalid tokens do not need to be.
+     *
+     * @param token the JWT.
+     */
+    public void revokeToken(String token) {
+        Claims claims;
+        try {
+            claims = jwtParser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.trace("Not revoking an invalid JWT token", e);
+            return;
+        }
+        if (claims.getId() == null) {
+            log.debug("JWT token of user {} has no id and cannot be revoked", claims.getSubject());
+            return;
         }
+        tokenRevocationList.revoke(claims.getId(), claims.getSubject(), claims.getExpiration().toInstant());
+    }
+
+    private Authentication createAuthentication(Claims claims, String token) {
+        Collection<GrantedAuthority> authorities = jwtAuthorityCodec.decode(claims);
 
-        return false;
+        User principal = new User(claims.getSubject(), "", authorities);
+        tokenAuthenticationCache.put(token, principal, claims.getId(), claims.getExpiration());
+
+        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 }
@@ -0,0 +1,199 @@
+package com.sturdy.alterra.security.jwt;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.RevokedToken;
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.RevokedTokenRepository;
+import com.sturdy.alterra.security.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Revocation list of the JWTs, identified by their {@code jti} claim.
+ * <p>
+ * Revocations are stored in the {@code jhi_revoked_token} table, and every node holds a {@link BloomFilter} of
+ * them: the common case of a token that was never revoked is answered by the filter alone, without a database
+ * round-trip. Only the ids the filter might contain are checked against the table, and the false positives found this
+ * way are remembered until the next rebuild.
+ * <p>
+ * The filter is synchronized with the table every {@code application.security.token-revocation.sync-interval}, which
+ * bounds the delay for a revocation made on another node to be enforced. Until the first synchronization, every lookup
+ * goes to the database.
+ */
+@Component
+public class TokenRevocationList implements SchedulingConfigurer {
+
+    public static final String FILTER_METER_NAME = "security.authentication.revocation-filter";
+
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private static final int MAX_FALSE_POSITIVES = 10000;
+
+    private final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private final SecurityMetersService securityMetersService;
+
+    private final ApplicationProperties.Security.TokenRevocation properties;
+
+    private final Set<String> falsePositives = ConcurrentHashMap.newKeySet();
+
+    private volatile BloomFilter filter;
+
+    private volatile Instant lastSync;
+
+    private volatile Instant lastRebuild;
+
+    public TokenRevocationList(
+        RevokedTokenRepository revokedTokenRepository,
+        SecurityMetersService securityMetersService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.securityMetersService = securityMetersService;
+        this.properties = applicationProperties.getSecurity().getTokenRevocation();
+        registerFilterGauge(meterRegistry, "size", "bits", "Size of the revocation Bloom filter.", BloomFilter::getBitCount);
+        registerFilterGauge(
+            meterRegistry,
+            "ids",
+            "ids",
+            "Token ids held by the revocation Bloom filter.",
+            BloomFilter::getInsertions
+        );
+        registerFilterGauge(
+            meterRegistry,
+            "false-positive-rate",
+            null,
+            "Expected false-positive rate of the revocation Bloom filter.",
+            BloomFilter::getExpectedFalsePositiveRate
+        );
+    }
+
+    private void registerFilterGauge(
+        MeterRegistry meterRegistry,
+        String name,
+        String baseUnit,
+        String description,
+        ToDoubleFunction<BloomFilter> value
+    ) {
+        Gauge
+            .builder(FILTER_METER_NAME + "." + name, this, revocationList -> {
+                BloomFilter current = revocationList.filter;
+                return current == null ? Double.NaN : value.applyAsDouble(current);
+            })
+            .baseUnit(baseUnit)
+            .description(description)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::sync, properties.getSyncInterval().toMillis());
+    }
+
+    /**
+     * Check whether a token was revoked.
+     *
+     * @param tokenId the {@code jti} claim of the token, tokens without one cannot be revoked.
+     * @return {@code true} if the token was revoked.
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            if (!current.mightContain(tokenId)) {
+                this.securityMetersService.trackRevocationLookupAbsent();
+                return false;
+            }
+            if (falsePositives.contains(tokenId)) {
+                this.securityMetersService.trackRevocationLookupFalsePositive();
+                return false;
+            }
+        }
+        if (revokedTokenRepository.existsById(tokenId)) {
+            this.securityMetersService.trackRevocationLookupRevoked();
+            return true;
+        }
+        if (current != null) {
+            this.securityMetersService.trackRevocationLookupFalsePositive();
+            if (falsePositives.size() < MAX_FALSE_POSITIVES) {
+                falsePositives.add(tokenId);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param tokenId the {@code jti} claim of the token.
+     * @param login the subject of the token.
+     * @param expiresAt the expiration of the token.
+     */
+    public void revoke(String tokenId, String login, Instant expiresAt) {
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setTokenId(tokenId);
+        revokedToken.setLogin(login);
+        revokedToken.setExpiresAt(expiresAt);
+        revokedToken.setRevokedAt(Instant.now());
+        revokedTokenRepository.save(revokedToken);
+        log.debug("Revoked token {} of user {}", tokenId, login);
+
+        falsePositives.remove(tokenId);
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(tokenId);
+        }
+    }
+
+    /**
+     * Add the revocations made on other nodes since the last synchronization to the filter, or rebuild it from the
+     * table once it is due or holds more ids than it was sized for.
+     */
+    public void sync() {
+        Instant now = Instant.now();
+        BloomFilter current = filter;
+        if (
+            current == null ||
+            current.getInsertions() > current.getCapacity() ||
+            !now.isBefore(lastRebuild.plus(properties.getRebuildInterval()))
+        ) {
+            rebuild(now);
+            return;
+        }
+        // Revocations are timestamped by the node that made them, look back far enough to absorb clock skew
+        List<String> tokenIds = revokedTokenRepository.findAllTokenIdsByRevokedAtAfter(lastSync.minus(CLOCK_SKEW), now);
+        tokenIds.forEach(current::put);
+        lastSync = now;
+    }
+
+    private void rebuild(Instant now) {
+        int purged = revokedTokenRepository.deleteAllByExpiresAtBefore(now);
+        List<String> tokenIds = revokedTokenRepository.findAllTokenIdsByExpiresAtAfter(now);
+        BloomFilter rebuilt = BloomFilter.create(
+            Math.max(properties.getExpectedRevocations(), 2L * tokenIds.size()),
+            properties.getFalsePositiveRate()
+        );
+        tokenIds.forEach(rebuilt::put);
+        falsePositives.clear();
+        lastSync = now;
+        lastRebuild = now;
+        filter = rebuilt;
+        log.debug("Rebuilt the token revocation filter with {} ids, purged {} expired ones", tokenIds.size(), purged);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sturdy.alterra.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import java.util.Optional;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Outcome of a single parse and signature check of a JWT.
+ * <p>
+ * A valid result carries the parsed {@link Claims} and the {@link Authentication} built from them, an invalid one
+ * carries the reason why the token was rejected.
+ */
+public final class TokenValidationResult {
+
+    /**
+     * Reasons for rejecting a token, matching the causes tracked by the security meters.
+     */
+    public enum FailureCause {
+        EXPIRED,
+        UNSUPPORTED,
+        MALFORMED,
+        INVALID_SIGNATURE,
+        REVOKED,
+        INVALID,
+    }
+
+    private final Claims claims;
+
+    private final Authentication authentication;
+
+    private final FailureCause failureCause;
+
+    private TokenValidationResult(Claims claims, Authentication authentication, FailureCause failureCause) {
+        this.claims = claims;
+        this.authentication = authentication;
+        this.failureCause = failureCause;
+    }
+
+    static TokenValidationResult valid(Claims claims, Authentication authentication) {
+        return new TokenValidationResult(claims, authentication, null);
+    }
+
+    static TokenValidationResult invalid(FailureCause failureCause) {
+        return new TokenValidationResult(null, null, failureCause);
+    }
+
+    public boolean isValid() {
+        return failureCause == null;
+    }
+
+    public Optional<Claims> getClaims() {
+        return Optional.ofNullable(claims);
+    }
+
+    public Optional<Authentication> getAuthentication() {
+        return Optional.ofNullable(authentication);
+    }
+
+    public Optional<FailureCause> getFailureCause() {
+        return Optional.ofNullable(failureCause);
+    }
+}
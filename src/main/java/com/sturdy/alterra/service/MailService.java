@@ -2,6 +2,7 @@ package com.sturdy.alterra.service;
 
 import com.sturdy.alterra.domain.User;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Locale;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
@@ -104,6 +105,15 @@ public class MailService {
         sendEmailFromTemplate(user, "mail/creationEmail", "email.activation.title");
     }
 
+    /**
+     * Send the creation emails of many users one after the other, in a single task instead of a task per user.
+     */
+    @Async
+    public void sendCreationEmails(List<User> users) {
+        log.debug("Sending creation emails to {} users", users.size());
+        users.forEach(user -> sendEmailFromTemplate(user, "mail/creationEmail", "email.activation.title"));
+    }
+
     @Async
     public void sendPasswordResetMail(User user) {
         log.debug("Sending password reset email to '{}'", user.getEmail());
@@ -0,0 +1,335 @@
+package com.sturdy.alterra.service;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.config.Constants;
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.UserKeysetRepository;
+import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.repository.UserStreamRepository;
+import com.sturdy.alterra.repository.cache.CacheInvalidationBus;
+import com.sturdy.alterra.security.KnownUserFilter;
+import com.sturdy.alterra.service.dto.AdminUserDTO;
+import com.sturdy.alterra.service.dto.UserImportResultDTO;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.jhipster.security.RandomUtil;
+
+/**
+ * Service for importing and exporting many users at once.
+ * <p>
+ * The users are imported and exported in batches of {@code application.users.bulk.batch-size}, each in a transaction of
+ * its own unless this is called within one, so that neither the users read nor the locks held add up over the
+ * thousands of users of a bulk import or export.
+ */
+@Service
+public class UserBulkService {
+
+    private final Logger log = LoggerFactory.getLogger(UserBulkService.class);
+
+    private final UserRepository userRepository;
+
+    private final UserKeysetRepository userKeysetRepository;
+
+    private final UserStreamRepository userStreamRepository;
+
+    private final AuthorityRepository authorityRepository;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final KnownUserFilter knownUserFilter;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final int batchSize;
+
+    public UserBulkService(
+        UserRepository userRepository,
+        UserKeysetRepository userKeysetRepository,
+        UserStreamRepository userStreamRepository,
+        AuthorityRepository authorityRepository,
+        PasswordEncoder passwordEncoder,
+        CacheInvalidationBus cacheInvalidationBus,
+        KnownUserFilter knownUserFilter,
+        Validator validator,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.userRepository = userRepository;
+        this.userKeysetRepository = userKeysetRepository;
+        this.userStreamRepository = userStreamRepository;
+        this.authorityRepository = authorityRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.knownUserFilter = knownUserFilter;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.batchSize = Math.max(1, applicationProperties.getUsers().getBulk().getBatchSize());
+    }
+
+    /**
+     * Create the given users, as {@link UserService#createUser(AdminUserDTO)} does: activated, with the authorities
+     * which exist, and a reset key for them to choose their password. Their ids, activation and audit fields are ignored.
+     * <p>
+     * Each batch checks the logins and emails of all its users with one query each, and inserts them with JDBC batches.
+     * The users of a batch share the hash of a random password nobody knows, hashed once instead of once per user.
+     *
+     * @param users the users to create, whose {@link Iterator#next()} throws an {@link IllegalArgumentException} for a
+     *              row which cannot be read.
+     * @param results receives the result of each row, in order, once the batch of the row is committed.
+     * @param created receives the users created by each batch, once it is committed, for their creation emails.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void importUsers(Iterator<AdminUserDTO> users, Consumer<UserImportResultDTO> results, Consumer<List<User>> created) {
+        Map<String, Authority> authorities = authorityRepository
+            .findAll()
+            .stream()
+            .collect(Collectors.toMap(Authority::getName, Function.identity()));
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        long row = 0;
+        long createdUsers = 0;
+        while (users.hasNext()) {
+            row++;
+            ImportRow importRow;
+            try {
+                importRow = new ImportRow(row, users.next());
+            } catch (IllegalArgumentException e) {
+                importRow = new ImportRow(row, null);
+                importRow.reject(Objects.requireNonNullElse(e.getMessage(), "Unreadable row"));
+            }
+            batch.add(importRow);
+            if (batch.size() == batchSize || !users.hasNext()) {
+                List<User> batchUsers = importUsers(batch, authorities);
+                batch.forEach(r -> results.accept(r.toResult()));
+                if (!batchUsers.isEmpty()) {
+                    created.accept(batchUsers);
+                }
+                createdUsers += batchUsers.size();
+                batch.clear();
+            }
+        }
+        log.info("Imported {} users out of {}", createdUsers, row);
+    }
+
+    /**
+     * Read all the users, by id, a batch at a time.
+     * <p>
+     * The users of a batch are handed out once its transaction is over, so that no connection is held while they are
+     * written to a slow client.
+     *
+     * @param users receives each user.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void exportUsers(Consumer<AdminUserDTO> users) {
+        Long lastId = null;
+        List<AdminUserDTO> batch;
+        do {
+            Long afterId = lastId;
+            batch =
+                readOnlyTransactionTemplate.execute(status ->
+                    userKeysetRepository
+                        .findAllAfter(false, Sort.Order.asc("id"), afterId, afterId, batchSize)
+                        .stream()
+                        .map(AdminUserDTO::new)
+                        .collect(Collectors.toList())
+                );
+            batch.forEach(users);
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    /**
+     * Read all the users, by id, with a forward-only cursor over a single read-only transaction, which fetches a batch
+     * of users at a time.
+     * <p>
+     * Unlike {@link #exportUsers(Consumer)}, the users are a consistent snapshot, handed out as they are read: the
+     * connection is held until the last one is consumed. The authorities of each batch are read with a query, and the
+     * batch is then detached, so that neither the persistence context nor the second level cache grow with the users.
+     *
+     * @param users receives each user.
+     */
+    @Transactional(readOnly = true)
+    public void streamUsers(Consumer<AdminUserDTO> users) {
+        try (Stream<User> stream = userStreamRepository.streamAllByOrderById(batchSize)) {
+            Iterator<User> iterator = stream.iterator();
+            List<User> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    Map<Long, Set<String>> authorities = userStreamRepository.findAuthorityNamesByUserIdIn(
+                        batch.stream().map(User::getId).collect(Collectors.toList())
+                    );
+                    batch.forEach(user -> users.accept(new AdminUserDTO(user, authorities.getOrDefault(user.getId(), Set.of()))));
+                    userStreamRepository.detachAll(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the valid users of a batch of rows, and reject the others.
+     *
+     * @return the users created.
+     */
+    private List<User> importUsers(List<ImportRow> rows, Map<String, Authority> authorities) {
+        Set<String> logins = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportRow row : rows) {
+            if (row.isRejected()) {
+                continue;
+            }
+            Set<ConstraintViolation<AdminUserDTO>> violations = validator.validate(row.user);
+            if (!violations.isEmpty()) {
+                row.reject(
+                    violations.stream().map(v -> v.getPropertyPath() + " " + v.getMessage()).sorted().collect(Collectors.joining(", "))
+                );
+            } else if (!logins.add(row.getLogin())) {
+                row.reject(new UsernameAlreadyUsedException().getMessage());
+            } else if (row.getUpperEmail() != null && !emails.add(row.getUpperEmail())) {
+                row.reject(new EmailAlreadyUsedException().getMessage());
+            }
+        }
+        if (logins.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return transactionTemplate.execute(status -> createUsers(rows, logins, emails, authorities));
+        } catch (DataIntegrityViolationException e) {
+            // A user created meanwhile, by another import or on its own
+            log.warn("Could not import a batch of users: {}", e.getMessage());
+            rows.stream().filter(row -> !row.isRejected()).forEach(row -> row.reject("Login name or email already used!"));
+            return List.of();
+        }
+    }
+
+    private List<User> createUsers(List<ImportRow> rows, Set<String> logins, Set<String> emails, Map<String, Authority> authorities) {
+        Set<String> usedLogins = new HashSet<>(userRepository.findAllLoginsByLoginIn(logins));
+        Set<String> usedEmails = new HashSet<>();
+        if (!emails.isEmpty()) {
+            usedEmails.addAll(userRepository.findAllUpperEmailsByUpperEmailIn(emails));
+        }
+        String encryptedPassword = null;
+        List<User> users = new ArrayList<>();
+        for (ImportRow row : rows) {
+            if (row.isRejected()) {
+                continue;
+            }
+            if (usedLogins.contains(row.getLogin())) {
+                row.reject(new UsernameAlreadyUsedException().getMessage());
+                continue;
+            }
+            if (row.getUpperEmail() != null && usedEmails.contains(row.getUpperEmail())) {
+                row.reject(new EmailAlreadyUsedException().getMessage());
+                continue;
+            }
+            if (encryptedPassword == null) {
+                encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
+            }
+            users.add(newUser(row.user, encryptedPassword, authorities));
+        }
+        if (users.isEmpty()) {
+            return users;
+        }
+        userRepository.saveAll(users);
+        users.forEach(knownUserFilter::add);
+        cacheInvalidationBus.evictAll(UserRepository.USERS_BY_LOGIN_CACHE, users.stream().map(User::getLogin).collect(Collectors.toList()));
+        cacheInvalidationBus.evictAll(
+            UserRepository.USERS_BY_EMAIL_CACHE,
+            users.stream().map(User::getEmail).filter(Objects::nonNull).collect(Collectors.toList())
+        );
+        log.debug("Created Information for {} Users", users.size());
+        return users;
+    }
+
+    private static User newUser(AdminUserDTO userDTO, String encryptedPassword, Map<String, Authority> authorities) {
+        User user = new User();
+        user.setLogin(userDTO.getLogin().toLowerCase());
+        user.setFirstName(userDTO.getFirstName());
+        user.setLastName(userDTO.getLastName());
+        if (userDTO.getEmail() != null) {
+            user.setEmail(userDTO.getEmail().toLowerCase());
+        }
+        user.setImageUrl(userDTO.getImageUrl());
+        if (userDTO.getLangKey() == null) {
+            user.setLangKey(Constants.DEFAULT_LANGUAGE); // default language
+        } else {
+            user.setLangKey(userDTO.getLangKey());
+        }
+        user.setPassword(encryptedPassword);
+        user.setResetKey(RandomUtil.generateResetKey());
+        user.setResetDate(Instant.now());
+        user.setActivated(true);
+        if (userDTO.getAuthorities() != null) {
+            user.setAuthorities(
+                userDTO.getAuthorities().stream().map(authorities::get).filter(Objects::nonNull).collect(Collectors.toSet())
+            );
+        }
+        return user;
+    }
+
+    /**
+     * A row of an import, and why it was rejected, if it was.
+     */
+    private static final class ImportRow {
+
+        private final long row;
+
+        private final AdminUserDTO user;
+
+        private String rejection;
+
+        private ImportRow(long row, AdminUserDTO user) {
+            this.row = row;
+            this.user = user;
+        }
+
+        private String getLogin() {
+            return user.getLogin().toLowerCase();
+        }
+
+        private String getUpperEmail() {
+            return user.getEmail() == null ? null : user.getEmail().toUpperCase();
+        }
+
+        private boolean isRejected() {
+            return rejection != null;
+        }
+
+        private void reject(String message) {
+            this.rejection = message;
+        }
+
+        private UserImportResultDTO toResult() {
+            String login = user == null || user.getLogin() == null ? null : user.getLogin().toLowerCase();
+            return isRejected() ? UserImportResultDTO.rejected(row, login, rejection) : UserImportResultDTO.created(row, login);
+        }
+    }
+}
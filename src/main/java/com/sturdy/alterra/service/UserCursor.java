@@ -0,0 +1,145 @@
+package com.sturdy.alterra.service;
+
+import static java.util.Map.entry;
+
+import com.sturdy.alterra.domain.User;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.springframework.data.domain.Sort;
+
+/**
+ * The position of a page in the users ordered by one of their properties, for their keyset pagination: the order, and
+ * the id and sort value of the last user of the previous page.
+ * <p>
+ * Opaque to the clients, which get it as a token to send back for the next page: the order it holds makes a page
+ * follow the previous one even if the client sends another.
+ */
+public final class UserCursor {
+
+    private static final Map<String, Function<User, Object>> PROPERTIES = Map.ofEntries(
+        entry("id", User::getId),
+        entry("login", User::getLogin),
+        entry("firstName", User::getFirstName),
+        entry("lastName", User::getLastName),
+        entry("email", User::getEmail),
+        entry("activated", User::isActivated),
+        entry("langKey", User::getLangKey),
+        entry("createdBy", User::getCreatedBy),
+        entry("createdDate", User::getCreatedDate),
+        entry("lastModifiedBy", User::getLastModifiedBy),
+        entry("lastModifiedDate", User::getLastModifiedDate)
+    );
+
+    private final Sort.Order order;
+
+    private final Long lastId;
+
+    private final Object lastValue;
+
+    private UserCursor(Sort.Order order, Long lastId, Object lastValue) {
+        this.order = order;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    /**
+     * @param sort the order of the users, by id if unsorted.
+     * @return the cursor of the first page, unless the users are sorted by several or unknown properties.
+     */
+    public static Optional<UserCursor> first(Sort sort) {
+        if (sort.isUnsorted()) {
+            return Optional.of(new UserCursor(Sort.Order.asc("id"), null, null));
+        }
+        if (sort.stream().count() > 1) {
+            return Optional.empty();
+        }
+        Sort.Order order = sort.iterator().next();
+        if (!PROPERTIES.containsKey(order.getProperty())) {
+            return Optional.empty();
+        }
+        return Optional.of(new UserCursor(new Sort.Order(order.getDirection(), order.getProperty()), null, null));
+    }
+
+    /**
+     * @param token a token of {@link #toToken()}.
+     * @return the cursor of the token, unless it is not one.
+     */
+    public static Optional<UserCursor> ofToken(String token) {
+        String[] fields;
+        try {
+            fields = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(",", 4);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (fields.length != 4 || !PROPERTIES.containsKey(fields[0])) {
+            return Optional.empty();
+        }
+        try {
+            Sort.Order order = new Sort.Order(Sort.Direction.fromString(fields[1]), fields[0]);
+            Long lastId = fields[2].isEmpty() ? null : Long.valueOf(fields[2]);
+            Object lastValue = fields[3].isEmpty() ? null : parse(fields[0], fields[3].substring(1));
+            return Optional.of(new UserCursor(order, lastId, lastValue));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the cursor of the page following the given user, the last one of this page.
+     */
+    public UserCursor after(User user) {
+        return new UserCursor(order, user.getId(), PROPERTIES.get(order.getProperty()).apply(user));
+    }
+
+    public Sort.Order getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the id of the last user of the previous page, {@code null} for the first page.
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return the sort value of the last user of the previous page.
+     */
+    public Object getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * The sort property, direction, last id, and last value, which is prefixed so that an empty value is told apart
+     * from a {@code null} one.
+     */
+    public String toToken() {
+        String value = lastValue == null ? "" : "=" + lastValue;
+        String fields = order.getProperty() + "," + order.getDirection() + "," + (lastId == null ? "" : lastId) + "," + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fields.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object parse(String property, String value) {
+        switch (property) {
+            case "id":
+                return Long.valueOf(value);
+            case "activated":
+                return Boolean.valueOf(value);
+            case "createdDate":
+            case "lastModifiedDate":
+                return Instant.parse(value);
+            default:
+                return value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UserCursor{" + "order=" + order + ", lastId=" + lastId + "}";
+    }
+}
@@ -1,27 +1,45 @@
 package com.sturdy.alterra.service;
 
+import com.sturdy.alterra.config.ApplicationProperties;
 import com.sturdy.alterra.config.Constants;
 import com.sturdy.alterra.domain.Authority;
 import com.sturdy.alterra.domain.User;
 import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.UserBulkRepository;
+import com.sturdy.alterra.repository.UserKeysetRepository;
+import com.sturdy.alterra.repository.UserPrincipal;
+import com.sturdy.alterra.repository.UserPrincipalRepository;
 import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.repository.cache.CacheInvalidationBus;
 import com.sturdy.alterra.security.AuthoritiesConstants;
+import com.sturdy.alterra.security.KnownUserFilter;
 import com.sturdy.alterra.security.SecurityUtils;
+import com.sturdy.alterra.security.jwt.RefreshTokenService;
 import com.sturdy.alterra.service.dto.AdminUserDTO;
+import com.sturdy.alterra.service.dto.CursorPage;
 import com.sturdy.alterra.service.dto.UserDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import tech.jhipster.security.RandomUtil;
 
 /**
@@ -31,26 +49,78 @@ import tech.jhipster.security.RandomUtil;
 @Transactional
 public class UserService {
 
+    public static final String CLEANUP_METER_NAME = "users.cleanup";
+
     private final Logger log = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
 
+    private final UserPrincipalRepository userPrincipalRepository;
+
+    private final UserKeysetRepository userKeysetRepository;
+
     private final PasswordEncoder passwordEncoder;
 
     private final AuthorityRepository authorityRepository;
 
-    private final CacheManager cacheManager;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final KnownUserFilter knownUserFilter;
+
+    private final UserBulkRepository userBulkRepository;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int cleanupBatchSize;
+
+    private final Counter cleanupDeletedUsers;
+
+    private final Timer cleanupBatchTimer;
+
+    private final Timer cleanupTimer;
 
     public UserService(
         UserRepository userRepository,
+        UserPrincipalRepository userPrincipalRepository,
+        UserKeysetRepository userKeysetRepository,
         PasswordEncoder passwordEncoder,
         AuthorityRepository authorityRepository,
-        CacheManager cacheManager
+        CacheInvalidationBus cacheInvalidationBus,
+        KnownUserFilter knownUserFilter,
+        UserBulkRepository userBulkRepository,
+        RefreshTokenService refreshTokenService,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
     ) {
         this.userRepository = userRepository;
+        this.userPrincipalRepository = userPrincipalRepository;
+        this.userKeysetRepository = userKeysetRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
-        this.cacheManager = cacheManager;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.knownUserFilter = knownUserFilter;
+        this.userBulkRepository = userBulkRepository;
+        this.refreshTokenService = refreshTokenService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cleanupBatchSize = Math.max(1, applicationProperties.getUsers().getCleanup().getBatchSize());
+        this.cleanupDeletedUsers =
+            Counter
+                .builder(CLEANUP_METER_NAME + ".deleted")
+                .description("Not activated users deleted by the nightly cleanup.")
+                .register(meterRegistry);
+        this.cleanupBatchTimer =
+            Timer
+                .builder(CLEANUP_METER_NAME + ".batch")
+                .description("Duration of the transactions of the nightly cleanup, each deleting a batch of users.")
+                .register(meterRegistry);
+        this.cleanupTimer =
+            Timer
+                .builder(CLEANUP_METER_NAME)
+                .description("Duration of the nightly cleanup of the not activated users.")
+                .register(meterRegistry);
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -76,6 +146,7 @@ public class UserService {
                 user.setPassword(passwordEncoder.encode(newPassword));
                 user.setResetKey(null);
                 user.setResetDate(null);
+                refreshTokenService.revokeAll(user);
                 this.clearUserCaches(user);
                 return user;
             });
@@ -131,6 +202,7 @@ public class UserService {
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
         this.clearUserCaches(newUser);
+        knownUserFilter.add(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
     }
@@ -176,6 +248,7 @@ public class UserService {
         }
         userRepository.save(user);
         this.clearUserCaches(user);
+        knownUserFilter.add(user);
         log.debug("Created Information for User: {}", user);
         return user;
     }
@@ -212,6 +285,7 @@ public class UserService {
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
                 this.clearUserCaches(user);
+                knownUserFilter.add(user);
                 log.debug("Changed Information for User: {}", user);
                 return user;
             })
@@ -250,6 +324,7 @@ public class UserService {
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
                 this.clearUserCaches(user);
+                knownUserFilter.add(user);
                 log.debug("Changed Information for User: {}", user);
             });
     }
@@ -266,6 +341,7 @@ public class UserService {
                 }
                 String encryptedPassword = passwordEncoder.encode(newPassword);
                 user.setPassword(encryptedPassword);
+                refreshTokenService.revokeAll(user);
                 this.clearUserCaches(user);
                 log.debug("Changed password for User: {}", user);
             });
@@ -281,30 +357,125 @@ public class UserService {
         return userRepository.findAllByIdNotNullAndActivatedIsTrue(pageable).map(UserDTO::new);
     }
 
+    /**
+     * Page of the users, read with a keyset instead of an offset, see {@link UserCursor}.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<AdminUserDTO> getAllManagedUsers(UserCursor cursor, int size, CursorPage.Count count) {
+        return getUsersAfter(false, cursor, size, count, AdminUserDTO::new);
+    }
+
+    /**
+     * Page of the activated users, read with a keyset instead of an offset, see {@link UserCursor}.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserDTO> getAllPublicUsers(UserCursor cursor, int size, CursorPage.Count count) {
+        return getUsersAfter(true, cursor, size, count, UserDTO::new);
+    }
+
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
-        return userRepository.findOneWithAuthoritiesByLogin(login);
+        return findOneWithAuthoritiesByLogin(login);
     }
 
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthorities() {
-        return SecurityUtils.getCurrentUserLogin().flatMap(userRepository::findOneWithAuthoritiesByLogin);
+        return SecurityUtils.getCurrentUserLogin().flatMap(this::findOneWithAuthoritiesByLogin);
+    }
+
+    /**
+     * @return the version of the user, from its cached principal.
+     * @see UserPrincipal#version(Long, java.time.Instant, Set)
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getUserVersionByLogin(String login) {
+        return userPrincipalRepository.findOneByLogin(login).map(UserPrincipal::getVersion);
+    }
+
+    /**
+     * @return the version of the current user, from its cached principal.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getUserVersion() {
+        return SecurityUtils.getCurrentUserLogin().flatMap(this::getUserVersionByLogin);
+    }
+
+    /**
+     * Find a user by login through the id of its cached principal, which the second level cache holds the user and
+     * its authorities by, unless the principal is stale.
+     */
+    private Optional<User> findOneWithAuthoritiesByLogin(String login) {
+        Optional<UserPrincipal> principal = userPrincipalRepository.findOneByLogin(login);
+        if (principal.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<User> user = userRepository.findById(principal.get().getId());
+        if (user.isPresent() && login.equals(user.get().getLogin())) {
+            Hibernate.initialize(user.get().getAuthorities());
+            return user;
+        }
+        return userRepository.findOneWithAuthoritiesByLogin(login);
     }
 
     /**
      * Not activated users should be automatically deleted after 3 days.
      * <p>
      * This is scheduled to get fired everyday, at 01:00 (am).
+     * <p>
+     * The users are deleted in batches of {@code application.users.cleanup.batch-size}, each in a transaction of its own
+     * unless this is called within one, so that neither the users loaded nor the locks held add up after a wave of
+     * registrations.
      */
     @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeNotActivatedUsers() {
-        userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant.now().minus(3, ChronoUnit.DAYS))
-            .forEach(user -> {
-                log.debug("Deleting not activated user {}", user.getLogin());
-                userRepository.delete(user);
-                this.clearUserCaches(user);
-            });
+        long start = System.nanoTime();
+        Instant createdBefore = Instant.now().minus(3, ChronoUnit.DAYS);
+        long deleted = 0;
+        long lastId = 0;
+        List<UserRepository.IdLoginAndEmail> users;
+        do {
+            long afterId = lastId;
+            users = cleanupBatchTimer.record(() -> transactionTemplate.execute(status -> removeNotActivatedUsers(createdBefore, afterId)));
+            if (!users.isEmpty()) {
+                lastId = users.get(users.size() - 1).getId();
+                deleted += users.size();
+                cleanupDeletedUsers.increment(users.size());
+                log.debug("Deleted {} not activated users so far", deleted);
+            }
+        } while (users.size() == cleanupBatchSize);
+        cleanupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (deleted > 0) {
+            log.info("Deleted {} not activated users in {} ms", deleted, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Delete a batch of the not activated users, the first ones after the given id.
+     *
+     * @return the users deleted.
+     */
+    private List<UserRepository.IdLoginAndEmail> removeNotActivatedUsers(Instant createdBefore, long afterId) {
+        List<UserRepository.IdLoginAndEmail> users = userRepository.findAllNotActivatedByCreatedDateBeforeAndIdGreaterThan(
+            createdBefore,
+            afterId,
+            PageRequest.of(0, cleanupBatchSize)
+        );
+        if (users.isEmpty()) {
+            return users;
+        }
+        List<Long> ids = users.stream().map(UserRepository.IdLoginAndEmail::getId).collect(Collectors.toList());
+        userBulkRepository.deleteAllByIdIn(ids);
+        cacheInvalidationBus.evictAll(
+            UserRepository.USERS_BY_LOGIN_CACHE,
+            users.stream().map(UserRepository.LoginAndEmail::getLogin).collect(Collectors.toList())
+        );
+        cacheInvalidationBus.evictAll(
+            UserRepository.USERS_BY_EMAIL_CACHE,
+            users.stream().map(UserRepository.LoginAndEmail::getEmail).filter(Objects::nonNull).collect(Collectors.toList())
+        );
+        cacheInvalidationBus.evictEntities(User.class, ids);
+        return users;
     }
 
     /**
@@ -316,10 +487,45 @@ public class UserService {
         return authorityRepository.findAll().stream().map(Authority::getName).collect(Collectors.toList());
     }
 
+    private <T> CursorPage<T> getUsersAfter(
+        boolean activatedOnly,
+        UserCursor cursor,
+        int size,
+        CursorPage.Count count,
+        Function<User, T> mapper
+    ) {
+        // One more user than the page holds, to know whether there is a next page
+        List<User> users = userKeysetRepository.findAllAfter(
+            activatedOnly,
+            cursor.getOrder(),
+            cursor.getLastId(),
+            cursor.getLastValue(),
+            size + 1
+        );
+        String next = null;
+        if (users.size() > size) {
+            users = users.subList(0, size);
+            next = cursor.after(users.get(size - 1)).toToken();
+        }
+        List<T> content = users.stream().map(mapper).collect(Collectors.toList());
+        if (count == CursorPage.Count.ESTIMATE) {
+            long estimate = activatedOnly ? userRepository.estimateCountByActivatedIsTrue() : userRepository.estimateCount();
+            if (estimate >= 0) {
+                return new CursorPage<>(content, next, estimate, true);
+            }
+        }
+        if (count == CursorPage.Count.NONE) {
+            return new CursorPage<>(content, next, null, false);
+        }
+        long total = activatedOnly ? userRepository.countByActivatedIsTrue() : userRepository.count();
+        return new CursorPage<>(content, next, total, false);
+    }
+
     private void clearUserCaches(User user) {
-        Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)).evict(user.getLogin());
+        cacheInvalidationBus.evict(UserRepository.USERS_BY_LOGIN_CACHE, user.getLogin());
         if (user.getEmail() != null) {
-            Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)).evict(user.getEmail());
+            cacheInvalidationBus.evict(UserRepository.USERS_BY_EMAIL_CACHE, user.getEmail());
         }
+        cacheInvalidationBus.evictEntity(User.class, user.getId());
     }
 }
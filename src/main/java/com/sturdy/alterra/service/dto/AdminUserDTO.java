@@ -56,6 +56,14 @@ public class AdminUserDTO implements Serializable {
     }
 
     public AdminUserDTO(User user) {
+        this(user, user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toSet()));
+    }
+
+    /**
+     * Build the DTO of a user with the given authorities, read with those of other users, instead of the lazy
+     * authorities of the user.
+     */
+    public AdminUserDTO(User user, Set<String> authorities) {
         this.id = user.getId();
         this.login = user.getLogin();
         this.firstName = user.getFirstName();
@@ -68,7 +76,7 @@ public class AdminUserDTO implements Serializable {
         this.createdDate = user.getCreatedDate();
         this.lastModifiedBy = user.getLastModifiedBy();
         this.lastModifiedDate = user.getLastModifiedDate();
-        this.authorities = user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toSet());
+        this.authorities = authorities;
     }
 
     public Long getId() {
@@ -0,0 +1,66 @@
+package com.sturdy.alterra.service.dto;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of a keyset pagination, with the cursor of the next page, and the total number of elements if it was asked
+ * for.
+ */
+public class CursorPage<T> {
+
+    /**
+     * How to get the total number of elements.
+     */
+    public enum Count {
+        /**
+         * Count the elements, which reads all of them, or all of an index of them.
+         */
+        EXACT,
+        /**
+         * Estimate the number of elements from the statistics of the database, or count them without statistics.
+         */
+        ESTIMATE,
+        /**
+         * Leave out the total number of elements.
+         */
+        NONE,
+    }
+
+    private final List<T> content;
+
+    private final String next;
+
+    private final Long total;
+
+    private final boolean totalEstimated;
+
+    public CursorPage(List<T> content, String next, Long total, boolean totalEstimated) {
+        this.content = content;
+        this.next = next;
+        this.total = total;
+        this.totalEstimated = totalEstimated;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the cursor of the next page, if there is one.
+     */
+    public Optional<String> getNext() {
+        return Optional.ofNullable(next);
+    }
+
+    /**
+     * @return the total number of elements, unless it was left out.
+     */
+    public Optional<Long> getTotal() {
+        return Optional.ofNullable(total);
+    }
+
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+}
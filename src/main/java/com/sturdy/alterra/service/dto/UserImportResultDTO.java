@@ -0,0 +1,74 @@
+package com.sturdy.alterra.service.dto;
+
+/**
+ * A DTO representing the result of the import of a user, a row of the report of a bulk import.
+ */
+public class UserImportResultDTO {
+
+    /**
+     * What became of the user.
+     */
+    public enum Status {
+        CREATED,
+        REJECTED,
+    }
+
+    private final long row;
+
+    private final String login;
+
+    private final Status status;
+
+    private final String message;
+
+    private UserImportResultDTO(long row, String login, Status status, String message) {
+        this.row = row;
+        this.login = login;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static UserImportResultDTO created(long row, String login) {
+        return new UserImportResultDTO(row, login, Status.CREATED, null);
+    }
+
+    public static UserImportResultDTO rejected(long row, String login, String message) {
+        return new UserImportResultDTO(row, login, Status.REJECTED, message);
+    }
+
+    /**
+     * @return the number of the row of the user in the import, from 1.
+     */
+    public long getRow() {
+        return row;
+    }
+
+    /**
+     * @return the login of the user, if the row could be read.
+     */
+    public String getLogin() {
+        return login;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return why the user was rejected.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "UserImportResultDTO{" +
+            "row=" + row +
+            ", login='" + login + '\'' +
+            ", status=" + status +
+            ", message='" + message + '\'' +
+            "}";
+    }
+}
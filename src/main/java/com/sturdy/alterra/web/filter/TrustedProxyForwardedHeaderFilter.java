@@ -0,0 +1,116 @@
+package com.sturdy.alterra.web.filter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.ForwardedHeaderFilter;
+
+/**
+ * {@link ForwardedHeaderFilter} applying the {@code Forwarded} and {@code X-Forwarded-*} headers of the requests from
+ * trusted proxies only, and removing them from the others, which could set them to anything.
+ * <p>
+ * The address of the client is the last address of {@code X-Forwarded-For} which is not a trusted proxy, like the
+ * {@code RemoteIpValve} of Tomcat does: the first ones are as the client sent them, and only the ones appended by the
+ * trusted proxies can be relied on. The login attempts are throttled per client address, see
+ * {@code LoginAttemptThrottle}.
+ */
+public class TrustedProxyForwardedHeaderFilter extends ForwardedHeaderFilter {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private static final Pattern IPV4_ADDRESS = Pattern.compile("((25[0-5]|2[0-4]\\d|1?\\d?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1?\\d?\\d)");
+
+    private static final Pattern IPV6_ADDRESS = Pattern.compile("[0-9a-fA-F.]*:[0-9a-fA-F:.]*");
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    private final ForwardedHeaderFilter removingFilter = new ForwardedHeaderFilter();
+
+    /**
+     * @param trustedProxies the addresses or CIDR ranges of the trusted proxies, such as {@code 10.0.0.0/8}.
+     */
+    public TrustedProxyForwardedHeaderFilter(Collection<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream().map(IpAddressMatcher::new).collect(Collectors.toList());
+        this.removingFilter.setRemoveOnly(true);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        if (!isTrusted(request.getRemoteAddr())) {
+            removingFilter.doFilter(request, response, filterChain);
+            return;
+        }
+        String clientAddress = clientAddress(request);
+        super.doFilterInternal(
+            request,
+            response,
+            (forwardedRequest, forwardedResponse) ->
+                filterChain.doFilter(new ClientAddressRequest((HttpServletRequest) forwardedRequest, clientAddress), forwardedResponse)
+        );
+    }
+
+    /**
+     * The last address of {@code X-Forwarded-For} which is not a trusted proxy, or the first one if they all are.
+     */
+    private String clientAddress(HttpServletRequest request) {
+        String[] forwardedFor = StringUtils.tokenizeToStringArray(request.getHeader(X_FORWARDED_FOR), ",");
+        if (forwardedFor.length == 0) {
+            return request.getRemoteAddr();
+        }
+        for (int i = forwardedFor.length - 1; i > 0; i--) {
+            if (!isTrusted(forwardedFor[i])) {
+                return forwardedFor[i];
+            }
+        }
+        return forwardedFor[0];
+    }
+
+    private boolean isTrusted(String address) {
+        if (!isIpAddress(address)) {
+            // Such as a host name or "unknown", which IpAddressMatcher would look up
+            return false;
+        }
+        try {
+            return trustedProxies.stream().anyMatch(trustedProxy -> trustedProxy.matches(address));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether the address is an IPv4 address, or looks like an IPv6 one, which are both parsed without a lookup.
+     */
+    private static boolean isIpAddress(String address) {
+        return IPV4_ADDRESS.matcher(address).matches() || IPV6_ADDRESS.matcher(address).matches();
+    }
+
+    private static class ClientAddressRequest extends HttpServletRequestWrapper {
+
+        private final String clientAddress;
+
+        ClientAddressRequest(HttpServletRequest request, String clientAddress) {
+            super(request);
+            this.clientAddress = clientAddress;
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return clientAddress;
+        }
+
+        @Override
+        public String getRemoteHost() {
+            return clientAddress;
+        }
+    }
+}
@@ -17,7 +17,9 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * REST controller for managing the current user's account.
@@ -94,15 +96,21 @@ public class AccountResource {
     /**
      * {@code GET  /account} : get the current user.
      *
-     * @return the current user.
+     * @param webRequest the request, with the {@code If-None-Match} header of a client holding the user already.
+     * @return the current user, or {@code 304 (Not Modified)} if the client holds it already.
      * @throws RuntimeException {@code 500 (Internal Server Error)} if the user couldn't be returned.
      */
     @GetMapping("/account")
-    public AdminUserDTO getAccount() {
-        return userService
-            .getUserWithAuthorities()
-            .map(AdminUserDTO::new)
-            .orElseThrow(() -> new AccountResourceException("User could not be found"));
+    public ResponseEntity<AdminUserDTO> getAccount(WebRequest webRequest) {
+        return ETags
+            .<AdminUserDTO>notModified(webRequest, userService.getUserVersion())
+            .orElseGet(() -> {
+                AdminUserDTO user = userService
+                    .getUserWithAuthorities()
+                    .map(AdminUserDTO::new)
+                    .orElseThrow(() -> new AccountResourceException("User could not be found"));
+                return ResponseEntity.ok().cacheControl(ETags.REVALIDATE).eTag(ETags.of(user)).body(user);
+            });
     }
 
     /**
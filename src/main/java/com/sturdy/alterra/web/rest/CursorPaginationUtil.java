@@ -0,0 +1,45 @@
+package com.sturdy.alterra.web.rest;
+
+import com.sturdy.alterra.service.dto.CursorPage;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset pagination, the counterpart of {@link tech.jhipster.web.util.PaginationUtil} for
+ * the {@link CursorPage}s.
+ * <p>
+ * The pages are linked with their opaque cursor in the {@code cursor} request parameter, the first page with an empty
+ * one, and the total number of elements is sent only if it was asked for, as {@value #HEADER_X_TOTAL_COUNT} if counted
+ * and as {@value #HEADER_X_TOTAL_COUNT_ESTIMATE} if estimated.
+ */
+final class CursorPaginationUtil {
+
+    static final String CURSOR_PARAMETER = "cursor";
+
+    private static final String HEADER_X_TOTAL_COUNT = "X-Total-Count";
+
+    private static final String HEADER_X_TOTAL_COUNT_ESTIMATE = "X-Total-Count-Estimate";
+
+    private CursorPaginationUtil() {}
+
+    static HttpHeaders generateCursorPaginationHttpHeaders(UriComponentsBuilder uriBuilder, CursorPage<?> page) {
+        HttpHeaders headers = new HttpHeaders();
+        page
+            .getTotal()
+            .ifPresent(total ->
+                headers.add(page.isTotalEstimated() ? HEADER_X_TOTAL_COUNT_ESTIMATE : HEADER_X_TOTAL_COUNT, Long.toString(total))
+            );
+        List<String> links = new ArrayList<>();
+        page.getNext().ifPresent(next -> links.add(link(uriBuilder, next, "next")));
+        links.add(link(uriBuilder, "", "first"));
+        headers.add(HttpHeaders.LINK, String.join(",", links));
+        return headers;
+    }
+
+    private static String link(UriComponentsBuilder uriBuilder, String cursor, String relType) {
+        String uri = uriBuilder.cloneBuilder().replaceQueryParam(CURSOR_PARAMETER, cursor).toUriString();
+        return "<" + uri + ">; rel=\"" + relType + "\"";
+    }
+}
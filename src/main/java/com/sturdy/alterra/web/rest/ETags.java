@@ -0,0 +1,103 @@
+package com.sturdy.alterra.web.rest;
+
+import com.sturdy.alterra.repository.UserPrincipal;
+import com.sturdy.alterra.service.dto.AdminUserDTO;
+import com.sturdy.alterra.service.dto.CursorPage;
+import com.sturdy.alterra.service.dto.UserDTO;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.Function;
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Strong ETags of the user resources, for the clients to get them again with {@code If-None-Match} and a
+ * {@code 304 (Not Modified)} response when they did not change.
+ * <p>
+ * The ETag of a user is its version, which its cached principal holds as well: the users the client holds already are
+ * answered from the cache, without loading them. The ETag of a page is a digest of its total, or of its cursors, and of
+ * the versions of its users, which saves serializing and sending it again, but not loading it.
+ */
+final class ETags {
+
+    /**
+     * Kept by the clients, but checked with the server before each use, as the resources change without notice.
+     */
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ETags() {}
+
+    static String of(AdminUserDTO user) {
+        return UserPrincipal.version(user.getId(), user.getLastModifiedDate(), user.getAuthorities());
+    }
+
+    static String ofAdminUsers(Page<AdminUserDTO> page) {
+        return of(String.valueOf(page.getTotalElements()), page, ETags::of);
+    }
+
+    static String ofAdminUsers(CursorPage<AdminUserDTO> page) {
+        return of(head(page), page.getContent(), ETags::of);
+    }
+
+    /**
+     * The public users only show their id and login, which are their version.
+     */
+    static String ofUsers(Page<UserDTO> page) {
+        return of(String.valueOf(page.getTotalElements()), page, ETags::ofUser);
+    }
+
+    static String ofUsers(CursorPage<UserDTO> page) {
+        return of(head(page), page.getContent(), ETags::ofUser);
+    }
+
+    /**
+     * @return a {@code 304 (Not Modified)} response if the client holds the given version of the resource already.
+     */
+    static <T> Optional<ResponseEntity<T>> notModified(WebRequest webRequest, Optional<String> version) {
+        return version
+            .filter(etag -> isHeldBy(webRequest, etag))
+            .map(etag -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).eTag(etag).build());
+    }
+
+    /**
+     * Whether {@code If-None-Match} holds the ETag, compared weakly as it is for this header.
+     */
+    private static boolean isHeldBy(WebRequest webRequest, String etag) {
+        String[] ifNoneMatch = webRequest.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String quotedETag = '"' + etag + '"';
+        for (String header : ifNoneMatch) {
+            for (String heldETag : header.split(",")) {
+                heldETag = heldETag.trim();
+                if (heldETag.startsWith("W/")) {
+                    heldETag = heldETag.substring(2);
+                }
+                if (heldETag.equals("*") || heldETag.equals(quotedETag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String ofUser(UserDTO user) {
+        return user.getId() + ":" + user.getLogin();
+    }
+
+    private static String head(CursorPage<?> page) {
+        return page.getTotal().map(String::valueOf).orElse("") + ":" + page.isTotalEstimated() + ":" + page.getNext().orElse("");
+    }
+
+    private static <T> String of(String head, Iterable<T> elements, Function<T, String> version) {
+        StringBuilder versions = new StringBuilder(head);
+        elements.forEach(element -> versions.append(',').append(version.apply(element)));
+        return DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,8 @@
 package com.sturdy.alterra.web.rest;
 
+import com.sturdy.alterra.service.UserCursor;
 import com.sturdy.alterra.service.UserService;
+import com.sturdy.alterra.service.dto.CursorPage;
 import com.sturdy.alterra.service.dto.UserDTO;
 import java.util.*;
 import java.util.Collections;
@@ -10,7 +12,6 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -34,20 +35,47 @@ public class PublicUserResource {
 
     /**
      * {@code GET /users} : get all users with only the public informations - calling this are allowed for anyone.
+     * <p>
+     * With a {@code cursor}, empty for the first page, the users are paged with a keyset instead of the page number,
+     * sorted by a single property, see {@link CursorPaginationUtil}.
      *
      * @param pageable the pagination information.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
+     * @param cursor the cursor of the page, to page the users with a keyset.
+     * @param count how to get the total number of users when paging them with a keyset.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users, or with status
+     * {@code 304 (Not Modified)} if the client holds the page already.
      */
     @GetMapping("/users")
-    public ResponseEntity<List<UserDTO>> getAllPublicUsers(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<UserDTO>> getAllPublicUsers(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.CURSOR_PARAMETER, required = false) String cursor,
+        @RequestParam(defaultValue = "NONE") CursorPage.Count count
+    ) {
         log.debug("REST request to get all public User names");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
         }
+        if (cursor != null) {
+            return getAllPublicUsersAfter(cursor, pageable, count);
+        }
 
         final Page<UserDTO> page = userService.getAllPublicUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        return ResponseEntity.ok().headers(headers).cacheControl(ETags.REVALIDATE).eTag(ETags.ofUsers(page)).body(page.getContent());
+    }
+
+    private ResponseEntity<List<UserDTO>> getAllPublicUsersAfter(String cursor, Pageable pageable, CursorPage.Count count) {
+        Optional<UserCursor> userCursor = cursor.isEmpty() ? UserCursor.first(pageable.getSort()) : UserCursor.ofToken(cursor);
+        if (userCursor.filter(c -> ALLOWED_ORDERED_PROPERTIES.contains(c.getOrder().getProperty())).isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        final CursorPage<UserDTO> page = userService.getAllPublicUsers(userCursor.get(), pageable.getPageSize(), count);
+        HttpHeaders headers = CursorPaginationUtil.generateCursorPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            page
+        );
+        return ResponseEntity.ok().headers(headers).cacheControl(ETags.REVALIDATE).eTag(ETags.ofUsers(page)).body(page.getContent());
     }
 
     private boolean onlyContainsAllowedProperties(Pageable pageable) {
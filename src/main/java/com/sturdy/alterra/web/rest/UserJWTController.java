@@ -1,9 +1,15 @@
 package com.sturdy.alterra.web.rest;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sturdy.alterra.security.LoginAttemptThrottle;
+import com.sturdy.alterra.security.SecurityUtils;
 import com.sturdy.alterra.security.jwt.JWTFilter;
+import com.sturdy.alterra.security.jwt.RefreshTokenService;
 import com.sturdy.alterra.security.jwt.TokenProvider;
 import com.sturdy.alterra.web.rest.vm.LoginVM;
+import com.sturdy.alterra.web.rest.vm.RefreshTokenVM;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -25,13 +31,25 @@ public class UserJWTController {
 
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
 
-    public UserJWTController(TokenProvider tokenProvider, AuthenticationManagerBuilder authenticationManagerBuilder) {
+    private final RefreshTokenService refreshTokenService;
+
+    private final LoginAttemptThrottle loginAttemptThrottle;
+
+    public UserJWTController(
+        TokenProvider tokenProvider,
+        AuthenticationManagerBuilder authenticationManagerBuilder,
+        RefreshTokenService refreshTokenService,
+        LoginAttemptThrottle loginAttemptThrottle
+    ) {
         this.tokenProvider = tokenProvider;
         this.authenticationManagerBuilder = authenticationManagerBuilder;
+        this.refreshTokenService = refreshTokenService;
+        this.loginAttemptThrottle = loginAttemptThrottle;
     }
 
     @PostMapping("/authenticate")
-    public ResponseEntity<JWTToken> authorize(@Valid @RequestBody LoginVM loginVM) {
+    public ResponseEntity<JWTToken> authorize(@Valid @RequestBody LoginVM loginVM, HttpServletRequest request) {
+        loginAttemptThrottle.acquire(loginVM.getUsername(), request.getRemoteAddr());
         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
             loginVM.getUsername(),
             loginVM.getPassword()
@@ -39,10 +57,51 @@ public class UserJWTController {
 
         Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
         SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (refreshTokenService.isEnabled()) {
+            String jwt = tokenProvider.createAccessToken(authentication);
+            String refreshToken = refreshTokenService.createRefreshToken(authentication.getName(), loginVM.isRememberMe());
+            return createResponse(new JWTToken(jwt, refreshToken));
+        }
         String jwt = tokenProvider.createToken(authentication, loginVM.isRememberMe());
+        return createResponse(new JWTToken(jwt, null));
+    }
+
+    /**
+     * {@code POST  /authenticate/refresh} : exchange a refresh token for a new access token and a new refresh token,
+     * without checking the password again.
+     *
+     * @param refreshTokenVM the refresh token, which cannot be used again.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the new tokens in body, or with status
+     * {@code 401 (Unauthorized)} if the refresh token is invalid.
+     */
+    @PostMapping("/authenticate/refresh")
+    public ResponseEntity<JWTToken> refresh(@Valid @RequestBody RefreshTokenVM refreshTokenVM) {
+        RefreshTokenService.RotatedRefreshToken rotated = refreshTokenService.rotate(refreshTokenVM.getRefreshToken());
+        String jwt = tokenProvider.createAccessToken(rotated.getAuthentication());
+        return createResponse(new JWTToken(jwt, rotated.getRefreshToken()));
+    }
+
+    private ResponseEntity<JWTToken> createResponse(JWTToken token) {
         HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
-        return new ResponseEntity<>(new JWTToken(jwt), httpHeaders, HttpStatus.OK);
+        httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + token.getIdToken());
+        return new ResponseEntity<>(token, httpHeaders, HttpStatus.OK);
+    }
+
+    /**
+     * {@code POST  /logout} : revoke the JWT of the current request, on every node, and the refresh token given in
+     * body, if any.
+     *
+     * @param refreshTokenVM the refresh token of the session, optional.
+     * @return the {@link ResponseEntity} with status {@code 204 (No Content)}.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody(required = false) RefreshTokenVM refreshTokenVM) {
+        SecurityUtils.getCurrentUserJWT().ifPresent(tokenProvider::revokeToken);
+        if (refreshTokenVM != null) {
+            refreshTokenService.revokeRefreshToken(refreshTokenVM.getRefreshToken());
+        }
+        SecurityContextHolder.clearContext();
+        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -52,8 +111,11 @@ public class UserJWTController {
 
         private String idToken;
 
-        JWTToken(String idToken) {
+        private String refreshToken;
+
+        JWTToken(String idToken, String refreshToken) {
             this.idToken = idToken;
+            this.refreshToken = refreshToken;
         }
 
         @JsonProperty("id_token")
@@ -64,5 +126,15 @@ public class UserJWTController {
         void setIdToken(String idToken) {
             this.idToken = idToken;
         }
+
+        @JsonProperty("refresh_token")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String getRefreshToken() {
+            return refreshToken;
+        }
+
+        void setRefreshToken(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
     }
 }
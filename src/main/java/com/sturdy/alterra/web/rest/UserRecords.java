@@ -0,0 +1,312 @@
+package com.sturdy.alterra.web.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sturdy.alterra.service.dto.AdminUserDTO;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and writes users as records of a bulk import or export, one user per line of NDJSON, or per record of CSV.
+ * <p>
+ * The CSV has a header with the names of its columns, the properties of {@link AdminUserDTO}, and the authorities of a
+ * user in a single column, separated by commas. The columns which are only exported, such as the id or the audit
+ * fields, are ignored on import, so that an export can be imported again.
+ * <p>
+ * The values which a spreadsheet would take for a formula, starting with {@code =}, {@code +}, {@code -}, {@code @}, a
+ * tab or a carriage return, are written with a leading {@code '}, as OWASP recommends against CSV injection, which is
+ * dropped on import. So are the values starting with a {@code '} which would be read back without it otherwise.
+ */
+final class UserRecords {
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final Map<String, BiConsumer<AdminUserDTO, String>> CSV_IMPORTED_COLUMNS = new LinkedHashMap<>();
+
+    private static final Map<String, Function<AdminUserDTO, Object>> CSV_EXPORTED_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        CSV_IMPORTED_COLUMNS.put("login", AdminUserDTO::setLogin);
+        CSV_IMPORTED_COLUMNS.put("email", AdminUserDTO::setEmail);
+        CSV_IMPORTED_COLUMNS.put("firstName", AdminUserDTO::setFirstName);
+        CSV_IMPORTED_COLUMNS.put("lastName", AdminUserDTO::setLastName);
+        CSV_IMPORTED_COLUMNS.put("imageUrl", AdminUserDTO::setImageUrl);
+        CSV_IMPORTED_COLUMNS.put("langKey", AdminUserDTO::setLangKey);
+        CSV_IMPORTED_COLUMNS.put(
+            "authorities",
+            (user, authorities) ->
+                user.setAuthorities(authorities == null ? null : new LinkedHashSet<>(Arrays.asList(authorities.split(","))))
+        );
+
+        CSV_EXPORTED_COLUMNS.put("id", AdminUserDTO::getId);
+        CSV_EXPORTED_COLUMNS.put("login", AdminUserDTO::getLogin);
+        CSV_EXPORTED_COLUMNS.put("email", AdminUserDTO::getEmail);
+        CSV_EXPORTED_COLUMNS.put("firstName", AdminUserDTO::getFirstName);
+        CSV_EXPORTED_COLUMNS.put("lastName", AdminUserDTO::getLastName);
+        CSV_EXPORTED_COLUMNS.put("imageUrl", AdminUserDTO::getImageUrl);
+        CSV_EXPORTED_COLUMNS.put("langKey", AdminUserDTO::getLangKey);
+        CSV_EXPORTED_COLUMNS.put("authorities", user -> user.getAuthorities().stream().sorted().collect(Collectors.joining(",")));
+        CSV_EXPORTED_COLUMNS.put("activated", AdminUserDTO::isActivated);
+        CSV_EXPORTED_COLUMNS.put("createdBy", AdminUserDTO::getCreatedBy);
+        CSV_EXPORTED_COLUMNS.put("createdDate", AdminUserDTO::getCreatedDate);
+        CSV_EXPORTED_COLUMNS.put("lastModifiedBy", AdminUserDTO::getLastModifiedBy);
+        CSV_EXPORTED_COLUMNS.put("lastModifiedDate", AdminUserDTO::getLastModifiedDate);
+    }
+
+    private UserRecords() {}
+
+    /**
+     * Read the users of an NDJSON stream, a line at a time, skipping the blank lines.
+     *
+     * @return the users, whose {@link Iterator#next()} throws an {@link IllegalArgumentException} for a line which is
+     * not a user.
+     */
+    static Iterator<AdminUserDTO> readNdjson(BufferedReader reader, ObjectReader userReader) {
+        return new RecordIterator<String>() {
+            @Override
+            String readRecord() throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && line.isBlank());
+                return line;
+            }
+
+            @Override
+            AdminUserDTO toUser(String line) {
+                try {
+                    return userReader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    /**
+     * Read the users of a CSV stream, a record at a time, skipping the blank lines. The header is read right away.
+     *
+     * @return the users, whose {@link Iterator#next()} throws an {@link IllegalArgumentException} for a record which
+     * does not have a value per column.
+     * @throws IllegalArgumentException if the header is missing, or names a column which is not a property of the users.
+     * @throws IOException if the header cannot be read.
+     */
+    static Iterator<AdminUserDTO> readCsv(BufferedReader reader) throws IOException {
+        List<String> header = readCsvRecord(reader);
+        if (header == null || !header.contains("login")) {
+            throw new IllegalArgumentException("The header must name the columns, login included");
+        }
+        List<BiConsumer<AdminUserDTO, String>> setters = new ArrayList<>();
+        for (String column : header) {
+            if (CSV_IMPORTED_COLUMNS.containsKey(column)) {
+                setters.add(CSV_IMPORTED_COLUMNS.get(column));
+            } else if (CSV_EXPORTED_COLUMNS.containsKey(column)) {
+                setters.add((user, value) -> {});
+            } else {
+                throw new IllegalArgumentException("Unknown column: " + column);
+            }
+        }
+        return new RecordIterator<List<String>>() {
+            @Override
+            List<String> readRecord() throws IOException {
+                return readCsvRecord(reader);
+            }
+
+            @Override
+            AdminUserDTO toUser(List<String> values) {
+                if (values.size() != setters.size()) {
+                    throw new IllegalArgumentException("Expected " + setters.size() + " values, got " + values.size());
+                }
+                AdminUserDTO user = new AdminUserDTO();
+                for (int i = 0; i < values.size(); i++) {
+                    setters.get(i).accept(user, values.get(i).isEmpty() ? null : unescapeFormula(values.get(i)));
+                }
+                return user;
+            }
+        };
+    }
+
+    /**
+     * Write a value as a line of NDJSON.
+     *
+     * @throws UncheckedIOException if the value cannot be written, for the callbacks which cannot throw an {@link IOException}.
+     */
+    static void writeNdjson(OutputStream out, ObjectWriter writer, Object value) {
+        try {
+            out.write(writer.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @throws UncheckedIOException if the header cannot be written.
+     */
+    static void writeCsvHeader(Writer writer) {
+        writeCsvRecord(writer, CSV_EXPORTED_COLUMNS.keySet());
+    }
+
+    /**
+     * Write a user as a record of CSV, under the header of {@link #writeCsvHeader(Writer)}.
+     *
+     * @throws UncheckedIOException if the user cannot be written, for the callbacks which cannot throw an {@link IOException}.
+     */
+    static void writeCsv(Writer writer, AdminUserDTO user) {
+        List<String> values = new ArrayList<>(CSV_EXPORTED_COLUMNS.size());
+        for (Function<AdminUserDTO, Object> getter : CSV_EXPORTED_COLUMNS.values()) {
+            Object value = getter.apply(user);
+            values.add(value == null ? "" : value.toString());
+        }
+        writeCsvRecord(writer, values);
+    }
+
+    private static void writeCsvRecord(Writer writer, Collection<String> values) {
+        try {
+            writeCsvValues(writer, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsvValues(Writer writer, Collection<String> values) throws IOException {
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            value = escapeFormula(value);
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * The value with a leading {@code '} if a spreadsheet would take it for a formula, or read back without its own.
+     */
+    private static String escapeFormula(String value) {
+        return isEscapedFormula("'" + value) ? "'" + value : value;
+    }
+
+    private static String unescapeFormula(String value) {
+        return isEscapedFormula(value) ? value.substring(1) : value;
+    }
+
+    /**
+     * Whether the value is a {@code '} followed by a formula, possibly after more {@code '}.
+     */
+    private static boolean isEscapedFormula(String value) {
+        if (value.isEmpty() || value.charAt(0) != '\'') {
+            return false;
+        }
+        int i = 1;
+        while (i < value.length() && value.charAt(i) == '\'') {
+            i++;
+        }
+        if (i == value.length()) {
+            return false;
+        }
+        char c = value.charAt(i);
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * Read a record of RFC 4180 CSV, whose quoted values may hold commas, line breaks and doubled quotes.
+     *
+     * @return the values of the record, or {@code null} at the end of the stream.
+     */
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean empty = true;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c != '"') {
+                    value.append((char) c);
+                } else {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                }
+            } else if (c == '"') {
+                quoted = true;
+                empty = false;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+                empty = false;
+            } else if (c == '\r') {
+                // The line break is the \n, with or without a \r before it
+            } else if (c == '\n') {
+                if (!empty || value.length() > 0) {
+                    break;
+                }
+            } else {
+                value.append((char) c);
+                empty = false;
+            }
+        }
+        if (c == -1 && empty && value.length() == 0) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Reads a record ahead, for {@link #hasNext()} to know whether there is one.
+     */
+    private abstract static class RecordIterator<R> implements Iterator<AdminUserDTO> {
+
+        private R next;
+
+        private boolean read;
+
+        abstract R readRecord() throws IOException;
+
+        abstract AdminUserDTO toUser(R record);
+
+        @Override
+        public boolean hasNext() {
+            if (!read) {
+                try {
+                    next = readRecord();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                read = true;
+            }
+            return next != null;
+        }
+
+        @Override
+        public AdminUserDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            read = false;
+            return toUser(next);
+        }
+    }
+}
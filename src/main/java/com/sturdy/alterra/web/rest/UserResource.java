@@ -1,17 +1,34 @@
 package com.sturdy.alterra.web.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.sturdy.alterra.config.Constants;
 import com.sturdy.alterra.domain.User;
 import com.sturdy.alterra.repository.UserRepository;
 import com.sturdy.alterra.security.AuthoritiesConstants;
 import com.sturdy.alterra.service.MailService;
+import com.sturdy.alterra.service.UserBulkService;
+import com.sturdy.alterra.service.UserCursor;
 import com.sturdy.alterra.service.UserService;
 import com.sturdy.alterra.service.dto.AdminUserDTO;
+import com.sturdy.alterra.service.dto.CursorPage;
+import com.sturdy.alterra.service.dto.UserImportResultDTO;
 import com.sturdy.alterra.web.rest.errors.BadRequestAlertException;
 import com.sturdy.alterra.web.rest.errors.EmailAlreadyUsedException;
 import com.sturdy.alterra.web.rest.errors.LoginAlreadyUsedException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.Collections;
 import javax.validation.Valid;
@@ -22,11 +39,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -87,10 +107,22 @@ public class UserResource {
 
     private final MailService mailService;
 
-    public UserResource(UserService userService, UserRepository userRepository, MailService mailService) {
+    private final UserBulkService userBulkService;
+
+    private final ObjectMapper objectMapper;
+
+    public UserResource(
+        UserService userService,
+        UserRepository userRepository,
+        MailService mailService,
+        UserBulkService userBulkService,
+        ObjectMapper objectMapper
+    ) {
         this.userService = userService;
         this.userRepository = userRepository;
         this.mailService = mailService;
+        this.userBulkService = userBulkService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -129,6 +161,127 @@ public class UserResource {
         }
     }
 
+    /**
+     * {@code POST  /admin/users/import}  : Creates the users of an NDJSON stream, a user per line.
+     * <p>
+     * The users are created as by {@code POST /admin/users}, a batch at a time, see {@link UserBulkService}, and each
+     * batch is sent its creation emails in a single task once it is created.
+     *
+     * @param body the users to create, in UTF-8.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each user, a line of
+     * NDJSON per user, streamed as the users are created.
+     */
+    @PostMapping(value = "/users/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<StreamingResponseBody> importUsers(InputStream body) {
+        log.debug("REST request to import Users from NDJSON");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return importUsers(UserRecords.readNdjson(reader, objectMapper.readerFor(AdminUserDTO.class)));
+    }
+
+    /**
+     * {@code POST  /admin/users/import}  : Creates the users of a CSV stream, a user per record, see {@link UserRecords}.
+     *
+     * @param body the users to create, in UTF-8.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each user, a line of
+     * NDJSON per user, streamed as the users are created.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the header of the CSV does not name the columns.
+     * @throws IOException if the header of the CSV cannot be read.
+     */
+    @PostMapping(value = "/users/import", consumes = UserRecords.TEXT_CSV_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<StreamingResponseBody> importUsersFromCsv(InputStream body) throws IOException {
+        log.debug("REST request to import Users from CSV");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Iterator<AdminUserDTO> users;
+        try {
+            users = UserRecords.readCsv(reader);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), "userManagement", "csvheader");
+        }
+        return importUsers(users);
+    }
+
+    private ResponseEntity<StreamingResponseBody> importUsers(Iterator<AdminUserDTO> users) {
+        ObjectWriter resultWriter = objectMapper.writerFor(UserImportResultDTO.class);
+        StreamingResponseBody report = out ->
+            userBulkService.importUsers(
+                users,
+                result -> UserRecords.writeNdjson(out, resultWriter, result),
+                mailService::sendCreationEmails
+            );
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(report);
+    }
+
+    /**
+     * {@code GET  /admin/users/export}  : Exports all the users, as CSV if the client accepts {@code text/csv}, and as
+     * NDJSON otherwise.
+     * <p>
+     * The users are read a batch at a time, see {@link UserBulkService}, and written as they are read.
+     *
+     * @param accept the media types the client accepts.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all the users, a user per line of
+     * NDJSON or record of CSV, streamed as they are read.
+     */
+    @GetMapping(value = "/users/export", produces = { MediaType.APPLICATION_NDJSON_VALUE, UserRecords.TEXT_CSV_VALUE })
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("REST request to export Users");
+        MediaType csv = MediaType.parseMediaType(UserRecords.TEXT_CSV_VALUE);
+        if (accept != null && MediaType.parseMediaTypes(accept).stream().anyMatch(csv::equalsTypeAndSubtype)) {
+            StreamingResponseBody users = out -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                UserRecords.writeCsvHeader(writer);
+                userBulkService.exportUsers(user -> UserRecords.writeCsv(writer, user));
+                writer.flush();
+            };
+            return ResponseEntity
+                .ok()
+                .contentType(new MediaType(csv, StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("users.csv").build().toString())
+                .body(users);
+        }
+        ObjectWriter userWriter = objectMapper.writerFor(AdminUserDTO.class);
+        StreamingResponseBody users = out -> userBulkService.exportUsers(user -> UserRecords.writeNdjson(out, userWriter, user));
+        return ResponseEntity
+            .ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("users.ndjson").build().toString())
+            .body(users);
+    }
+
+    /**
+     * {@code GET  /admin/users/stream}  : Get all the users, as a single JSON array, written as the users are read from a
+     * database cursor, see {@link UserBulkService#streamUsers(java.util.function.Consumer)}.
+     * <p>
+     * Unlike {@code GET /admin/users}, the users are neither paged nor counted, and the response is written in constant
+     * memory whatever the number of users. Like the import and export, it runs on the pool and within the timeout of
+     * {@code application.users.bulk}, see {@code WebAsyncConfiguration}.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all the users.
+     */
+    @GetMapping(value = "/users/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        log.debug("REST request to stream all Users");
+        // Written to the buffer of the generator, and flushed whenever it is full rather than after each user
+        ObjectWriter userWriter = objectMapper.writerFor(AdminUserDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody users = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                userBulkService.streamUsers(user -> {
+                    try {
+                        userWriter.writeValue(generator, user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(users);
+    }
+
     /**
      * {@code PUT /admin/users} : Updates an existing User.
      *
@@ -159,21 +312,58 @@ public class UserResource {
 
     /**
      * {@code GET /admin/users} : get all users with all the details - calling this are only allowed for the administrators.
+     * <p>
+     * With a {@code cursor}, empty for the first page, the users are paged with a keyset instead of the page number,
+     * sorted by a single property, see {@link CursorPaginationUtil}.
      *
      * @param pageable the pagination information.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
+     * @param cursor the cursor of the page, to page the users with a keyset.
+     * @param count how to get the total number of users when paging them with a keyset.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users, or with status
+     * {@code 304 (Not Modified)} if the client holds the page already.
      */
     @GetMapping("/users")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<List<AdminUserDTO>> getAllUsers(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<AdminUserDTO>> getAllUsers(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.CURSOR_PARAMETER, required = false) String cursor,
+        @RequestParam(defaultValue = "NONE") CursorPage.Count count
+    ) {
         log.debug("REST request to get all User for an admin");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
         }
+        if (cursor != null) {
+            return getAllUsersAfter(cursor, pageable, count);
+        }
 
         final Page<AdminUserDTO> page = userService.getAllManagedUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        return ResponseEntity
+            .ok()
+            .headers(headers)
+            .cacheControl(ETags.REVALIDATE)
+            .eTag(ETags.ofAdminUsers(page))
+            .body(page.getContent());
+    }
+
+    private ResponseEntity<List<AdminUserDTO>> getAllUsersAfter(String cursor, Pageable pageable, CursorPage.Count count) {
+        Optional<UserCursor> userCursor = cursor.isEmpty() ? UserCursor.first(pageable.getSort()) : UserCursor.ofToken(cursor);
+        if (userCursor.filter(c -> ALLOWED_ORDERED_PROPERTIES.contains(c.getOrder().getProperty())).isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        final CursorPage<AdminUserDTO> page = userService.getAllManagedUsers(userCursor.get(), pageable.getPageSize(), count);
+        HttpHeaders headers = CursorPaginationUtil.generateCursorPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            page
+        );
+        return ResponseEntity
+            .ok()
+            .headers(headers)
+            .cacheControl(ETags.REVALIDATE)
+            .eTag(ETags.ofAdminUsers(page))
+            .body(page.getContent());
     }
 
     private boolean onlyContainsAllowedProperties(Pageable pageable) {
@@ -184,13 +374,26 @@ public class UserResource {
      * {@code GET /admin/users/:login} : get the "login" user.
      *
      * @param login the login of the user to find.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user, or with status {@code 404 (Not Found)}.
+     * @param webRequest the request, with the {@code If-None-Match} header of a client holding the user already.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the "login" user, or with status {@code 404 (Not Found)},
+     * or with status {@code 304 (Not Modified)} if the client holds the user already.
      */
     @GetMapping("/users/{login}")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<AdminUserDTO> getUser(@PathVariable @Pattern(regexp = Constants.LOGIN_REGEX) String login) {
+    public ResponseEntity<AdminUserDTO> getUser(
+        @PathVariable @Pattern(regexp = Constants.LOGIN_REGEX) String login,
+        WebRequest webRequest
+    ) {
         log.debug("REST request to get User : {}", login);
-        return ResponseUtil.wrapOrNotFound(userService.getUserWithAuthoritiesByLogin(login).map(AdminUserDTO::new));
+        return ETags
+            .<AdminUserDTO>notModified(webRequest, userService.getUserVersionByLogin(login))
+            .orElseGet(() ->
+                userService
+                    .getUserWithAuthoritiesByLogin(login)
+                    .map(AdminUserDTO::new)
+                    .map(user -> ResponseEntity.ok().cacheControl(ETags.REVALIDATE).eTag(ETags.of(user)).body(user))
+                    .orElseGet(() -> ResponseEntity.notFound().build())
+            );
     }
 
     /**
@@ -1,6 +1,9 @@
 package com.sturdy.alterra.web.rest.errors;
 
+import com.sturdy.alterra.security.LoginThrottledException;
+import com.sturdy.alterra.security.PasswordHashingUnavailableException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -14,6 +17,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageConversionException;
 import org.springframework.validation.BindingResult;
@@ -164,6 +168,25 @@ public class ExceptionTranslator implements ProblemHandling, SecurityAdviceTrait
         return create(ex, problem, request);
     }
 
+    @ExceptionHandler
+    public ResponseEntity<Problem> handlePasswordHashingUnavailable(PasswordHashingUnavailableException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder().withStatus(Status.SERVICE_UNAVAILABLE).withDetail(ex.getMessage()).build();
+        return create(ex, problem, request, retryAfterHeaders(ex.getRetryAfter()));
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleLoginThrottled(LoginThrottledException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder().withStatus(Status.TOO_MANY_REQUESTS).withDetail(ex.getMessage()).build();
+        return create(ex, problem, request, retryAfterHeaders(ex.getRetryAfter()));
+    }
+
+    private static HttpHeaders retryAfterHeaders(Duration retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        // Whole seconds, rounded up
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.plusNanos(999_999_999).getSeconds())));
+        return headers;
+    }
+
     @Override
     public ProblemBuilder prepare(final Throwable throwable, final StatusType status, final URI type) {
         Collection<String> activeProfiles = Arrays.asList(env.getActiveProfiles());
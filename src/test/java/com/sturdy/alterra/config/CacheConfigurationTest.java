@@ -0,0 +1,199 @@
+package com.sturdy.alterra.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.management.ObjectName;
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.util.unit.DataSize;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Unit tests for the {@link CacheConfiguration} class.
+ */
+class CacheConfigurationTest {
+
+    private static final AtomicInteger expiredEntries = new AtomicInteger();
+
+    private JHipsterProperties jHipsterProperties;
+
+    private ApplicationProperties applicationProperties;
+
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void setup() {
+        jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getCache().getEhcache().setMaxEntries(50);
+        jHipsterProperties.getCache().getEhcache().setTimeToLiveSeconds(60);
+        applicationProperties = new ApplicationProperties();
+        cacheManager = Caching.getCachingProvider(EhcacheCachingProvider.class.getName()).getCacheManager();
+        expiredEntries.set(0);
+    }
+
+    @AfterEach
+    public void destroy() {
+        cacheManager.close();
+    }
+
+    @Test
+    void testCachesWithoutPolicyUseTheJHipsterDefaults() {
+        createCaches();
+
+        CacheRuntimeConfiguration<?, ?> configuration = runtimeConfiguration("usersByLogin");
+
+        assertThat(configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(50);
+        assertThat(configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getUnit()).isEqualTo(EntryUnit.ENTRIES);
+        assertThat(configuration.getExpiryPolicy().getExpiryForCreation(null, null)).isEqualTo(Duration.ofSeconds(60));
+    }
+
+    @Test
+    void testPoliciesSetTheBoundAndExpiryOfTheirCache() {
+        ApplicationProperties.Cache.Policy authorities = policy("com.sturdy.alterra.domain.Authority");
+        authorities.setMaxEntries(100L);
+        authorities.setExpiry(ApplicationProperties.Cache.Policy.Expiry.NONE);
+        ApplicationProperties.Cache.Policy users = policy("usersByEmail");
+        users.setMaxSize(DataSize.ofMegabytes(8));
+        users.setExpiry(ApplicationProperties.Cache.Policy.Expiry.TIME_TO_IDLE);
+        users.setExpireAfter(Duration.ofMinutes(10));
+
+        createCaches();
+
+        CacheRuntimeConfiguration<?, ?> authoritiesConfiguration = runtimeConfiguration("com.sturdy.alterra.domain.Authority");
+        assertThat(authoritiesConfiguration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(100);
+        assertThat(authoritiesConfiguration.getExpiryPolicy()).isSameAs(ExpiryPolicyBuilder.noExpiration());
+        CacheRuntimeConfiguration<?, ?> usersConfiguration = runtimeConfiguration("usersByEmail");
+        assertThat(usersConfiguration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize())
+            .isEqualTo(8L * 1024 * 1024);
+        assertThat(usersConfiguration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getUnit()).isEqualTo(MemoryUnit.B);
+        assertThat(usersConfiguration.getExpiryPolicy().getExpiryForAccess(null, () -> null)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testPoliciesCanAddOffHeapAndPersistentDiskTiers(@TempDir Path diskStoragePath) {
+        applicationProperties.getCache().setDiskStoragePath(diskStoragePath.toString());
+        ApplicationProperties.Cache.Policy policy = policy("usersByLogin");
+        policy.setOffHeapSize(DataSize.ofMegabytes(1));
+        policy.setDiskSize(DataSize.ofMegabytes(10));
+        // The tiered cache manager replaces the default one
+        cacheManager.close();
+
+        cacheManager = createTieredCacheManager();
+        CacheRuntimeConfiguration<?, ?> configuration = runtimeConfiguration("usersByLogin");
+        assertThat(configuration.getResourcePools().getPoolForResource(ResourceType.Core.OFFHEAP).getSize()).isEqualTo(1024 * 1024);
+        assertThat(configuration.getResourcePools().getPoolForResource(ResourceType.Core.DISK).isPersistent()).isTrue();
+        List<String> authorities = new ArrayList<>(List.of("ROLE_USER"));
+        cacheManager.getCache("usersByLogin").put("user", authorities);
+        authorities.add("ROLE_ADMIN");
+        assertThat(cacheManager.getCache("usersByLogin").get("user")).isEqualTo(List.of("ROLE_USER"));
+        cacheManager.close();
+
+        cacheManager = createTieredCacheManager();
+        assertThat(cacheManager.getCache("usersByLogin").get("user")).isEqualTo(List.of("ROLE_USER"));
+    }
+
+    @Test
+    void testDiskTiersNeedAStoragePath() {
+        policy("usersByLogin").setDiskSize(DataSize.ofMegabytes(10));
+        cacheManager.close();
+
+        assertThatThrownBy(this::createTieredCacheManager).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testPolicyCannotBoundBothEntriesAndSize() {
+        ApplicationProperties.Cache.Policy policy = policy("usersByLogin");
+        policy.setMaxEntries(10L);
+        policy.setMaxSize(DataSize.ofMegabytes(1));
+
+        assertThatThrownBy(this::createCaches).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("usersByLogin");
+    }
+
+    @Test
+    void testStatisticsAreEnabledUnlessDisabledByThePolicy() throws Exception {
+        policy("usersByEmail").setStatistics(false);
+
+        createCaches();
+
+        assertThat(hasStatistics("usersByLogin")).isTrue();
+        assertThat(hasStatistics("usersByEmail")).isFalse();
+    }
+
+    @Test
+    void testSweepDropsExpiredEntries() throws Exception {
+        policy("usersByLogin").setExpireAfter(Duration.ofMillis(10));
+        createCaches();
+        Cache<Object, Object> cache = cacheManager.getCache("usersByLogin");
+        cache.registerCacheEntryListener(
+            new MutableCacheEntryListenerConfiguration<>(FactoryBuilder.factoryOf(CountingExpiredListener.class), null, false, true)
+        );
+        cache.put("user", "user");
+        Thread.sleep(50);
+
+        CacheConfiguration.sweepExpiredEntries(cacheManager, List.of("usersByLogin"));
+
+        assertThat(expiredEntries.get()).isEqualTo(1);
+    }
+
+    private ApplicationProperties.Cache.Policy policy(String cacheName) {
+        return applicationProperties.getCache().getPolicies().computeIfAbsent(cacheName, name -> new ApplicationProperties.Cache.Policy());
+    }
+
+    private void createCaches() {
+        new CacheConfiguration(jHipsterProperties, applicationProperties).cacheManagerCustomizer().customize(cacheManager);
+    }
+
+    private CacheManager createTieredCacheManager() {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration(jHipsterProperties, applicationProperties);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(
+            Map.of("cacheManagerCustomizer", cacheConfiguration.cacheManagerCustomizer())
+        );
+        return cacheConfiguration.jCacheCacheManager(beanFactory.getBeanProvider(JCacheManagerCustomizer.class));
+    }
+
+    private CacheRuntimeConfiguration<?, ?> runtimeConfiguration(String cacheName) {
+        @SuppressWarnings("unchecked")
+        Eh107Configuration<?, ?> configuration = cacheManager.getCache(cacheName).getConfiguration(Eh107Configuration.class);
+        @SuppressWarnings("unchecked")
+        CacheRuntimeConfiguration<?, ?> runtimeConfiguration = configuration.unwrap(CacheRuntimeConfiguration.class);
+        return runtimeConfiguration;
+    }
+
+    private boolean hasStatistics(String cacheName) throws Exception {
+        ObjectName statistics = new ObjectName("javax.cache:type=CacheStatistics,Cache=" + cacheName + ",*");
+        return !ManagementFactory.getPlatformMBeanServer().queryNames(statistics, null).isEmpty();
+    }
+
+    public static class CountingExpiredListener implements CacheEntryExpiredListener<Object, Object> {
+
+        @Override
+        public void onExpired(Iterable<javax.cache.event.CacheEntryEvent<?, ?>> events) {
+            events.forEach(event -> expiredEntries.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.sturdy.alterra.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.repository.cache.CacheInvalidationBus;
+import com.sturdy.alterra.repository.cache.CacheInvalidationTransport;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import tech.jhipster.config.JHipsterProperties;
+
+class CacheStatsEndpointTest {
+
+    private javax.cache.CacheManager jCacheCacheManager;
+
+    private Cache usersByLogin;
+
+    private Cache users;
+
+    private CacheStatsEndpoint endpoint;
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        CacheConfiguration cacheConfiguration = new CacheConfiguration(new JHipsterProperties(), applicationProperties);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(
+            Map.of("cacheManagerCustomizer", cacheConfiguration.cacheManagerCustomizer())
+        );
+        jCacheCacheManager = cacheConfiguration.jCacheCacheManager(beanFactory.getBeanProvider(JCacheManagerCustomizer.class));
+        JCacheCacheManager cacheManager = cacheConfiguration.cacheManager(jCacheCacheManager, Runnable::run);
+        cacheManager.afterPropertiesSet();
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(
+            cacheManager,
+            mock(EntityManagerFactory.class),
+            new StaticListableBeanFactory().getBeanProvider(CacheInvalidationTransport.class),
+            new ObjectMapper(),
+            applicationProperties
+        );
+        endpoint = new CacheStatsEndpoint(jCacheCacheManager, cacheManager, cacheInvalidationBus);
+        usersByLogin = cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE);
+        users = cacheManager.getCache(User.class.getName());
+    }
+
+    @AfterEach
+    public void destroy() {
+        jCacheCacheManager.close();
+    }
+
+    @Test
+    void testStatisticsOfEveryCacheAreReported() {
+        assertThat(endpoint.cacheStats())
+            .containsKeys(
+                UserRepository.USERS_BY_LOGIN_CACHE,
+                UserRepository.USERS_BY_EMAIL_CACHE,
+                User.class.getName(),
+                com.sturdy.alterra.domain.Authority.class.getName(),
+                User.class.getName() + ".authorities"
+            );
+    }
+
+    @Test
+    void testStatisticsOfACache() {
+        usersByLogin.get("admin", () -> "admin");
+        usersByLogin.get("admin", () -> "admin");
+        usersByLogin.get("user", () -> "user");
+
+        CacheStatsEndpoint.CacheStats stats = endpoint.cacheStats(UserRepository.USERS_BY_LOGIN_CACHE);
+
+        assertThat(stats.getSize()).isEqualTo(2);
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(2);
+        assertThat(stats.getEvictions()).isZero();
+        assertThat(stats.getLoads()).isEqualTo(2);
+        assertThat(stats.getAverageLoadTime()).isNotNegative();
+        assertThat(stats.getApproximateFootprint()).isPositive();
+    }
+
+    @Test
+    void testAverageLoadTimeIsInMilliseconds() {
+        usersByLogin.get("admin", () -> load("admin", 20));
+        usersByLogin.get("user", () -> load("user", 40));
+
+        CacheStatsEndpoint.CacheStats stats = endpoint.cacheStats(UserRepository.USERS_BY_LOGIN_CACHE);
+
+        assertThat(stats.getLoads()).isEqualTo(2);
+        // At least the 30 milliseconds the loads sleep on average, and far from the thousands of a wrong unit
+        assertThat(stats.getAverageLoadTime()).isBetween(30f, 1000f);
+    }
+
+    @Test
+    void testReportedHitsLeaveOutThePassesOverTheCache() {
+        usersByLogin.put("admin", "admin");
+        usersByLogin.get("admin", () -> "admin");
+
+        endpoint.cacheStats(UserRepository.USERS_BY_LOGIN_CACHE);
+        endpoint.evict(UserRepository.USERS_BY_LOGIN_CACHE, "user", null);
+
+        assertThat(endpoint.cacheStats(UserRepository.USERS_BY_LOGIN_CACHE).getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void testStatisticsOfAnUnknownCache() {
+        assertThat(endpoint.cacheStats("unknown")).isNull();
+    }
+
+    @Test
+    void testEvictByKey() {
+        usersByLogin.put("admin", "admin");
+        usersByLogin.put("administrator", "administrator");
+
+        assertThat(endpoint.evict(UserRepository.USERS_BY_LOGIN_CACHE, "admin", null)).containsEntry("evicted", 1);
+
+        assertThat(usersByLogin.get("admin")).isNull();
+        assertThat(usersByLogin.get("administrator")).isNotNull();
+    }
+
+    @Test
+    void testEvictByPrefix() {
+        users.put(10L, "user-10");
+        users.put(11L, "user-11");
+        users.put(2L, "user-2");
+
+        assertThat(endpoint.evict(User.class.getName(), null, "1")).containsEntry("evicted", 2);
+
+        assertThat(users.get(10L)).isNull();
+        assertThat(users.get(11L)).isNull();
+        assertThat(users.get(2L)).isNotNull();
+    }
+
+    @Test
+    void testEvictRequiresEitherKeyOrPrefix() {
+        assertThatThrownBy(() -> endpoint.evict(UserRepository.USERS_BY_LOGIN_CACHE, null, null))
+            .isInstanceOf(InvalidEndpointRequestException.class);
+        assertThatThrownBy(() -> endpoint.evict(UserRepository.USERS_BY_LOGIN_CACHE, "admin", "ad"))
+            .isInstanceOf(InvalidEndpointRequestException.class);
+    }
+
+    private static String load(String value, long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sturdy.alterra.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sturdy.alterra.IntegrationTest;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.UserPrincipal;
+import com.sturdy.alterra.repository.UserRepository;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link CacheWarmUp} class.
+ */
+@Transactional
+@IntegrationTest
+class CacheWarmUpIT {
+
+    private static final String LOGIN = "warm-up-user";
+
+    @Autowired
+    private CacheWarmUp cacheWarmUp;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void init() {
+        cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
+        cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
+        User user = new User();
+        user.setLogin(LOGIN);
+        user.setPassword(RandomStringUtils.randomAlphanumeric(60));
+        user.setActivated(true);
+        user.setEmail(LOGIN + "@localhost");
+        user.setLangKey("en");
+        userRepository.saveAndFlush(user);
+    }
+
+    @Test
+    void assertThatRecentlyActiveUsersAreCached() {
+        assertThat(cacheWarmUp.warmUp()).isPositive();
+
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(LOGIN, UserPrincipal.class).getAuthorities()).isNotNull();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).get(LOGIN + "@localhost", String.class)).isEqualTo(LOGIN);
+    }
+
+    @Test
+    void assertThatTheWarmUpIsDoneWhenDisabled() {
+        assertThat(cacheWarmUp.isDone()).isTrue();
+    }
+}
@@ -0,0 +1,158 @@
+package com.sturdy.alterra.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.UserPrincipal;
+import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.repository.cache.CoalescingCache;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Unit tests for the {@link CacheWarmUp} class.
+ */
+class CacheWarmUpTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private UserRepository userRepository;
+
+    private AuthorityRepository authorityRepository;
+
+    private CacheManager cacheManager;
+
+    private final List<Runnable> migrations = new ArrayList<>();
+
+    private DatabaseMigrationExecutor databaseMigrationExecutor;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getCache().getWarmUp().setEnabled(true);
+        applicationProperties.getCache().getWarmUp().setUsers(5);
+        applicationProperties.getCache().getWarmUp().setBatchSize(2);
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findAllLoginsByRecentActivity(PageRequest.of(0, 5))).thenReturn(List.of("a", "b", "c", "d", "e"));
+        when(userRepository.findAllWithAuthoritiesByLoginIn(any()))
+            .thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0).stream().map(this::user).collect(Collectors.toList()));
+        authorityRepository = mock(AuthorityRepository.class);
+        SimpleCacheManager simpleCacheManager = new SimpleCacheManager();
+        simpleCacheManager.setCaches(
+            List.of(
+                new CoalescingCache(new ConcurrentMapCache(UserRepository.USERS_BY_LOGIN_CACHE), null, Runnable::run, Clock.systemUTC()),
+                new CoalescingCache(new ConcurrentMapCache(UserRepository.USERS_BY_EMAIL_CACHE), null, Runnable::run, Clock.systemUTC())
+            )
+        );
+        simpleCacheManager.afterPropertiesSet();
+        cacheManager = simpleCacheManager;
+        databaseMigrationExecutor = new DatabaseMigrationExecutor(migrations::add);
+    }
+
+    @Test
+    void testUsersAreLoadedInBatches() {
+        assertThat(createCacheWarmUp().warmUp()).isEqualTo(5);
+
+        verify(authorityRepository).findAll();
+        verify(userRepository, times(3)).findAllWithAuthoritiesByLoginIn(any());
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("e", UserPrincipal.class).getLogin()).isEqualTo("e");
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).get("e@localhost", String.class)).isEqualTo("e");
+    }
+
+    @Test
+    void testCachedUsersAreKept() {
+        UserPrincipal cached = UserPrincipal.of(user("a"));
+        cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).put("a", cached);
+
+        createCacheWarmUp().warmUp();
+
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("a", UserPrincipal.class)).isSameAs(cached);
+    }
+
+    @Test
+    void testUsersEvictedWhileReadAreNotCached() {
+        when(userRepository.findAllWithAuthoritiesByLoginIn(List.of("a", "b")))
+            .thenAnswer(invocation -> {
+                // Changed on another node once read
+                List<User> users = List.of(user("a"), user("b"));
+                cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).evict("a");
+                cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).evict("a@localhost");
+                return users;
+            });
+
+        createCacheWarmUp().warmUp();
+
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("a")).isNull();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).get("a@localhost")).isNull();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("c")).isNotNull();
+    }
+
+    @Test
+    void testWarmUpStartsOnceTheDatabaseIsMigrated() {
+        databaseMigrationExecutor.execute(() -> {});
+        CacheWarmUp cacheWarmUp = createCacheWarmUp();
+
+        cacheWarmUp.start();
+
+        assertThat(cacheWarmUp.isDone()).isFalse();
+        verify(userRepository, never()).findAllLoginsByRecentActivity(any());
+
+        migrations.forEach(Runnable::run);
+
+        assertThat(cacheWarmUp.isDone()).isTrue();
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("a")).isNotNull();
+    }
+
+    @Test
+    void testFailedWarmUpIsDone() {
+        when(userRepository.findAllLoginsByRecentActivity(any())).thenThrow(new IllegalStateException("Database down"));
+        CacheWarmUp cacheWarmUp = createCacheWarmUp();
+
+        cacheWarmUp.start();
+
+        assertThat(cacheWarmUp.isDone()).isTrue();
+    }
+
+    @Test
+    void testDisabledWarmUpIsDone() {
+        applicationProperties.getCache().getWarmUp().setEnabled(false);
+
+        assertThat(createCacheWarmUp().isDone()).isTrue();
+    }
+
+    private CacheWarmUp createCacheWarmUp() {
+        return new CacheWarmUp(
+            applicationProperties,
+            databaseMigrationExecutor,
+            Runnable::run,
+            userRepository,
+            authorityRepository,
+            cacheManager,
+            mock(PlatformTransactionManager.class)
+        );
+    }
+
+    private User user(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@localhost");
+        return user;
+    }
+}
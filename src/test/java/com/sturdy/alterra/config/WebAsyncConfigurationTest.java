@@ -0,0 +1,84 @@
+package com.sturdy.alterra.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+/**
+ * Unit tests for the {@link WebAsyncConfiguration} class.
+ */
+class WebAsyncConfigurationTest {
+
+    private WebAsyncConfiguration webAsyncConfiguration;
+
+    private TestAsyncSupportConfigurer configurer;
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getUsers().getBulk().setRequestTimeout(Duration.ofMinutes(5));
+        applicationProperties.getUsers().getBulk().setMaxConcurrency(1);
+        applicationProperties.getUsers().getBulk().setQueueCapacity(1);
+        webAsyncConfiguration = new WebAsyncConfiguration(applicationProperties);
+        configurer = new TestAsyncSupportConfigurer();
+        webAsyncConfiguration.configureAsyncSupport(configurer);
+    }
+
+    @AfterEach
+    public void teardown() {
+        webAsyncConfiguration.destroy();
+    }
+
+    @Test
+    void shouldConfigureTheRequestTimeout() {
+        assertThat(configurer.timeout()).isEqualTo(Duration.ofMinutes(5).toMillis());
+    }
+
+    @Test
+    void shouldRunOnNamedThreads() throws Exception {
+        assertThat(configurer.taskExecutor().submit(() -> Thread.currentThread().getName()).get()).startsWith("web-async-");
+    }
+
+    @Test
+    void shouldRejectTheRequestsBeyondTheQueueCapacity() throws Exception {
+        AsyncTaskExecutor executor = configurer.taskExecutor();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> first = executor.submit(() -> {
+            running.countDown();
+            release.await();
+            return null;
+        });
+        running.await();
+        Future<?> queued = executor.submit(() -> null);
+
+        assertThatThrownBy(() -> executor.submit(() -> null)).isInstanceOf(TaskRejectedException.class);
+
+        release.countDown();
+        first.get();
+        queued.get();
+    }
+
+    /**
+     * Exposes what the configuration set.
+     */
+    private static class TestAsyncSupportConfigurer extends AsyncSupportConfigurer {
+
+        Long timeout() {
+            return getTimeout();
+        }
+
+        AsyncTaskExecutor taskExecutor() {
+            return getTaskExecutor();
+        }
+    }
+}
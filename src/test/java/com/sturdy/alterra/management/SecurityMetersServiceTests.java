@@ -12,6 +12,8 @@ import org.junit.jupiter.api.Test;
 class SecurityMetersServiceTests {
 
     private static final String INVALID_TOKENS_METER_EXPECTED_NAME = "security.authentication.invalid-tokens";
+    private static final String TOKEN_CACHE_METER_EXPECTED_NAME = "security.authentication.token-cache";
+    private static final String REVOCATION_LOOKUPS_METER_EXPECTED_NAME = "security.authentication.revocation-lookups";
 
     private MeterRegistry meterRegistry;
 
@@ -36,9 +38,11 @@ class SecurityMetersServiceTests {
 
         meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "malformed").counter();
 
+        meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "revoked").counter();
+
         Collection<Counter> counters = meterRegistry.find(INVALID_TOKENS_METER_EXPECTED_NAME).counters();
 
-        assertThat(counters).hasSize(4);
+        assertThat(counters).hasSize(5);
     }
 
     @Test
@@ -66,5 +70,38 @@ class SecurityMetersServiceTests {
         securityMetersService.trackTokenMalformed();
 
         assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "malformed").counter().count()).isEqualTo(1);
+
+        assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "revoked").counter().count()).isZero();
+
+        securityMetersService.trackTokenRevoked();
+
+        assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "revoked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testTokenCacheCountersAreBoundToCorrectResults() {
+        assertThat(meterRegistry.find(TOKEN_CACHE_METER_EXPECTED_NAME).counters()).hasSize(2);
+
+        securityMetersService.trackTokenCacheHit();
+        securityMetersService.trackTokenCacheHit();
+        securityMetersService.trackTokenCacheMiss();
+
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRevocationLookupCountersAreBoundToCorrectResults() {
+        assertThat(meterRegistry.find(REVOCATION_LOOKUPS_METER_EXPECTED_NAME).counters()).hasSize(3);
+
+        securityMetersService.trackRevocationLookupAbsent();
+        securityMetersService.trackRevocationLookupAbsent();
+        securityMetersService.trackRevocationLookupRevoked();
+        securityMetersService.trackRevocationLookupFalsePositive();
+
+        assertThat(meterRegistry.get(REVOCATION_LOOKUPS_METER_EXPECTED_NAME).tag("result", "absent").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(REVOCATION_LOOKUPS_METER_EXPECTED_NAME).tag("result", "revoked").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(REVOCATION_LOOKUPS_METER_EXPECTED_NAME).tag("result", "false-positive").counter().count())
+            .isEqualTo(1);
     }
 }
@@ -0,0 +1,36 @@
+package com.sturdy.alterra.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Records the SQL statements Hibernate prepares on the current thread, while {@link #record(Runnable)} runs, for the
+ * tests to inspect them.
+ */
+public class StatementRecorder implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> recorded = new ThreadLocal<>();
+
+    /**
+     * @return the statements prepared while running the action.
+     */
+    public static List<String> record(Runnable action) {
+        recorded.set(new ArrayList<>());
+        try {
+            action.run();
+            return recorded.get();
+        } finally {
+            recorded.remove();
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = recorded.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}
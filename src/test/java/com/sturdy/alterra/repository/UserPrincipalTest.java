@@ -0,0 +1,60 @@
+package com.sturdy.alterra.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.SerializationUtils;
+
+class UserPrincipalTest {
+
+    @Test
+    void testPrincipalOfAUser() {
+        User user = user();
+
+        UserPrincipal principal = UserPrincipal.of(user);
+        user.getAuthorities().clear();
+
+        assertThat(principal.getId()).isEqualTo(1L);
+        assertThat(principal.getLogin()).isEqualTo("user");
+        assertThat(principal.getEmail()).isEqualTo("user@localhost");
+        assertThat(principal.getPassword()).isEqualTo(user.getPassword());
+        assertThat(principal.isActivated()).isTrue();
+        assertThat(principal.getAuthorities()).containsOnly(AuthoritiesConstants.USER);
+        assertThatThrownBy(() -> principal.getAuthorities().clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testAuthorityNamesAreShared() {
+        UserPrincipal principal = UserPrincipal.of(user());
+
+        UserPrincipal deserialized = (UserPrincipal) SerializationUtils.deserialize(SerializationUtils.serialize(principal));
+
+        assertThat(deserialized.getLogin()).isEqualTo("user");
+        assertThat(deserialized.getAuthorities().iterator().next()).isSameAs(principal.getAuthorities().iterator().next());
+    }
+
+    @Test
+    void testPasswordIsNotPrinted() {
+        assertThat(UserPrincipal.of(user()).toString()).doesNotContain("$2a$");
+    }
+
+    private User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("user");
+        user.setEmail("user@localhost");
+        user.setPassword("$2a$10$VEjxo0jq2YG9Rbk2HmX9S.k1uZBGYUHdUcid3g/vfiEl7lwWgOH/K");
+        user.setActivated(true);
+        Authority authority = new Authority();
+        // Not the constant itself, which is interned already
+        authority.setName(new String(AuthoritiesConstants.USER));
+        user.setAuthorities(new HashSet<>(Set.of(authority)));
+        return user;
+    }
+}
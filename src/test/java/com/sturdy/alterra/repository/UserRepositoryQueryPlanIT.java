@@ -0,0 +1,149 @@
+package com.sturdy.alterra.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sturdy.alterra.IntegrationTest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests checking that the lookups of {@link UserRepository} and {@link UserStreamRepository} are served by
+ * indexes.
+ * <p>
+ * Each query is explained with the sequential scans disabled, which PostgreSQL still plans if no index serves the
+ * query: the few users of the tests would otherwise be read with a sequential scan anyway. The queries reading all the
+ * users, such as the ones of the cache warm-up, are left out.
+ */
+@IntegrationTest
+@Transactional
+class UserRepositoryQueryPlanIT {
+
+    private static final Timestamp THREE_DAYS_AGO = Timestamp.from(Instant.now().minusSeconds(3 * 24 * 3600));
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserStreamRepository userStreamRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void testFindOneByLoginUsesAnIndex() {
+        assertUsesIndexes(() -> userRepository.findOneByLogin("user"), "user");
+        assertUsesIndexes(() -> userRepository.findOneWithAuthoritiesByLogin("user"), "user");
+        assertUsesIndexes(() -> userRepository.findAllWithAuthoritiesByLoginIn(List.of("user")), "user");
+    }
+
+    @Test
+    void testFindOneByEmailIgnoreCaseUsesAnIndex() {
+        cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
+
+        assertUsesIndexes(() -> userRepository.findOneByEmailIgnoreCase("User@localhost"), "User@localhost");
+        assertUsesIndexes(() -> userRepository.findOneWithAuthoritiesByEmailIgnoreCase("User@localhost"), "User@localhost");
+        assertUsesIndexes(() -> userRepository.findLoginByEmailIgnoreCase("User@localhost"), "User@localhost");
+    }
+
+    @Test
+    void testFindAllUsedLoginsAndEmailsUsesAnIndex() {
+        assertUsesIndexes(() -> userRepository.findAllLoginsByLoginIn(List.of("user")), "user");
+        assertUsesIndexes(() -> userRepository.findAllUpperEmailsByUpperEmailIn(List.of("USER@LOCALHOST")), "USER@LOCALHOST");
+    }
+
+    @Test
+    void testFindAuthorityNamesByUserIdInUsesAnIndex() {
+        assertUsesIndexes(() -> userStreamRepository.findAuthorityNamesByUserIdIn(List.of(1L)), 1L);
+    }
+
+    @Test
+    void testFindOneByActivationKeyUsesAnIndex() {
+        assertUsesIndexes(() -> userRepository.findOneByActivationKey("12345678901234567890"), "12345678901234567890");
+    }
+
+    @Test
+    void testFindOneByResetKeyUsesAnIndex() {
+        assertUsesIndexes(() -> userRepository.findOneByResetKey("12345678901234567890"), "12345678901234567890");
+    }
+
+    @Test
+    void testFindAllNotActivatedUsesAnIndex() {
+        assertUsesIndexes(
+            () -> userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(THREE_DAYS_AGO.toInstant()),
+            THREE_DAYS_AGO
+        );
+        assertUsesIndexes(
+            () ->
+                userRepository.findAllNotActivatedByCreatedDateBeforeAndIdGreaterThan(
+                    THREE_DAYS_AGO.toInstant(),
+                    0L,
+                    PageRequest.of(0, 10)
+                ),
+            THREE_DAYS_AGO,
+            0L,
+            10
+        );
+    }
+
+    @Test
+    void testFindAllByLastModifiedDateAfterUsesAnIndex() {
+        assertUsesIndexes(() -> userRepository.findAllLoginsAndEmailsByLastModifiedDateAfter(THREE_DAYS_AGO.toInstant()), THREE_DAYS_AGO);
+    }
+
+    @Test
+    void testFindAllActivatedUsesAnIndex() {
+        assertUsesIndexes(() -> userRepository.findAllByIdNotNullAndActivatedIsTrue(PageRequest.of(0, 10, Sort.by("id"))), 10);
+    }
+
+    /**
+     * Run the query, and explain the statements it prepared with the given parameters.
+     */
+    private void assertUsesIndexes(Runnable query, Object... parameters) {
+        List<String> statements = StatementRecorder.record(query);
+
+        assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            assertThat(sql.chars().filter(c -> c == '?').count()).as(sql).isEqualTo(parameters.length);
+            List<String> plan = explain(sql, parameters);
+            assertThat(plan).as(String.join("\n", plan)).noneMatch(line -> line.contains("Seq Scan"));
+        }
+    }
+
+    private List<String> explain(String sql, Object... parameters) {
+        return em
+            .unwrap(Session.class)
+            .doReturningWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("set local enable_seqscan = off");
+                }
+                List<String> plan = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                    for (int i = 0; i < parameters.length; i++) {
+                        statement.setObject(i + 1, parameters[i]);
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            plan.add(resultSet.getString(1));
+                        }
+                    }
+                }
+                return plan;
+            });
+    }
+}
@@ -0,0 +1,227 @@
+package com.sturdy.alterra.repository.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.UserRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class CacheInvalidationBusTest {
+
+    private static final String USER = User.class.getName();
+
+    private InMemoryTransport transport;
+
+    private CacheManager localCacheManager;
+
+    private CacheManager peerCacheManager;
+
+    private SessionFactoryImplementor peerSessionFactory;
+
+    private CacheInvalidationBus localBus;
+
+    private CacheInvalidationBus peerBus;
+
+    @BeforeEach
+    public void setup() {
+        transport = new InMemoryTransport(1000);
+        localCacheManager = new ConcurrentMapCacheManager(UserRepository.USERS_BY_LOGIN_CACHE, UserRepository.USERS_BY_EMAIL_CACHE);
+        peerCacheManager = new ConcurrentMapCacheManager(UserRepository.USERS_BY_LOGIN_CACHE, UserRepository.USERS_BY_EMAIL_CACHE);
+        peerSessionFactory = mock(SessionFactoryImplementor.class, RETURNS_DEEP_STUBS);
+        EntityPersister userPersister = peerSessionFactory.getMetamodel().entityPersister(USER);
+        when(userPersister.getIdentifierType().getReturnedClass()).thenReturn((Class) Long.class);
+        CollectionType authorities = mock(CollectionType.class);
+        when(authorities.getRole()).thenReturn(USER + ".authorities");
+        when(userPersister.getPropertyTypes()).thenReturn(new Type[] { mock(Type.class), authorities });
+        EntityManagerFactory peerEntityManagerFactory = mock(EntityManagerFactory.class);
+        when(peerEntityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(peerSessionFactory);
+
+        localBus = createBus(localCacheManager, mock(EntityManagerFactory.class));
+        peerBus = createBus(peerCacheManager, peerEntityManagerFactory);
+        localCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).put("admin", "admin");
+        peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).put("admin", "admin");
+        peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).put("user", "user");
+    }
+
+    @AfterEach
+    public void destroy() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testEvictionsAreAppliedLocallyAndSentToThePeers() {
+        localBus.evict(UserRepository.USERS_BY_LOGIN_CACHE, "admin");
+
+        assertThat(localCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNull();
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNotNull();
+
+        localBus.flush();
+
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNull();
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("user")).isNotNull();
+    }
+
+    @Test
+    void testEntityEvictionsAreSentToThePeers() {
+        localBus.evictEntity(User.class, 1L);
+        localBus.flush();
+
+        verify(peerSessionFactory.getCache()).evictEntityData(USER, 1L);
+        verify(peerSessionFactory.getCache()).evictCollectionData(USER + ".authorities", 1L);
+    }
+
+    @Test
+    void testEvictionsAreSentOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        localBus.evict(UserRepository.USERS_BY_LOGIN_CACHE, "admin");
+        localBus.flush();
+
+        assertThat(transport.messages).isEmpty();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        localBus.flush();
+
+        assertThat(transport.messages).hasSize(1);
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNull();
+    }
+
+    @Test
+    void testBulkEvictionsAreSentOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        localBus.evictAll(UserRepository.USERS_BY_LOGIN_CACHE, List.of("admin", "user"));
+        localBus.evictEntities(User.class, List.of(1L, 2L));
+
+        assertThat(localCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNull();
+        assertThat(localCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("user")).isNull();
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(2);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        localBus.flush();
+
+        assertThat(transport.messages).hasSize(1);
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNull();
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("user")).isNull();
+        verify(peerSessionFactory.getCache()).evictEntityData(USER, 2L);
+    }
+
+    @Test
+    void testEvictionsAreCoalesced() {
+        for (int i = 0; i < 3; i++) {
+            localBus.evict(UserRepository.USERS_BY_LOGIN_CACHE, "admin");
+            localBus.evict(UserRepository.USERS_BY_EMAIL_CACHE, "admin@localhost");
+            localBus.evictEntity(User.class, 1L);
+        }
+        localBus.flush();
+
+        assertThat(transport.messages).hasSize(1);
+        assertThat(transport.messages.get(0))
+            .containsOnlyOnce("\"admin\"")
+            .containsOnlyOnce("\"admin@localhost\"")
+            .containsOnlyOnce("\"1\"");
+    }
+
+    @Test
+    void testLargeBurstsAreSplitToFitTheTransport() {
+        for (int i = 0; i < 100; i++) {
+            peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).put("user-" + i, "user");
+            localBus.evict(UserRepository.USERS_BY_LOGIN_CACHE, "user-" + i);
+        }
+        localBus.flush();
+
+        assertThat(transport.messages.size()).isGreaterThan(1);
+        assertThat(transport.messages).allMatch(message -> message.getBytes(StandardCharsets.UTF_8).length <= 1000);
+        for (int i = 0; i < 100; i++) {
+            assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("user-" + i)).isNull();
+        }
+    }
+
+    @Test
+    void testMissedMessagesClearTheInvalidatedCaches() {
+        localBus.evict(UserRepository.USERS_BY_LOGIN_CACHE, "admin");
+        localBus.flush();
+        peerCacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).put("user@localhost", "user");
+
+        peerBus.onMissedMessages();
+
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("user")).isNull();
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).get("user@localhost")).isNotNull();
+    }
+
+    @Test
+    void testMalformedMessagesAreIgnored() {
+        peerBus.onMessage("{not json");
+
+        assertThat(peerCacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get("admin")).isNotNull();
+    }
+
+    private CacheInvalidationBus createBus(CacheManager cacheManager, EntityManagerFactory entityManagerFactory) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("cacheInvalidationTransport", transport));
+        return new CacheInvalidationBus(
+            cacheManager,
+            entityManagerFactory,
+            beanFactory.getBeanProvider(CacheInvalidationTransport.class),
+            new ObjectMapper(),
+            new ApplicationProperties()
+        );
+    }
+
+    /**
+     * A transport delivering every message at once to every listener, the publisher included.
+     */
+    private static class InMemoryTransport implements CacheInvalidationTransport {
+
+        private final int maxMessageSize;
+
+        private final List<Listener> listeners = new ArrayList<>();
+
+        private final List<String> messages = new ArrayList<>();
+
+        InMemoryTransport(int maxMessageSize) {
+            this.maxMessageSize = maxMessageSize;
+        }
+
+        @Override
+        public void publish(String message) {
+            messages.add(message);
+            listeners.forEach(listener -> listener.onMessage(message));
+        }
+
+        @Override
+        public void subscribe(Listener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public int getMaxMessageSize() {
+            return maxMessageSize;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.sturdy.alterra.repository.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class CoalescingCacheTest {
+
+    private ConcurrentMapCache target;
+
+    private Clock clock;
+
+    private CoalescingCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void setup() {
+        target = new ConcurrentMapCache("usersByLogin");
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        cache = new CoalescingCache(target, Duration.ofMinutes(45), Runnable::run, clock);
+    }
+
+    @AfterEach
+    public void destroy() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(
+                executor.submit(() ->
+                    cache.get(
+                        "admin",
+                        () -> {
+                            loading.countDown();
+                            loaded.await();
+                            return load("admin");
+                        }
+                    )
+                )
+            );
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> cache.get("admin", () -> load("admin"))));
+            }
+            Thread.sleep(100);
+            loaded.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("admin-1");
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedLoadsAreNotCached() {
+        Callable<String> failingLoader = () -> {
+            throw new IllegalStateException("Database down");
+        };
+
+        assertThatThrownBy(() -> cache.get("admin", failingLoader))
+            .isInstanceOf(Cache.ValueRetrievalException.class)
+            .hasRootCauseMessage("Database down");
+
+        assertThat(cache.get("admin", () -> load("admin"))).isEqualTo("admin-1");
+    }
+
+    @Test
+    void testMissingValuesAreNotCached() {
+        assertThat(cache.<String>get("unknown", () -> null)).isNull();
+
+        assertThat(target.get("unknown")).isNull();
+        assertThat(cache.get("unknown", () -> load("unknown"))).isEqualTo("unknown-1");
+    }
+
+    @Test
+    void testEntriesAreRefreshedAheadOfTheirExpiry() {
+        cache.get("admin", () -> load("admin"));
+        when(clock.millis()).thenReturn(Duration.ofMinutes(44).toMillis());
+
+        assertThat(cache.get("admin", () -> load("admin"))).isEqualTo("admin-1");
+        assertThat(loads.get()).isEqualTo(1);
+
+        when(clock.millis()).thenReturn(Duration.ofMinutes(45).toMillis());
+
+        // The refresh runs in the background, the current value is returned meanwhile
+        assertThat(cache.get("admin", () -> load("admin"))).isEqualTo("admin-1");
+        assertThat(cache.get("admin", () -> load("admin"))).isEqualTo("admin-2");
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testLoadsEvictedMeanwhileAreNotCached() {
+        String value = cache.get(
+            "admin",
+            () -> {
+                cache.evict("admin");
+                return load("admin");
+            }
+        );
+
+        assertThat(value).isEqualTo("admin-1");
+        assertThat(target.get("admin")).isNull();
+    }
+
+    @Test
+    void testValuesAreReadAndWrittenAsIs() {
+        cache.put("admin", "admin");
+
+        assertThat(cache.get("admin").get()).isEqualTo("admin");
+        assertThat(cache.get("admin", String.class)).isEqualTo("admin");
+        assertThat(cache.putIfAbsent("admin", "other").get()).isEqualTo("admin");
+        assertThat(cache.get("admin", () -> load("admin"))).isEqualTo("admin");
+        assertThat(loads.get()).isZero();
+    }
+
+    @Test
+    void testValuesAreStoredAsIsWithoutRefresh() {
+        cache = new CoalescingCache(target, null, Runnable::run, clock);
+
+        cache.put("admin", "admin");
+        cache.get("user", () -> load("user"));
+
+        assertThat(target.get("admin").get()).isEqualTo("admin");
+        assertThat(target.get("user").get()).isEqualTo("user-1");
+    }
+
+    @Test
+    void testValuesReadBeforeAnEvictionAreNotStored() {
+        CoalescingCache.Versions versions = cache.getVersions();
+        cache.evict("admin");
+
+        cache.putIfAbsent("admin", "admin", versions);
+        cache.putIfAbsent("user", "user", cache.getVersions());
+
+        assertThat(target.get("admin")).isNull();
+        assertThat(cache.get("user").get()).isEqualTo("user");
+    }
+
+    @Test
+    void testVersionedValuesDoNotReplaceCachedOnes() {
+        cache.put("admin", "admin");
+
+        cache.putIfAbsent("admin", "other", cache.getVersions());
+
+        assertThat(cache.get("admin").get()).isEqualTo("admin");
+    }
+
+    @Test
+    void testValuesReadInATransactionAreStoredOnceItCommits() {
+        beginTransaction();
+
+        assertThat(cache.get("admin", () -> load("admin"))).isEqualTo("admin-1");
+        cache.put("user", "user");
+        assertThat(target.get("admin")).isNull();
+        assertThat(target.get("user")).isNull();
+
+        commit();
+
+        assertThat(cache.get("admin").get()).isEqualTo("admin-1");
+        assertThat(cache.get("user").get()).isEqualTo("user");
+    }
+
+    @Test
+    void testValuesReadInARolledBackTransactionAreNotStored() {
+        beginTransaction();
+
+        cache.get("admin", () -> load("admin"));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(target.get("admin")).isNull();
+    }
+
+    @Test
+    void testValuesReadInATransactionAreNotStoredIfEvictedBeforeItCommits() {
+        beginTransaction();
+
+        cache.get("admin", () -> load("admin"));
+        cache.evict("admin");
+        commit();
+
+        assertThat(target.get("admin")).isNull();
+    }
+
+    @Test
+    void testReadOnlyTransactionsStoreValuesAtOnce() {
+        beginTransaction();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            cache.get("admin", () -> load("admin"));
+
+            assertThat(cache.get("admin").get()).isEqualTo("admin-1");
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    private void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private String load(String key) {
+        return key + "-" + loads.incrementAndGet();
+    }
+}
@@ -0,0 +1,88 @@
+package com.sturdy.alterra.repository.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sturdy.alterra.IntegrationTest;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+/**
+ * Integration tests for {@link PostgresCacheInvalidationTransport}, between two transports standing for two nodes.
+ */
+@IntegrationTest
+class PostgresCacheInvalidationTransportIT {
+
+    private static final String CHANNEL = "cache_invalidation_test";
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    private PostgresCacheInvalidationTransport publisher;
+
+    private PostgresCacheInvalidationTransport subscriber;
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<Boolean> missedMessages = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void setup() throws InterruptedException {
+        publisher = createTransport();
+        subscriber = createTransport();
+        subscriber.subscribe(
+            new CacheInvalidationTransport.Listener() {
+                @Override
+                public void onMessage(String message) {
+                    received.add(message);
+                }
+
+                @Override
+                public void onMissedMessages() {
+                    missedMessages.add(true);
+                }
+            }
+        );
+        assertThat(missedMessages.poll(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.isListening()).isTrue();
+    }
+
+    @AfterEach
+    public void destroy() throws InterruptedException {
+        publisher.destroy();
+        subscriber.destroy();
+    }
+
+    @Test
+    void assertThatMessagesAreDeliveredToTheOtherNodes() throws InterruptedException {
+        publisher.publish("{\"caches\":{\"usersByLogin\":[\"admin\"]}}");
+        publisher.publish("{\"caches\":{\"usersByLogin\":[\"user\"]}}");
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("{\"caches\":{\"usersByLogin\":[\"admin\"]}}");
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("{\"caches\":{\"usersByLogin\":[\"user\"]}}");
+    }
+
+    @Test
+    void assertThatTheLargestMessageIsDelivered() throws InterruptedException {
+        String message = "x".repeat(PostgresCacheInvalidationTransport.MAX_MESSAGE_SIZE);
+
+        publisher.publish(message);
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo(message);
+    }
+
+    private PostgresCacheInvalidationTransport createTransport() {
+        return new PostgresCacheInvalidationTransport(
+            dataSourceProperties.initializeDataSourceBuilder().type(SimpleDriverDataSource.class).build(),
+            CHANNEL,
+            Duration.ofMillis(100)
+        );
+    }
+}
@@ -0,0 +1,69 @@
+package com.sturdy.alterra.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void testInsertedIdsAreAlwaysFound() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        List<String> tokenIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String tokenId = UUID.randomUUID().toString();
+            tokenIds.add(tokenId);
+            filter.put(tokenId);
+        }
+
+        assertThat(tokenIds).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void testFalsePositiveRateStaysCloseToTarget() {
+        BloomFilter filter = BloomFilter.create(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100000.0).isLessThan(0.02);
+        assertThat(filter.getExpectedFalsePositiveRate()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    void testSizing() {
+        BloomFilter filter = BloomFilter.create(100000, 0.001);
+
+        assertThat(filter.getCapacity()).isEqualTo(100000);
+        assertThat(filter.getBitCount()).isBetween(1430000L, 1440000L);
+        assertThat(filter.getHashFunctions()).isEqualTo(10);
+        assertThat(filter.getExpectedFalsePositiveRate()).isZero();
+    }
+
+    @Test
+    void testIdsAlreadyInFilterAreNotCountedTwice() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+
+        filter.put("token-id");
+        filter.put("token-id");
+
+        assertThat(filter.getInsertions()).isEqualTo(1);
+    }
+
+    @Test
+    void testInvalidSizingIsRejected() {
+        assertThatThrownBy(() -> BloomFilter.create(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
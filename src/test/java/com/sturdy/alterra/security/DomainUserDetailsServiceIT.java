@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import com.sturdy.alterra.IntegrationTest;
+import com.sturdy.alterra.config.ApplicationProperties;
 import com.sturdy.alterra.domain.User;
 import com.sturdy.alterra.repository.UserRepository;
 import java.util.Locale;
@@ -14,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -37,6 +39,12 @@ class DomainUserDetailsServiceIT {
     @Qualifier("userDetailsService")
     private UserDetailsService domainUserDetailsService;
 
+    @Autowired
+    private KnownUserFilter knownUserFilter;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     @BeforeEach
     public void init() {
         User userOne = new User();
@@ -110,4 +118,21 @@ class DomainUserDetailsServiceIT {
         assertThatExceptionOfType(UserNotActivatedException.class)
             .isThrownBy(() -> domainUserDetailsService.loadUserByUsername(USER_THREE_LOGIN));
     }
+
+    @Test
+    void assertThatUnknownUsersAreRejectedByTheKnownUserFilter() {
+        applicationProperties.getSecurity().getKnownUsers().setEnabled(true);
+        try {
+            knownUserFilter.sync();
+
+            assertThat(domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN).getUsername()).isEqualTo(USER_ONE_LOGIN);
+            assertThat(domainUserDetailsService.loadUserByUsername(USER_TWO_EMAIL).getUsername()).isEqualTo(USER_TWO_LOGIN);
+            assertThatExceptionOfType(UsernameNotFoundException.class)
+                .isThrownBy(() -> domainUserDetailsService.loadUserByUsername("unknown-user"));
+            assertThatExceptionOfType(UsernameNotFoundException.class)
+                .isThrownBy(() -> domainUserDetailsService.loadUserByUsername("unknown-user@localhost"));
+        } finally {
+            applicationProperties.getSecurity().getKnownUsers().setEnabled(false);
+        }
+    }
 }
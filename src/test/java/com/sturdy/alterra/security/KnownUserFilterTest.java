@@ -0,0 +1,165 @@
+package com.sturdy.alterra.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+class KnownUserFilterTest {
+
+    private UserRepository userRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties applicationProperties;
+
+    private KnownUserFilter knownUserFilter;
+
+    @BeforeEach
+    public void setup() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findAllLoginsAndEmailsByIdGreaterThan(anyLong(), any()))
+            .thenReturn(List.of(loginAndEmail(1L, "admin", "Admin@localhost")));
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getKnownUsers().setExpectedUsers(100);
+        knownUserFilter =
+            new KnownUserFilter(userRepository, new SecurityMetersService(meterRegistry), applicationProperties, meterRegistry);
+    }
+
+    @Test
+    void testEveryUserMightExistBeforeTheFirstSync() {
+        assertThat(knownUserFilter.mightExist("unknown")).isTrue();
+        assertThat(meterRegistry.get(KnownUserFilter.FILTER_METER_NAME + ".keys").gauge().value()).isNaN();
+    }
+
+    @Test
+    void testUnknownUsersAreAbsent() {
+        knownUserFilter.sync();
+
+        assertThat(knownUserFilter.mightExist("ADMIN")).isTrue();
+        assertThat(knownUserFilter.mightExist("admin@localhost")).isTrue();
+        assertThat(knownUserFilter.mightExist("unknown")).isFalse();
+        assertThat(knownUserFilter.mightExist("unknown@localhost")).isFalse();
+        assertThat(meterRegistry.get(SecurityMetersService.USER_LOOKUPS_METER_NAME).tag("result", "absent").counter().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get(SecurityMetersService.USER_LOOKUPS_METER_NAME).tag("result", "maybe-present").counter().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get(KnownUserFilter.FILTER_METER_NAME + ".keys").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void testAddedUsersMightExist() {
+        knownUserFilter.sync();
+        User user = new User();
+        user.setLogin("new-user");
+        user.setEmail("new-user@localhost");
+
+        knownUserFilter.add(user);
+
+        assertThat(knownUserFilter.mightExist("new-user")).isTrue();
+        assertThat(knownUserFilter.mightExist("new-user@localhost")).isTrue();
+    }
+
+    @Test
+    void testSyncAddsTheUsersChangedOnOtherNodes() {
+        knownUserFilter.sync();
+        when(userRepository.findAllLoginsAndEmailsByLastModifiedDateAfter(any()))
+            .thenReturn(List.of(loginAndEmail(2L, "remote-user", null)));
+
+        knownUserFilter.sync();
+
+        assertThat(knownUserFilter.mightExist("remote-user")).isTrue();
+        verify(userRepository).findAllLoginsAndEmailsByLastModifiedDateAfter(any(Instant.class));
+    }
+
+    @Test
+    void testSyncRebuildsOnceDue() {
+        applicationProperties.getSecurity().getKnownUsers().setRebuildInterval(Duration.ZERO);
+        knownUserFilter.sync();
+        when(userRepository.findAllLoginsAndEmailsByIdGreaterThan(anyLong(), any())).thenReturn(List.of());
+
+        knownUserFilter.sync();
+
+        assertThat(knownUserFilter.mightExist("admin")).isFalse();
+    }
+
+    @Test
+    void testRebuildReadsTheUsersByBatches() {
+        applicationProperties.getSecurity().getKnownUsers().setRebuildBatchSize(2);
+        when(userRepository.findAllLoginsAndEmailsByIdGreaterThan(0L, PageRequest.of(0, 2)))
+            .thenReturn(List.of(loginAndEmail(1L, "admin", null), loginAndEmail(3L, "user", null)));
+        when(userRepository.findAllLoginsAndEmailsByIdGreaterThan(3L, PageRequest.of(0, 2)))
+            .thenReturn(List.of(loginAndEmail(4L, "other-user", null)));
+
+        knownUserFilter.sync();
+
+        assertThat(knownUserFilter.mightExist("admin")).isTrue();
+        assertThat(knownUserFilter.mightExist("user")).isTrue();
+        assertThat(knownUserFilter.mightExist("other-user")).isTrue();
+        verify(userRepository, never()).findAllLoginsAndEmailsByIdGreaterThan(eq(4L), any());
+    }
+
+    @Test
+    void testUsersAddedDuringARebuildAreKept() {
+        applicationProperties.getSecurity().getKnownUsers().setRebuildInterval(Duration.ZERO);
+        knownUserFilter.sync();
+        User user = new User();
+        user.setLogin("new-user");
+        user.setEmail("new-user@localhost");
+        when(userRepository.findAllLoginsAndEmailsByIdGreaterThan(anyLong(), any()))
+            .thenAnswer(invocation -> {
+                knownUserFilter.add(user);
+                return List.of(loginAndEmail(1L, "admin", "Admin@localhost"));
+            });
+
+        knownUserFilter.sync();
+
+        assertThat(knownUserFilter.mightExist("new-user")).isTrue();
+        assertThat(knownUserFilter.mightExist("new-user@localhost")).isTrue();
+    }
+
+    @Test
+    void testEveryUserMightExistWhenDisabled() {
+        knownUserFilter.sync();
+        applicationProperties.getSecurity().getKnownUsers().setEnabled(false);
+
+        assertThat(knownUserFilter.mightExist("unknown")).isTrue();
+    }
+
+    private static UserRepository.IdLoginAndEmail loginAndEmail(Long id, String login, String email) {
+        return new UserRepository.IdLoginAndEmail() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getLogin() {
+                return login;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+}
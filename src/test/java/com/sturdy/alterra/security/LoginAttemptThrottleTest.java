@@ -0,0 +1,75 @@
+package com.sturdy.alterra.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.management.SecurityMetersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LoginAttemptThrottleTest {
+
+    private static final String THROTTLED_LOGINS_METER_EXPECTED_NAME = "security.authentication.throttled-logins";
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties applicationProperties;
+
+    private LoginAttemptThrottle loginAttemptThrottle;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getLoginThrottling().setWindow(Duration.ofHours(1));
+        applicationProperties.getSecurity().getLoginThrottling().setMaxAttemptsPerLogin(3);
+        applicationProperties.getSecurity().getLoginThrottling().setMaxAttemptsPerAddress(5);
+        loginAttemptThrottle = new LoginAttemptThrottle(applicationProperties, new SecurityMetersService(meterRegistry));
+    }
+
+    @Test
+    void testAttemptsOverTheLoginLimitAreRejected() {
+        loginAttemptThrottle.acquire("user", "10.0.0.1");
+        loginAttemptThrottle.acquire("USER", "10.0.0.2");
+        loginAttemptThrottle.acquire("user", "10.0.0.3");
+
+        assertThatThrownBy(() -> loginAttemptThrottle.acquire("user", "10.0.0.4"))
+            .isInstanceOf(LoginThrottledException.class)
+            .extracting("retryAfter")
+            .satisfies(retryAfter -> assertThat((Duration) retryAfter).isPositive().isLessThanOrEqualTo(Duration.ofHours(1)));
+        assertThat(countFor("login")).isEqualTo(1);
+        assertThatCode(() -> loginAttemptThrottle.acquire("other", "10.0.0.4")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testAttemptsOverTheAddressLimitAreRejected() {
+        for (int i = 0; i < 5; i++) {
+            loginAttemptThrottle.acquire("user-" + i, "10.0.0.1");
+        }
+
+        assertThatThrownBy(() -> loginAttemptThrottle.acquire("user-5", "10.0.0.1")).isInstanceOf(LoginThrottledException.class);
+        assertThat(countFor("address")).isEqualTo(1);
+        assertThatCode(() -> loginAttemptThrottle.acquire("user-5", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void testNothingIsRejectedWhenDisabled() {
+        applicationProperties.getSecurity().getLoginThrottling().setEnabled(false);
+
+        assertThatCode(() -> {
+                for (int i = 0; i < 10; i++) {
+                    loginAttemptThrottle.acquire("user", "10.0.0.1");
+                }
+            })
+            .doesNotThrowAnyException();
+    }
+
+    private double countFor(String key) {
+        return meterRegistry.get(THROTTLED_LOGINS_METER_EXPECTED_NAME).tag("key", key).counter().count();
+    }
+}
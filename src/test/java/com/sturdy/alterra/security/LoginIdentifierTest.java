@@ -0,0 +1,61 @@
+package com.sturdy.alterra.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
+import org.junit.jupiter.api.Test;
+
+class LoginIdentifierTest {
+
+    private final EmailValidator emailValidator = new EmailValidator();
+
+    @Test
+    void testLoginsAreNotEmails() {
+        assertThat(LoginIdentifier.isEmail("admin")).isFalse();
+        assertThat(LoginIdentifier.isEmail("john.doe_1-2")).isFalse();
+        assertThat(LoginIdentifier.isEmail("@localhost")).isFalse();
+        assertThat(LoginIdentifier.isEmail("admin@")).isFalse();
+        assertThat(LoginIdentifier.isEmail("a..b@localhost")).isFalse();
+        assertThat(LoginIdentifier.isEmail("admin@-localhost")).isFalse();
+        assertThat(LoginIdentifier.isEmail("admin@localhost.")).isFalse();
+    }
+
+    @Test
+    void testEmailsAreEmails() {
+        assertThat(LoginIdentifier.isEmail("admin@localhost")).isTrue();
+        assertThat(LoginIdentifier.isEmail("John.Doe+tag@Example.COM")).isTrue();
+        assertThat(LoginIdentifier.isEmail("o'neil@my-domain.example.org")).isTrue();
+        assertThat(LoginIdentifier.isEmail("\"quoted local\"@localhost")).isTrue();
+        assertThat(LoginIdentifier.isEmail("admin@[127.0.0.1]")).isTrue();
+        assertThat(LoginIdentifier.isEmail("jos\u00e9@exemple.fr")).isTrue();
+    }
+
+    @Test
+    void testLengthLimitsMatchTheValidator() {
+        assertMatchesValidator("a".repeat(64) + "@localhost");
+        assertMatchesValidator("a".repeat(65) + "@localhost");
+        assertMatchesValidator("admin@" + "a".repeat(63) + ".com");
+        assertMatchesValidator("admin@" + "a".repeat(64) + ".com");
+        assertMatchesValidator("admin@" + ("a".repeat(63) + ".").repeat(4) + "com");
+        assertMatchesValidator("admin@" + ("a".repeat(50) + ".").repeat(5) + "com");
+    }
+
+    @Test
+    void testRandomIdentifiersMatchTheValidator() {
+        String alphabet = "aZ09.-_@+!#~\"[] :\u00e9";
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder identifier = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                identifier.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertMatchesValidator(identifier.toString());
+        }
+    }
+
+    private void assertMatchesValidator(String identifier) {
+        assertThat(LoginIdentifier.isEmail(identifier)).as(identifier).isEqualTo(emailValidator.isValid(identifier, null));
+    }
+}
@@ -0,0 +1,198 @@
+package com.sturdy.alterra.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.management.SecurityMetersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+class PasswordHashingServiceTest {
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties applicationProperties;
+
+    private PasswordHashingService passwordHashingService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getPasswordHashing().getBcrypt().setStrength(4);
+        applicationProperties.getSecurity().getPasswordHashing().getPbkdf2().setIterations(1000);
+    }
+
+    @AfterEach
+    public void destroy() {
+        release.countDown();
+        if (passwordHashingService != null) {
+            passwordHashingService.destroy();
+        }
+    }
+
+    @Test
+    void testBcryptHashesAreStoredWithoutPrefix() {
+        passwordHashingService = createService();
+
+        String hash = passwordHashingService.encode("password");
+
+        assertThat(hash).startsWith("$2a$04$").hasSize(60);
+        assertThat(passwordHashingService.matches("password", hash)).isTrue();
+        assertThat(passwordHashingService.matches("wrong", hash)).isFalse();
+        assertThat(passwordHashingService.upgradeEncoding(hash)).isFalse();
+    }
+
+    @Test
+    void testPbkdf2HashesHoldTheirIterations() {
+        applicationProperties.getSecurity().getPasswordHashing().setAlgorithm("pbkdf2");
+        passwordHashingService = createService();
+
+        String hash = passwordHashingService.encode("password");
+
+        assertThat(hash).startsWith("{pbkdf2@1000}");
+        assertThat(passwordHashingService.matches("password", hash)).isTrue();
+        assertThat(passwordHashingService.matches("wrong", hash)).isFalse();
+        assertThat(passwordHashingService.upgradeEncoding(hash)).isFalse();
+
+        applicationProperties.getSecurity().getPasswordHashing().getPbkdf2().setIterations(2000);
+        PasswordHashingService costlier = createService();
+        try {
+            assertThat(costlier.matches("password", hash)).isTrue();
+            assertThat(costlier.upgradeEncoding(hash)).isTrue();
+        } finally {
+            costlier.destroy();
+        }
+    }
+
+    @Test
+    void testHashesOfAnotherAlgorithmStillMatchAndNeedUpgrade() {
+        String bcryptHash = new BCryptPasswordEncoder(4).encode("password");
+        applicationProperties.getSecurity().getPasswordHashing().setAlgorithm("pbkdf2");
+        passwordHashingService = createService();
+
+        assertThat(passwordHashingService.matches("password", bcryptHash)).isTrue();
+        assertThat(passwordHashingService.upgradeEncoding(bcryptHash)).isTrue();
+        assertThat(passwordHashingService.upgradeEncoding("{argon2}$argon2id$v=19$m=16384,t=2,p=1$c2FsdA$aGFzaA")).isTrue();
+    }
+
+    @Test
+    void testLowerBcryptStrengthNeedsUpgrade() {
+        passwordHashingService = createService();
+
+        assertThat(passwordHashingService.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isFalse();
+        applicationProperties.getSecurity().getPasswordHashing().getBcrypt().setStrength(5);
+        PasswordHashingService costlier = createService();
+        try {
+            assertThat(costlier.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        } finally {
+            costlier.destroy();
+        }
+    }
+
+    @Test
+    void testUnknownAlgorithmIsRejected() {
+        applicationProperties.getSecurity().getPasswordHashing().setAlgorithm("md5");
+
+        assertThatThrownBy(this::createService).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testHashesAreRejectedWhenTheQueueIsFull() throws Exception {
+        applicationProperties.getSecurity().getPasswordHashing().setMaxConcurrency(1);
+        applicationProperties.getSecurity().getPasswordHashing().setQueueCapacity(1);
+        passwordHashingService = createService();
+        String hash = new BCryptPasswordEncoder(4).encode("password");
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() ->
+            passwordHashingService.matches(blockingPassword(started), hash)
+        );
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> passwordHashingService.matches("password", hash));
+        awaitQueued(1);
+
+        assertThatThrownBy(() -> passwordHashingService.matches("password", hash))
+            .isInstanceOf(PasswordHashingUnavailableException.class)
+            .extracting("retryAfter")
+            .isEqualTo(Duration.ofSeconds(5));
+        assertThat(meterRegistry.get("security.password-hashing.rejected").tag("cause", "queue-full").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("security.password-hashing").tag("operation", "matches").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("security.password-hashing.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testHashesAreRejectedAfterWaitingTooLong() throws Exception {
+        applicationProperties.getSecurity().getPasswordHashing().setMaxConcurrency(1);
+        applicationProperties.getSecurity().getPasswordHashing().setMaxWait(Duration.ofMillis(50));
+        passwordHashingService = createService();
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture.runAsync(() -> passwordHashingService.encode(blockingPassword(started)));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> passwordHashingService.encode("password")).isInstanceOf(PasswordHashingUnavailableException.class);
+        // The caller of the blocked hash gives up after max-wait as well
+        assertThat(meterRegistry.get("security.password-hashing.rejected").tag("cause", "timeout").counter().count()).isPositive();
+    }
+
+    private PasswordHashingService createService() {
+        return new PasswordHashingService(applicationProperties, new SecurityMetersService(meterRegistry), meterRegistry);
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("security.password-hashing.pool.queued").gauge().value() < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * A password that blocks the hashing thread reading it until the test releases it.
+     */
+    private CharSequence blockingPassword(CountDownLatch started) {
+        return new CharSequence() {
+            @Override
+            public int length() {
+                return toString().length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                return toString().charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return toString().subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "password";
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.sturdy.alterra.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCounterTest {
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(60);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private SlidingWindowCounter counter;
+
+    @BeforeEach
+    public void setup() {
+        clock.set(0);
+        counter = new SlidingWindowCounter(1024, WINDOW, clock::get);
+    }
+
+    @Test
+    void testEventsAreCountedPerKey() {
+        counter.incrementAndEstimate("user");
+        counter.incrementAndEstimate("user");
+
+        assertThat(counter.incrementAndEstimate("user")).isEqualTo(3);
+        assertThat(counter.incrementAndEstimate("other")).isEqualTo(1);
+    }
+
+    @Test
+    void testPreviousWindowFadesOut() {
+        IntStream.range(0, 10).forEach(i -> counter.incrementAndEstimate("user"));
+
+        // A quarter into the next window, three quarters of the previous one still count
+        clock.set(WINDOW + WINDOW / 4);
+        assertThat(counter.incrementAndEstimate("user")).isCloseTo(10 * 0.75 + 1, within(0.01));
+
+        clock.set(3 * WINDOW);
+        assertThat(counter.incrementAndEstimate("user")).isEqualTo(1);
+    }
+
+    @Test
+    void testCountsAreNeverUnderestimated() {
+        SlidingWindowCounter smallCounter = new SlidingWindowCounter(8, WINDOW, clock::get);
+        IntStream.range(0, 100).forEach(i -> smallCounter.incrementAndEstimate("key-" + i));
+
+        assertThat(smallCounter.incrementAndEstimate("key-0")).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void testConcurrentIncrementsAreNotLost() {
+        IntStream.range(0, 10000).parallel().forEach(i -> counter.incrementAndEstimate("user"));
+
+        assertThat(counter.incrementAndEstimate("user")).isEqualTo(10001);
+    }
+
+    @Test
+    void testTimeUntilNextWindow() {
+        clock.set(WINDOW + TimeUnit.SECONDS.toNanos(45));
+
+        assertThat(counter.nanosecondsUntilNextWindow()).isEqualTo(TimeUnit.SECONDS.toNanos(15));
+    }
+
+    @Test
+    void testInvalidSizingIsRejected() {
+        assertThatThrownBy(() -> new SlidingWindowCounter(0, WINDOW, clock::get)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SlidingWindowCounter(8, 0, clock::get)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
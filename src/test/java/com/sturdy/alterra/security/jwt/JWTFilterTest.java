@@ -1,11 +1,16 @@
 package com.sturdy.alterra.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
+import com.sturdy.alterra.config.ApplicationProperties;
 import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.RevokedTokenRepository;
 import com.sturdy.alterra.security.AuthoritiesConstants;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collections;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +28,8 @@ import tech.jhipster.config.JHipsterProperties;
 
 class JWTFilterTest {
 
+    private MeterRegistry meterRegistry;
+
     private TokenProvider tokenProvider;
 
     private JWTFilter jwtFilter;
@@ -32,9 +40,23 @@ class JWTFilterTest {
         String base64Secret = "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(base64Secret);
 
-        SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
+        meterRegistry = new SimpleMeterRegistry();
+        SecurityMetersService securityMetersService = new SecurityMetersService(meterRegistry);
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(
+            mock(RevokedTokenRepository.class),
+            securityMetersService,
+            new ApplicationProperties(),
+            meterRegistry
+        );
 
-        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            new ApplicationProperties(),
+            securityMetersService,
+            new TokenAuthenticationCache(new ConcurrentMapCacheManager(), securityMetersService, tokenRevocationList),
+            new JwtAuthorityCodec(mock(AuthorityRepository.class), new ApplicationProperties()),
+            tokenRevocationList
+        );
         ReflectionTestUtils.setField(tokenProvider, "key", Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret)));
 
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
@@ -61,6 +83,27 @@ class JWTFilterTest {
         assertThat(SecurityContextHolder.getContext().getAuthentication().getCredentials()).hasToString(jwt);
     }
 
+    @Test
+    void testJWTFilterServesRepeatedTokenFromCache() throws Exception {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+            "test-user",
+            "test-password",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+        );
+        String jwt = tokenProvider.createToken(authentication, false);
+        for (int i = 0; i < 2; i++) {
+            SecurityContextHolder.getContext().setAuthentication(null);
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
+            request.setRequestURI("/api/test");
+            jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("test-user");
+            assertThat(SecurityContextHolder.getContext().getAuthentication().getCredentials()).hasToString(jwt);
+        }
+        assertThat(meterRegistry.get("security.authentication.token-cache").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("security.authentication.token-cache").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
     @Test
     void testJWTFilterInvalidToken() throws Exception {
         String jwt = "wrong_jwt";
@@ -0,0 +1,152 @@
+package com.sturdy.alterra.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+class JwtAuthorityCodecTest {
+
+    private AuthorityRepository authorityRepository;
+
+    private ApplicationProperties applicationProperties;
+
+    @BeforeEach
+    public void setup() {
+        authorityRepository = mock(AuthorityRepository.class);
+        when(authorityRepository.findAll()).thenReturn(authorities(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN));
+        applicationProperties = new ApplicationProperties();
+    }
+
+    @Test
+    void testAuthoritiesAreWrittenByNameByDefault() {
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(authorityRepository, applicationProperties);
+
+        Claims claims = encode(codec, AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+
+        assertThat(claims.get(JwtAuthorityCodec.AUTHORITIES_KEY)).isEqualTo("ROLE_ADMIN,ROLE_USER");
+        assertThat(claims).doesNotContainKey(JwtAuthorityCodec.COMPACT_AUTHORITIES_KEY);
+        assertThat(names(codec.decode(claims))).containsExactly(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        verify(authorityRepository, times(0)).findAll();
+    }
+
+    @Test
+    void testDecodedAuthoritiesAreShared() {
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(authorityRepository, applicationProperties);
+        Claims claims = encode(codec, AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        Claims userClaims = encode(codec, AuthoritiesConstants.USER);
+
+        List<GrantedAuthority> authorities = codec.decode(claims);
+
+        assertThat(codec.decode(claims)).isSameAs(authorities);
+        assertThat(codec.decode(userClaims).get(0)).isSameAs(authorities.get(1));
+        assertThatThrownBy(() -> authorities.add(new SimpleGrantedAuthority("ROLE_OTHER")))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testEmptyAuthorities() {
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(authorityRepository, applicationProperties);
+
+        assertThat(codec.decode(encode(codec))).isEmpty();
+    }
+
+    @Test
+    void testCompactAuthoritiesRoundTrip() {
+        applicationProperties.getSecurity().getJwt().setCompactAuthorities(true);
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(authorityRepository, applicationProperties);
+
+        Claims claims = encode(codec, AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN);
+
+        assertThat(claims).doesNotContainKey(JwtAuthorityCodec.AUTHORITIES_KEY);
+        assertThat(claims.get(JwtAuthorityCodec.COMPACT_AUTHORITIES_KEY, String.class)).endsWith(".3");
+        assertThat(names(codec.decode(claims))).containsExactly(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        assertThat(codec.decode(claims)).isSameAs(codec.decode(claims));
+        verify(authorityRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testCompactCodecStillReadsAuthoritiesByName() {
+        Claims claims = encode(new JwtAuthorityCodec(authorityRepository, applicationProperties), AuthoritiesConstants.USER);
+        applicationProperties.getSecurity().getJwt().setCompactAuthorities(true);
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(authorityRepository, applicationProperties);
+
+        assertThat(names(codec.decode(claims))).containsExactly(AuthoritiesConstants.USER);
+    }
+
+    @Test
+    void testAuthorityMissingFromTableIsWrittenByName() {
+        applicationProperties.getSecurity().getJwt().setCompactAuthorities(true);
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(authorityRepository, applicationProperties);
+
+        Claims claims = encode(codec, AuthoritiesConstants.USER, AuthoritiesConstants.ANONYMOUS);
+
+        assertThat(claims.get(JwtAuthorityCodec.AUTHORITIES_KEY)).isEqualTo("ROLE_USER,ROLE_ANONYMOUS");
+        assertThat(names(codec.decode(claims))).containsExactly(AuthoritiesConstants.USER, AuthoritiesConstants.ANONYMOUS);
+    }
+
+    @Test
+    void testTokenEncodedAgainstAnotherTableIsRejected() {
+        applicationProperties.getSecurity().getJwt().setCompactAuthorities(true);
+        Claims claims = encode(new JwtAuthorityCodec(authorityRepository, applicationProperties), AuthoritiesConstants.USER);
+
+        AuthorityRepository otherRepository = mock(AuthorityRepository.class);
+        when(otherRepository.findAll()).thenReturn(authorities(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN, "ROLE_AUDITOR"));
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(otherRepository, applicationProperties);
+
+        assertThatThrownBy(() -> codec.decode(claims)).isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> codec.decode(claims)).isInstanceOf(MalformedJwtException.class);
+        verify(otherRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testUnknownBitIsRejected() {
+        applicationProperties.getSecurity().getJwt().setCompactAuthorities(true);
+        JwtAuthorityCodec codec = new JwtAuthorityCodec(authorityRepository, applicationProperties);
+        String compact = encode(codec, AuthoritiesConstants.USER).get(JwtAuthorityCodec.COMPACT_AUTHORITIES_KEY, String.class);
+        Claims claims = Jwts.claims();
+        claims.put(JwtAuthorityCodec.COMPACT_AUTHORITIES_KEY, compact.substring(0, compact.indexOf('.')) + ".4");
+
+        assertThatThrownBy(() -> codec.decode(claims)).isInstanceOf(MalformedJwtException.class);
+    }
+
+    private Claims encode(JwtAuthorityCodec codec, String... authorities) {
+        JwtBuilder builder = Jwts.builder();
+        codec.encode(builder, Arrays.stream(authorities).map(SimpleGrantedAuthority::new).collect(Collectors.toList()));
+        return Jwts.parserBuilder().build().parseClaimsJwt(builder.compact()).getBody();
+    }
+
+    private List<Authority> authorities(String... names) {
+        return Arrays
+            .stream(names)
+            .map(name -> {
+                Authority authority = new Authority();
+                authority.setName(name);
+                return authority;
+            })
+            .collect(Collectors.toList());
+    }
+
+    private List<String> names(Collection<GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+    }
+}
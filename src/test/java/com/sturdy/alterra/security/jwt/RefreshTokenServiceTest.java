@@ -0,0 +1,170 @@
+package com.sturdy.alterra.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.domain.RefreshToken;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.RefreshTokenRepository;
+import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.BadCredentialsException;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private ApplicationProperties applicationProperties;
+
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+
+    private final Map<String, RefreshToken> tokensByHash = new HashMap<>();
+
+    @BeforeEach
+    public void setup() {
+        user = new User();
+        user.setLogin("user");
+        user.setActivated(true);
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        user.setAuthorities(Set.of(authority));
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findOneByLogin("user")).thenReturn(Optional.of(user));
+
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        when(refreshTokenRepository.save(any()))
+            .thenAnswer(invocation -> {
+                RefreshToken refreshToken = invocation.getArgument(0);
+                tokensByHash.put(refreshToken.getTokenHash(), refreshToken);
+                return refreshToken;
+            });
+        when(refreshTokenRepository.findOneForUpdateByTokenHash(anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(tokensByHash.get(invocation.<String>getArgument(0))));
+        when(refreshTokenRepository.findOneByTokenHash(anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(tokensByHash.get(invocation.<String>getArgument(0))));
+
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getRefreshToken().setEnabled(true);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userRepository, applicationProperties);
+    }
+
+    @Test
+    void testOnlyTheHashOfTheTokenIsStored() {
+        Instant before = Instant.now();
+
+        String token = refreshTokenService.createRefreshToken("user", false);
+
+        ArgumentCaptor<RefreshToken> refreshToken = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(refreshToken.capture());
+        assertThat(token).hasSize(43);
+        assertThat(refreshToken.getValue().getTokenHash()).hasSize(43).isNotEqualTo(token).isEqualTo(RefreshTokenService.hash(token));
+        assertThat(refreshToken.getValue().getUser()).isSameAs(user);
+        assertThat(refreshToken.getValue().getFamilyId()).isNotBlank();
+        assertThat(refreshToken.getValue().getUsedDate()).isNull();
+        assertThat(refreshToken.getValue().getExpiresAt())
+            .isBetween(before.plus(Duration.ofDays(1)), Instant.now().plus(Duration.ofDays(1)));
+    }
+
+    @Test
+    void testRememberMeFamilyLastsLonger() {
+        Instant before = Instant.now();
+
+        refreshTokenService.createRefreshToken("user", true);
+
+        ArgumentCaptor<RefreshToken> refreshToken = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(refreshToken.capture());
+        assertThat(refreshToken.getValue().getExpiresAt()).isAfterOrEqualTo(before.plus(Duration.ofDays(30)));
+    }
+
+    @Test
+    void testRotationReplacesTheTokenWithinItsFamily() {
+        String token = refreshTokenService.createRefreshToken("user", false);
+        RefreshToken current = tokensByHash.get(RefreshTokenService.hash(token));
+
+        RefreshTokenService.RotatedRefreshToken rotated = refreshTokenService.rotate(token);
+
+        RefreshToken next = tokensByHash.get(RefreshTokenService.hash(rotated.getRefreshToken()));
+        assertThat(rotated.getRefreshToken()).isNotEqualTo(token);
+        assertThat(current.getUsedDate()).isNotNull();
+        assertThat(next.getFamilyId()).isEqualTo(current.getFamilyId());
+        assertThat(next.getExpiresAt()).isEqualTo(current.getExpiresAt());
+        assertThat(rotated.getAuthentication().getName()).isEqualTo("user");
+        assertThat(rotated.getAuthentication().getAuthorities()).extracting("authority").containsExactly(AuthoritiesConstants.USER);
+    }
+
+    @Test
+    void testReusedTokenRevokesItsFamily() {
+        String token = refreshTokenService.createRefreshToken("user", false);
+        String familyId = tokensByHash.get(RefreshTokenService.hash(token)).getFamilyId();
+        refreshTokenService.rotate(token);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(token)).isInstanceOf(BadCredentialsException.class);
+        verify(refreshTokenRepository).deleteAllByFamilyId(familyId);
+    }
+
+    @Test
+    void testExpiredTokenIsRejected() {
+        String token = refreshTokenService.createRefreshToken("user", false);
+        tokensByHash.get(RefreshTokenService.hash(token)).setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(token)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void testUnknownTokenIsRejected() {
+        assertThatThrownBy(() -> refreshTokenService.rotate("unknown")).isInstanceOf(BadCredentialsException.class);
+        verify(refreshTokenRepository, never()).deleteAllByFamilyId(anyString());
+    }
+
+    @Test
+    void testTokenOfDeactivatedUserIsRejected() {
+        String token = refreshTokenService.createRefreshToken("user", false);
+        user.setActivated(false);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(token)).isInstanceOf(BadCredentialsException.class);
+        verify(refreshTokenRepository).deleteAllByFamilyId(tokensByHash.get(RefreshTokenService.hash(token)).getFamilyId());
+    }
+
+    @Test
+    void testRotationIsRejectedWhenDisabled() {
+        String token = refreshTokenService.createRefreshToken("user", false);
+        applicationProperties.getSecurity().getRefreshToken().setEnabled(false);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(token)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void testRevokeDeletesTheFamily() {
+        String token = refreshTokenService.createRefreshToken("user", false);
+
+        refreshTokenService.revokeRefreshToken(token);
+
+        verify(refreshTokenRepository).deleteAllByFamilyId(tokensByHash.get(RefreshTokenService.hash(token)).getFamilyId());
+    }
+
+    @Test
+    void testRevokeAllDeletesTheTokensOfTheUser() {
+        refreshTokenService.revokeAll(user);
+
+        verify(refreshTokenRepository).deleteAllByUser(user);
+    }
+}
@@ -0,0 +1,132 @@
+package com.sturdy.alterra.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+class TokenAuthenticationCacheTest {
+
+    private static final long ONE_MINUTE = 60000;
+    private static final String TOKEN_CACHE_METER_EXPECTED_NAME = "security.authentication.token-cache";
+
+    private MeterRegistry meterRegistry;
+
+    private CacheManager cacheManager;
+
+    private TokenRevocationList tokenRevocationList;
+
+    private TokenAuthenticationCache tokenAuthenticationCache;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        cacheManager = new ConcurrentMapCacheManager(TokenAuthenticationCache.AUTHENTICATIONS_BY_TOKEN_CACHE);
+        tokenRevocationList = mock(TokenRevocationList.class);
+        tokenAuthenticationCache =
+            new TokenAuthenticationCache(cacheManager, new SecurityMetersService(meterRegistry), tokenRevocationList);
+    }
+
+    @Test
+    void testCachedAuthenticationIsReturnedForSameToken() {
+        tokenAuthenticationCache.put("token", createPrincipal(), "token-id", new Date(System.currentTimeMillis() + ONE_MINUTE));
+
+        Optional<Authentication> authentication = tokenAuthenticationCache.get("token");
+
+        assertThat(authentication).isPresent();
+        assertThat(authentication.get().getName()).isEqualTo("test-user");
+        assertThat(authentication.get().getCredentials()).hasToString("token");
+        assertThat(authentication.get().getAuthorities()).extracting("authority").containsExactly(AuthoritiesConstants.USER);
+        assertThat(countFor("hit")).isEqualTo(1);
+        assertThat(countFor("miss")).isZero();
+    }
+
+    @Test
+    void testUnknownTokenIsAMiss() {
+        tokenAuthenticationCache.put("token", createPrincipal(), "token-id", new Date(System.currentTimeMillis() + ONE_MINUTE));
+
+        assertThat(tokenAuthenticationCache.get("other-token")).isEmpty();
+        assertThat(countFor("hit")).isZero();
+        assertThat(countFor("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void testExpiredTokenIsAMissAndIsEvicted() {
+        tokenAuthenticationCache.put("token", createPrincipal(), "token-id", new Date(System.currentTimeMillis() - ONE_MINUTE));
+
+        assertThat(tokenAuthenticationCache.get("token")).isEmpty();
+        assertThat(countFor("miss")).isEqualTo(1);
+        assertThat((Map<?, ?>) cacheManager.getCache(TokenAuthenticationCache.AUTHENTICATIONS_BY_TOKEN_CACHE).getNativeCache()).isEmpty();
+    }
+
+    @Test
+    void testRevokedTokenIsAMissAndIsEvicted() {
+        tokenAuthenticationCache.put("token", createPrincipal(), "token-id", new Date(System.currentTimeMillis() + ONE_MINUTE));
+        when(tokenRevocationList.isRevoked("token-id")).thenReturn(true);
+
+        assertThat(tokenAuthenticationCache.get("token")).isEmpty();
+        assertThat(countFor("miss")).isEqualTo(1);
+        assertThat((Map<?, ?>) cacheManager.getCache(TokenAuthenticationCache.AUTHENTICATIONS_BY_TOKEN_CACHE).getNativeCache()).isEmpty();
+    }
+
+    @Test
+    void testRawTokenIsNotUsedAsKey() {
+        tokenAuthenticationCache.put("token", createPrincipal(), "token-id", new Date(System.currentTimeMillis() + ONE_MINUTE));
+
+        assertThat(cacheManager.getCache(TokenAuthenticationCache.AUTHENTICATIONS_BY_TOKEN_CACHE).get("token")).isNull();
+    }
+
+    @Test
+    void testLookupsArePassThroughWhenCacheIsNotConfigured() {
+        ConcurrentMapCacheManager emptyCacheManager = new ConcurrentMapCacheManager();
+        emptyCacheManager.setCacheNames(Collections.emptyList());
+        TokenAuthenticationCache disabledCache = new TokenAuthenticationCache(
+            emptyCacheManager,
+            new SecurityMetersService(meterRegistry),
+            tokenRevocationList
+        );
+
+        disabledCache.put("token", createPrincipal(), "token-id", new Date(System.currentTimeMillis() + ONE_MINUTE));
+
+        assertThat(disabledCache.get("token")).isEmpty();
+        assertThat(countFor("miss")).isZero();
+    }
+
+    @Test
+    void testNoOpCacheNeverHits() {
+        TokenAuthenticationCache noOpCache = new TokenAuthenticationCache(
+            new NoOpCacheManager(),
+            new SecurityMetersService(meterRegistry),
+            tokenRevocationList
+        );
+
+        noOpCache.put("token", createPrincipal(), "token-id", new Date(System.currentTimeMillis() + ONE_MINUTE));
+
+        assertThat(noOpCache.get("token")).isEmpty();
+        assertThat(countFor("miss")).isEqualTo(1);
+    }
+
+    private double countFor(String result) {
+        return meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", result).counter().count();
+    }
+
+    private User createPrincipal() {
+        return new User("test-user", "", Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER)));
+    }
+}
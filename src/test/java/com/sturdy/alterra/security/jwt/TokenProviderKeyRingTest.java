@@ -0,0 +1,187 @@
+package com.sturdy.alterra.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.RevokedTokenRepository;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import tech.jhipster.config.JHipsterProperties;
+
+class TokenProviderKeyRingTest {
+
+    private static final long ONE_MINUTE = 60000;
+    private static final String INVALID_TOKENS_METER_EXPECTED_NAME = "security.authentication.invalid-tokens";
+
+    private MeterRegistry meterRegistry;
+
+    private KeyPair activeKeyPair;
+
+    private KeyPair retiredKeyPair;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        activeKeyPair = generateKeyPair();
+        retiredKeyPair = generateKeyPair();
+    }
+
+    @Test
+    void testTokenIsSignedWithActiveKeyAndVerified() {
+        TokenProvider tokenProvider = createTokenProvider(keyRing("2026-10", key("2026-10", activeKeyPair, true)));
+
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        assertThat(header).contains("\"kid\":\"2026-10\"").contains("\"alg\":\"ES256\"");
+        assertThat(tokenProvider.validate(token).getAuthentication())
+            .hasValueSatisfying(authentication -> assertThat(authentication.getName()).isEqualTo("anonymous"));
+    }
+
+    @Test
+    void testTokenSignedWithRetiredKeyIsStillVerified() {
+        TokenProvider previousIssuer = createTokenProvider(keyRing("2026-04", key("2026-04", retiredKeyPair, true)));
+        String token = previousIssuer.createToken(createAuthentication(), false);
+
+        TokenProvider tokenProvider = createTokenProvider(
+            keyRing("2026-10", key("2026-10", activeKeyPair, true), key("2026-04", retiredKeyPair, false))
+        );
+
+        assertThat(tokenProvider.validateToken(token)).isTrue();
+    }
+
+    @Test
+    void testTokenWithUnknownKeyIdIsRejected() {
+        TokenProvider otherIssuer = createTokenProvider(keyRing("other", key("other", retiredKeyPair, true)));
+        String token = otherIssuer.createToken(createAuthentication(), false);
+
+        TokenProvider tokenProvider = createTokenProvider(keyRing("2026-10", key("2026-10", activeKeyPair, true)));
+
+        assertThat(tokenProvider.validate(token).getFailureCause()).contains(TokenValidationResult.FailureCause.INVALID_SIGNATURE);
+        assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "invalid-signature").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testTokenWithForgedKeyIdIsRejected() {
+        TokenProvider tokenProvider = createTokenProvider(keyRing("2026-10", key("2026-10", activeKeyPair, true)));
+        String token = Jwts
+            .builder()
+            .setHeaderParam("kid", "2026-10")
+            .setSubject("anonymous")
+            .signWith(retiredKeyPair.getPrivate(), SignatureAlgorithm.ES256)
+            .setExpiration(new Date(System.currentTimeMillis() + ONE_MINUTE))
+            .compact();
+
+        assertThat(tokenProvider.validate(token).getFailureCause()).contains(TokenValidationResult.FailureCause.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void testHmacTokenIsRejectedByKeyRing() {
+        TokenProvider tokenProvider = createTokenProvider(keyRing("2026-10", key("2026-10", activeKeyPair, true)));
+        String token = Jwts
+            .builder()
+            .setHeaderParam("kid", "2026-10")
+            .setSubject("anonymous")
+            .signWith(Keys.secretKeyFor(SignatureAlgorithm.HS512))
+            .compact();
+
+        assertThat(tokenProvider.validate(token).getFailureCause()).contains(TokenValidationResult.FailureCause.UNSUPPORTED);
+    }
+
+    @Test
+    void testVerifyOnlyNodeVerifiesButCannotSign() {
+        TokenProvider issuer = createTokenProvider(keyRing("2026-10", key("2026-10", activeKeyPair, true)));
+        String token = issuer.createToken(createAuthentication(), false);
+
+        TokenProvider edgeNode = createTokenProvider(keyRing("2026-10", key("2026-10", activeKeyPair, false)));
+
+        assertThat(edgeNode.validateToken(token)).isTrue();
+        assertThatThrownBy(() -> edgeNode.createToken(createAuthentication(), false)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testKeyRingNeedsAtLeastOneKey() {
+        ApplicationProperties.Security.Jwt jwt = keyRing("2026-10");
+
+        assertThatThrownBy(() -> createTokenProvider(jwt)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private TokenProvider createTokenProvider(ApplicationProperties.Security.Jwt jwt) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setTokenValidityInSeconds(60);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getJwt().setSigningAlgorithm(jwt.getSigningAlgorithm());
+        applicationProperties.getSecurity().getJwt().setActiveKeyId(jwt.getActiveKeyId());
+        applicationProperties.getSecurity().getJwt().setKeys(jwt.getKeys());
+        SecurityMetersService securityMetersService = new SecurityMetersService(meterRegistry);
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(
+            mock(RevokedTokenRepository.class),
+            securityMetersService,
+            new ApplicationProperties(),
+            meterRegistry
+        );
+
+        return new TokenProvider(
+            jHipsterProperties,
+            applicationProperties,
+            securityMetersService,
+            new TokenAuthenticationCache(new NoOpCacheManager(), securityMetersService, tokenRevocationList),
+            new JwtAuthorityCodec(mock(AuthorityRepository.class), applicationProperties),
+            tokenRevocationList
+        );
+    }
+
+    private ApplicationProperties.Security.Jwt keyRing(String activeKeyId, ApplicationProperties.Security.Jwt.Key... keys) {
+        ApplicationProperties.Security.Jwt jwt = new ApplicationProperties.Security.Jwt();
+        jwt.setSigningAlgorithm("ES256");
+        jwt.setActiveKeyId(activeKeyId);
+        Collections.addAll(jwt.getKeys(), keys);
+        return jwt;
+    }
+
+    private ApplicationProperties.Security.Jwt.Key key(String id, KeyPair keyPair, boolean withPrivateKey) {
+        ApplicationProperties.Security.Jwt.Key key = new ApplicationProperties.Security.Jwt.Key();
+        key.setId(id);
+        key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        if (withPrivateKey) {
+            key.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        }
+        return key;
+    }
+
+    private KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    private Authentication createAuthentication() {
+        return new UsernamePasswordAuthenticationToken(
+            "anonymous",
+            "anonymous",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS))
+        );
+    }
+}
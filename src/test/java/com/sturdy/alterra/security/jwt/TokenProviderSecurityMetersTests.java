@@ -1,8 +1,12 @@
 package com.sturdy.alterra.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
+import com.sturdy.alterra.config.ApplicationProperties;
 import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.RevokedTokenRepository;
 import com.sturdy.alterra.security.AuthoritiesConstants;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -17,6 +21,7 @@ import java.util.Collection;
 import java.util.Date;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -42,8 +47,21 @@ class TokenProviderSecurityMetersTests {
         meterRegistry = new SimpleMeterRegistry();
 
         SecurityMetersService securityMetersService = new SecurityMetersService(meterRegistry);
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(
+            mock(RevokedTokenRepository.class),
+            securityMetersService,
+            new ApplicationProperties(),
+            meterRegistry
+        );
 
-        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            new ApplicationProperties(),
+            securityMetersService,
+            new TokenAuthenticationCache(new ConcurrentMapCacheManager(), securityMetersService, tokenRevocationList),
+            new JwtAuthorityCodec(mock(AuthorityRepository.class), new ApplicationProperties()),
+            tokenRevocationList
+        );
         Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
 
         ReflectionTestUtils.setField(tokenProvider, "key", key);
@@ -1,8 +1,17 @@
 package com.sturdy.alterra.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
-
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.RevokedToken;
 import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.RevokedTokenRepository;
 import com.sturdy.alterra.security.AuthoritiesConstants;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -14,6 +23,8 @@ import java.security.Key;
 import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -26,6 +37,7 @@ class TokenProviderTest {
     private static final long ONE_MINUTE = 60000;
 
     private Key key;
+    private RevokedTokenRepository revokedTokenRepository;
     private TokenProvider tokenProvider;
 
     @BeforeEach
@@ -35,8 +47,22 @@ class TokenProviderTest {
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(base64Secret);
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(
+            revokedTokenRepository,
+            securityMetersService,
+            new ApplicationProperties(),
+            new SimpleMeterRegistry()
+        );
 
-        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            new ApplicationProperties(),
+            securityMetersService,
+            new TokenAuthenticationCache(new ConcurrentMapCacheManager(), securityMetersService, tokenRevocationList),
+            new JwtAuthorityCodec(mock(AuthorityRepository.class), new ApplicationProperties()),
+            tokenRevocationList
+        );
         key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
 
         ReflectionTestUtils.setField(tokenProvider, "key", key);
@@ -88,6 +114,89 @@ class TokenProviderTest {
         assertThat(isTokenValid).isFalse();
     }
 
+    @Test
+    void testValidateReturnsClaimsAndAuthenticationFromSingleParse() {
+        Authentication authentication = createAuthentication();
+        String token = tokenProvider.createToken(authentication, false);
+
+        TokenValidationResult result = tokenProvider.validate(token);
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getFailureCause()).isEmpty();
+        assertThat(result.getClaims()).hasValueSatisfying(claims -> assertThat(claims.getSubject()).isEqualTo("anonymous"));
+        assertThat(result.getAuthentication()).hasValueSatisfying(auth -> {
+            assertThat(auth.getName()).isEqualTo("anonymous");
+            assertThat(auth.getCredentials()).hasToString(token);
+            assertThat(auth.getAuthorities()).extracting("authority").containsExactly(AuthoritiesConstants.ANONYMOUS);
+        });
+    }
+
+    @Test
+    void testRevokedTokenIsRejected() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String tokenId = tokenProvider.validate(token).getClaims().orElseThrow().getId();
+
+        tokenProvider.revokeToken(token);
+        when(revokedTokenRepository.existsById(tokenId)).thenReturn(true);
+
+        ArgumentCaptor<RevokedToken> revokedToken = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepository).save(revokedToken.capture());
+        assertThat(revokedToken.getValue().getTokenId()).isEqualTo(tokenId);
+        assertThat(revokedToken.getValue().getLogin()).isEqualTo("anonymous");
+        assertThat(tokenProvider.validate(token).getFailureCause()).contains(TokenValidationResult.FailureCause.REVOKED);
+        assertThat(tokenProvider.getCachedAuthentication(token)).isEmpty();
+    }
+
+    @Test
+    void testTokensHaveDistinctIds() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String otherToken = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.validate(token).getClaims().orElseThrow().getId())
+            .isNotBlank()
+            .isNotEqualTo(tokenProvider.validate(otherToken).getClaims().orElseThrow().getId());
+    }
+
+    @Test
+    void testAccessTokenIsShortLived() {
+        long before = System.currentTimeMillis();
+
+        String token = tokenProvider.createAccessToken(createAuthentication());
+
+        long expiration = tokenProvider.validate(token).getClaims().orElseThrow().getExpiration().getTime();
+        // Default application.security.refresh-token.access-token-validity: 15 minutes, seconds precision
+        assertThat(expiration).isBetween(before + 15 * ONE_MINUTE - 1000, System.currentTimeMillis() + 15 * ONE_MINUTE);
+    }
+
+    @Test
+    void testInvalidTokenIsNotRevoked() {
+        tokenProvider.revokeToken(createTokenWithDifferentSignature());
+
+        verify(revokedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void testValidateReturnsFailureCauseWhenJWTisExpired() {
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", -ONE_MINUTE);
+
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        TokenValidationResult result = tokenProvider.validate(token);
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getClaims()).isEmpty();
+        assertThat(result.getAuthentication()).isEmpty();
+        assertThat(result.getFailureCause()).contains(TokenValidationResult.FailureCause.EXPIRED);
+    }
+
+    @Test
+    void testValidateReturnsFailureCauseWhenJWThasInvalidSignature() {
+        TokenValidationResult result = tokenProvider.validate(createTokenWithDifferentSignature());
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getFailureCause()).contains(TokenValidationResult.FailureCause.INVALID_SIGNATURE);
+    }
+
     @Test
     void testKeyIsSetFromSecretWhenSecretIsNotEmpty() {
         final String secret = "NwskoUmKHZtzGRKJKVjsJF7BtQMMxNWi";
@@ -95,8 +204,21 @@ class TokenProviderTest {
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(secret);
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(
+            mock(RevokedTokenRepository.class),
+            securityMetersService,
+            new ApplicationProperties(),
+            new SimpleMeterRegistry()
+        );
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        TokenProvider tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            new ApplicationProperties(),
+            securityMetersService,
+            new TokenAuthenticationCache(new ConcurrentMapCacheManager(), securityMetersService, tokenRevocationList),
+            new JwtAuthorityCodec(mock(AuthorityRepository.class), new ApplicationProperties()),
+            tokenRevocationList
+        );
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)));
@@ -109,8 +231,21 @@ class TokenProviderTest {
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(base64Secret);
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(
+            mock(RevokedTokenRepository.class),
+            securityMetersService,
+            new ApplicationProperties(),
+            new SimpleMeterRegistry()
+        );
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        TokenProvider tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            new ApplicationProperties(),
+            securityMetersService,
+            new TokenAuthenticationCache(new ConcurrentMapCacheManager(), securityMetersService, tokenRevocationList),
+            new JwtAuthorityCodec(mock(AuthorityRepository.class), new ApplicationProperties()),
+            tokenRevocationList
+        );
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret)));
@@ -0,0 +1,151 @@
+package com.sturdy.alterra.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sturdy.alterra.config.ApplicationProperties;
+import com.sturdy.alterra.domain.RevokedToken;
+import com.sturdy.alterra.management.SecurityMetersService;
+import com.sturdy.alterra.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class TokenRevocationListTest {
+
+    private static final String REVOCATION_LOOKUPS_METER_EXPECTED_NAME = "security.authentication.revocation-lookups";
+
+    private MeterRegistry meterRegistry;
+
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private ApplicationProperties applicationProperties;
+
+    private TokenRevocationList tokenRevocationList;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        when(revokedTokenRepository.findAllTokenIdsByExpiresAtAfter(any())).thenReturn(List.of("revoked-id"));
+        when(revokedTokenRepository.existsById("revoked-id")).thenReturn(true);
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getTokenRevocation().setExpectedRevocations(100);
+        tokenRevocationList =
+            new TokenRevocationList(revokedTokenRepository, new SecurityMetersService(meterRegistry), applicationProperties, meterRegistry);
+    }
+
+    @Test
+    void testTokenWithoutIdIsNeverRevoked() {
+        assertThat(tokenRevocationList.isRevoked(null)).isFalse();
+        verify(revokedTokenRepository, never()).existsById(anyString());
+    }
+
+    @Test
+    void testLookupsGoToDatabaseUntilFirstSync() {
+        assertThat(tokenRevocationList.isRevoked("revoked-id")).isTrue();
+        assertThat(tokenRevocationList.isRevoked("other-id")).isFalse();
+        verify(revokedTokenRepository, times(2)).existsById(anyString());
+    }
+
+    @Test
+    void testTokenAbsentFromFilterDoesNotHitDatabase() {
+        tokenRevocationList.sync();
+
+        assertThat(tokenRevocationList.isRevoked("other-id")).isFalse();
+        verify(revokedTokenRepository, never()).existsById("other-id");
+        assertThat(countFor("absent")).isEqualTo(1);
+    }
+
+    @Test
+    void testRevokedTokenIsConfirmedByDatabase() {
+        tokenRevocationList.sync();
+
+        assertThat(tokenRevocationList.isRevoked("revoked-id")).isTrue();
+        verify(revokedTokenRepository).existsById("revoked-id");
+        assertThat(countFor("revoked")).isEqualTo(1);
+    }
+
+    @Test
+    void testFalsePositiveIsOnlyCheckedOnce() {
+        tokenRevocationList.sync();
+        // Revoked then purged from the table: still in the filter, but not revoked anymore
+        tokenRevocationList.revoke("purged-id", "user", Instant.now());
+
+        assertThat(tokenRevocationList.isRevoked("purged-id")).isFalse();
+        assertThat(tokenRevocationList.isRevoked("purged-id")).isFalse();
+        verify(revokedTokenRepository, times(1)).existsById("purged-id");
+        assertThat(countFor("false-positive")).isEqualTo(2);
+    }
+
+    @Test
+    void testRevokeStoresTokenAndUpdatesLocalFilter() {
+        tokenRevocationList.sync();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        tokenRevocationList.revoke("new-id", "user", expiresAt);
+        when(revokedTokenRepository.existsById("new-id")).thenReturn(true);
+
+        ArgumentCaptor<RevokedToken> revokedToken = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepository).save(revokedToken.capture());
+        assertThat(revokedToken.getValue().getTokenId()).isEqualTo("new-id");
+        assertThat(revokedToken.getValue().getLogin()).isEqualTo("user");
+        assertThat(revokedToken.getValue().getExpiresAt()).isEqualTo(expiresAt);
+        assertThat(revokedToken.getValue().getRevokedAt()).isNotNull();
+        assertThat(tokenRevocationList.isRevoked("new-id")).isTrue();
+    }
+
+    @Test
+    void testSyncAddsRevocationsFromOtherNodes() {
+        tokenRevocationList.sync();
+        when(revokedTokenRepository.findAllTokenIdsByRevokedAtAfter(any(), any())).thenReturn(List.of("remote-id"));
+        when(revokedTokenRepository.existsById("remote-id")).thenReturn(true);
+
+        tokenRevocationList.sync();
+
+        assertThat(tokenRevocationList.isRevoked("remote-id")).isTrue();
+        verify(revokedTokenRepository, times(1)).deleteAllByExpiresAtBefore(any());
+    }
+
+    @Test
+    void testFilterIsRebuiltWhenDue() {
+        applicationProperties.getSecurity().getTokenRevocation().setRebuildInterval(Duration.ZERO);
+        tokenRevocationList.sync();
+        when(revokedTokenRepository.findAllTokenIdsByExpiresAtAfter(any())).thenReturn(Collections.emptyList());
+
+        tokenRevocationList.sync();
+
+        assertThat(tokenRevocationList.isRevoked("revoked-id")).isFalse();
+        verify(revokedTokenRepository, never()).existsById("revoked-id");
+        verify(revokedTokenRepository, times(2)).deleteAllByExpiresAtBefore(any());
+    }
+
+    @Test
+    void testFilterMetersAreExposed() {
+        assertThat(meterRegistry.get("security.authentication.revocation-filter.size").gauge().value()).isNaN();
+
+        tokenRevocationList.sync();
+
+        assertThat(meterRegistry.get("security.authentication.revocation-filter.size").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("security.authentication.revocation-filter.ids").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("security.authentication.revocation-filter.false-positive-rate").gauge().value())
+            .isPositive()
+            .isLessThan(0.001);
+    }
+
+    private double countFor(String result) {
+        return meterRegistry.get(REVOCATION_LOOKUPS_METER_EXPECTED_NAME).tag("result", result).counter().count();
+    }
+}
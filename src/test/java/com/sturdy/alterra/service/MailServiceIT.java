@@ -14,6 +14,7 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -168,6 +169,23 @@ class MailServiceIT {
         assertThat(message.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
     }
 
+    @Test
+    void testCreationEmails() throws Exception {
+        User john = new User();
+        john.setLangKey(Constants.DEFAULT_LANGUAGE);
+        john.setLogin("john");
+        john.setEmail("john.doe@example.com");
+        User jane = new User();
+        jane.setLangKey(Constants.DEFAULT_LANGUAGE);
+        jane.setLogin("jane");
+        jane.setEmail("jane.doe@example.com");
+        mailService.sendCreationEmails(List.of(john, jane));
+        verify(javaMailSender, times(2)).send(messageCaptor.capture());
+        assertThat(messageCaptor.getAllValues())
+            .extracting(message -> message.getAllRecipients()[0].toString())
+            .containsExactly(john.getEmail(), jane.getEmail());
+    }
+
     @Test
     void testSendPasswordResetMail() throws Exception {
         User user = new User();
@@ -0,0 +1,184 @@
+package com.sturdy.alterra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.sturdy.alterra.IntegrationTest;
+import com.sturdy.alterra.domain.Authority;
+import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import com.sturdy.alterra.service.dto.AdminUserDTO;
+import com.sturdy.alterra.service.dto.UserImportResultDTO;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link UserBulkService}, which imports and exports batches of 2 users in the tests.
+ */
+@IntegrationTest
+@Transactional
+class UserBulkServiceIT {
+
+    @Autowired
+    private UserBulkService userBulkService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    void assertThatValidUsersAreImportedAndTheOthersRejected() {
+        List<Object> rows = List.of(
+            user("bulk-1", "bulk-1@localhost", AuthoritiesConstants.ADMIN, "ROLE_UNKNOWN"),
+            user("bulk-2", "bulk-2@localhost", AuthoritiesConstants.USER),
+            user("user", "bulk-3@localhost"),
+            user("bulk-4", "ADMIN@localhost"),
+            new IllegalArgumentException("Invalid JSON"),
+            user("bulk-5", "not an email"),
+            user("BULK-1", "bulk-6@localhost"),
+            user("bulk-7", "Bulk-2@localhost"),
+            user("bulk-8", null)
+        );
+        List<UserImportResultDTO> results = new ArrayList<>();
+        List<List<User>> created = new ArrayList<>();
+
+        userBulkService.importUsers(iterator(rows), results::add, created::add);
+
+        assertThat(results)
+            .extracting(UserImportResultDTO::getRow, UserImportResultDTO::getLogin, UserImportResultDTO::getStatus)
+            .containsExactly(
+                tuple(1L, "bulk-1", UserImportResultDTO.Status.CREATED),
+                tuple(2L, "bulk-2", UserImportResultDTO.Status.CREATED),
+                tuple(3L, "user", UserImportResultDTO.Status.REJECTED),
+                tuple(4L, "bulk-4", UserImportResultDTO.Status.REJECTED),
+                tuple(5L, null, UserImportResultDTO.Status.REJECTED),
+                tuple(6L, "bulk-5", UserImportResultDTO.Status.REJECTED),
+                tuple(7L, "bulk-1", UserImportResultDTO.Status.REJECTED),
+                tuple(8L, "bulk-7", UserImportResultDTO.Status.REJECTED),
+                tuple(9L, "bulk-8", UserImportResultDTO.Status.CREATED)
+            );
+        assertThat(results.get(2).getMessage()).isEqualTo("Login name already used!");
+        assertThat(results.get(3).getMessage()).isEqualTo("Email is already in use!");
+        assertThat(results.get(4).getMessage()).isEqualTo("Invalid JSON");
+        assertThat(results.get(5).getMessage()).startsWith("email ");
+        assertThat(results.get(6).getMessage()).isEqualTo("Login name already used!");
+        assertThat(results.get(7).getMessage()).isEqualTo("Email is already in use!");
+        assertThat(created).extracting(List::size).containsExactly(2, 1);
+
+        em.flush();
+        em.clear();
+        List<User> users = userRepository.findAllWithAuthoritiesByLoginIn(List.of("bulk-1", "bulk-2", "bulk-8"));
+        assertThat(users).hasSize(3).allMatch(User::isActivated).allMatch(user -> user.getResetKey() != null);
+        User admin = users.stream().filter(user -> user.getLogin().equals("bulk-1")).findFirst().orElseThrow();
+        assertThat(admin.getAuthorities()).extracting(Authority::getName).containsExactly(AuthoritiesConstants.ADMIN);
+        assertThat(userRepository.findOneByLogin("bulk-4")).isEmpty();
+    }
+
+    @Test
+    void assertThatUsersWithoutEmailAreImported() {
+        List<Object> rows = List.of(user("bulk-no-email-1", null), user("bulk-no-email-2", null), user("bulk-no-email-3", null));
+        List<UserImportResultDTO> results = new ArrayList<>();
+        List<List<User>> created = new ArrayList<>();
+
+        userBulkService.importUsers(iterator(rows), results::add, created::add);
+
+        assertThat(results).extracting(UserImportResultDTO::getStatus).containsOnly(UserImportResultDTO.Status.CREATED).hasSize(3);
+        assertThat(created).extracting(List::size).containsExactly(2, 1);
+        em.flush();
+        em.clear();
+        assertThat(userRepository.findAllWithAuthoritiesByLoginIn(List.of("bulk-no-email-1", "bulk-no-email-2", "bulk-no-email-3")))
+            .hasSize(3)
+            .allMatch(user -> user.getEmail() == null);
+    }
+
+    @Test
+    void assertThatAllUsersAreExportedById() {
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setLogin("bulk-export-" + i);
+            user.setPassword(RandomStringUtils.randomAlphanumeric(60));
+            user.setActivated(true);
+            userRepository.save(user);
+        }
+        em.flush();
+
+        List<AdminUserDTO> users = new ArrayList<>();
+        userBulkService.exportUsers(users::add);
+
+        assertThat(users).hasSize((int) userRepository.count());
+        assertThat(users).extracting(AdminUserDTO::getId).isSorted().doesNotHaveDuplicates();
+        assertThat(users).extracting(AdminUserDTO::getLogin).contains("admin", "user", "bulk-export-0", "bulk-export-2");
+        assertThat(users)
+            .filteredOn(user -> user.getLogin().equals("admin"))
+            .flatExtracting(AdminUserDTO::getAuthorities)
+            .containsExactlyInAnyOrder(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+    }
+
+    @Test
+    void assertThatAllUsersAreStreamedByIdWithTheirAuthorities() {
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setLogin("bulk-stream-" + i);
+            user.setPassword(RandomStringUtils.randomAlphanumeric(60));
+            user.setActivated(true);
+            userRepository.save(user);
+        }
+        em.flush();
+
+        List<AdminUserDTO> users = new ArrayList<>();
+        userBulkService.streamUsers(users::add);
+
+        assertThat(users).hasSize((int) userRepository.count());
+        assertThat(users).extracting(AdminUserDTO::getId).isSorted().doesNotHaveDuplicates();
+        assertThat(users)
+            .filteredOn(user -> user.getLogin().equals("admin"))
+            .flatExtracting(AdminUserDTO::getAuthorities)
+            .containsExactlyInAnyOrder(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        assertThat(users)
+            .filteredOn(user -> user.getLogin().startsWith("bulk-stream-"))
+            .hasSize(3)
+            .allMatch(user -> user.getAuthorities().isEmpty());
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    private static AdminUserDTO user(String login, String email, String... authorities) {
+        AdminUserDTO user = new AdminUserDTO();
+        user.setLogin(login);
+        user.setEmail(email);
+        user.setAuthorities(Set.of(authorities));
+        return user;
+    }
+
+    /**
+     * The rows of an import, whose exceptions are thrown in place of a user.
+     */
+    private static Iterator<AdminUserDTO> iterator(List<Object> rows) {
+        Iterator<Object> iterator = rows.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public AdminUserDTO next() {
+                Object row = iterator.next();
+                if (row instanceof RuntimeException) {
+                    throw (RuntimeException) row;
+                }
+                return (AdminUserDTO) row;
+            }
+        };
+    }
+}
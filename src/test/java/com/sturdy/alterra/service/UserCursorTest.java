@@ -0,0 +1,79 @@
+package com.sturdy.alterra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sturdy.alterra.domain.User;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Unit tests for {@link UserCursor}.
+ */
+class UserCursorTest {
+
+    @Test
+    void testFirstCursorIsByIdWhenUnsorted() {
+        UserCursor cursor = UserCursor.first(Sort.unsorted()).orElseThrow();
+
+        assertThat(cursor.getOrder()).isEqualTo(Sort.Order.asc("id"));
+        assertThat(cursor.getLastId()).isNull();
+    }
+
+    @Test
+    void testFirstCursorIsBySingleKnownProperty() {
+        assertThat(UserCursor.first(Sort.by(Sort.Order.desc("login"))).map(UserCursor::getOrder)).contains(Sort.Order.desc("login"));
+        assertThat(UserCursor.first(Sort.by("login", "id"))).isEmpty();
+        assertThat(UserCursor.first(Sort.by("password"))).isEmpty();
+    }
+
+    @Test
+    void testCursorAfterAUserRoundTrips() {
+        User user = new User();
+        user.setId(42L);
+        user.setCreatedDate(Instant.parse("2022-01-01T10:15:30.123456Z"));
+
+        UserCursor cursor = UserCursor.ofToken(first("createdDate,desc").after(user).toToken()).orElseThrow();
+
+        assertThat(cursor.getOrder()).isEqualTo(Sort.Order.desc("createdDate"));
+        assertThat(cursor.getLastId()).isEqualTo(42L);
+        assertThat(cursor.getLastValue()).isEqualTo(Instant.parse("2022-01-01T10:15:30.123456Z"));
+    }
+
+    @Test
+    void testCursorKeepsEmptyAndNullValuesApart() {
+        User user = new User();
+        user.setId(1L);
+        user.setLastName("");
+        UserCursor empty = UserCursor.ofToken(first("lastName,asc").after(user).toToken()).orElseThrow();
+        user.setLastName(null);
+        UserCursor none = UserCursor.ofToken(first("lastName,asc").after(user).toToken()).orElseThrow();
+        user.setLastName("van, der");
+        UserCursor withComma = UserCursor.ofToken(first("lastName,asc").after(user).toToken()).orElseThrow();
+
+        assertThat(empty.getLastValue()).isEqualTo("");
+        assertThat(none.getLastValue()).isNull();
+        assertThat(withComma.getLastValue()).isEqualTo("van, der");
+    }
+
+    @Test
+    void testInvalidTokensAreRejected() {
+        assertThat(UserCursor.ofToken("not a token")).isEmpty();
+        assertThat(UserCursor.ofToken("")).isEmpty();
+        assertThat(UserCursor.ofToken(token("password,ASC,1,=secret"))).isEmpty();
+        assertThat(UserCursor.ofToken(token("login,SIDEWAYS,1,=user"))).isEmpty();
+        assertThat(UserCursor.ofToken(token("createdDate,ASC,1,=yesterday"))).isEmpty();
+        assertThat(UserCursor.ofToken(token("login,ASC,one,=user"))).isEmpty();
+    }
+
+    private static UserCursor first(String sort) {
+        String[] orderBy = sort.split(",");
+        return UserCursor.first(Sort.by(Sort.Direction.fromString(orderBy[1]), orderBy[0])).orElseThrow();
+    }
+
+    private static String token(String fields) {
+        return Base64.getUrlEncoder().encodeToString(fields.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,23 +5,36 @@ import static org.mockito.Mockito.when;
 
 import com.sturdy.alterra.IntegrationTest;
 import com.sturdy.alterra.config.Constants;
+import com.sturdy.alterra.domain.RefreshToken;
 import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.AuthorityRepository;
+import com.sturdy.alterra.repository.RefreshTokenRepository;
 import com.sturdy.alterra.repository.UserRepository;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import com.sturdy.alterra.security.jwt.RefreshTokenService;
 import com.sturdy.alterra.service.dto.AdminUserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.transaction.annotation.Transactional;
 import tech.jhipster.security.RandomUtil;
 
@@ -50,6 +63,24 @@ class UserServiceIT {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     @Autowired
     private AuditingHandler auditingHandler;
 
@@ -148,6 +179,35 @@ class UserServiceIT {
         userRepository.delete(user);
     }
 
+    @Test
+    @Transactional
+    void assertThatPasswordResetRevokesTheRefreshTokens() {
+        user.setResetDate(Instant.now().minus(2, ChronoUnit.HOURS));
+        user.setResetKey(RandomUtil.generateResetKey());
+        userRepository.saveAndFlush(user);
+        refreshTokenService.createRefreshToken(DEFAULT_LOGIN, false);
+        refreshTokenService.createRefreshToken(DEFAULT_LOGIN, true);
+        assertThat(refreshTokensOf(user)).hasSize(2);
+
+        assertThat(userService.completePasswordReset("johndoe2", user.getResetKey())).isPresent();
+
+        assertThat(refreshTokensOf(user)).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser(DEFAULT_LOGIN)
+    void assertThatPasswordChangeRevokesTheRefreshTokens() {
+        user.setPassword(passwordEncoder.encode("current password"));
+        userRepository.saveAndFlush(user);
+        refreshTokenService.createRefreshToken(DEFAULT_LOGIN, false);
+        assertThat(refreshTokensOf(user)).hasSize(1);
+
+        userService.changePassword("current password", "new password");
+
+        assertThat(refreshTokensOf(user)).isEmpty();
+    }
+
     @Test
     @Transactional
     void assertThatNotActivatedUsersWithNotNullActivationKeyCreatedBefore3DaysAreDeleted() {
@@ -166,6 +226,32 @@ class UserServiceIT {
         assertThat(users).isEmpty();
     }
 
+    @Test
+    @Transactional
+    void assertThatNotActivatedUsersAreDeletedInBatchesWithTheirAuthorities() {
+        Instant now = Instant.now();
+        when(dateTimeProvider.getNow()).thenReturn(Optional.of(now.minus(4, ChronoUnit.DAYS)));
+        List<User> notActivatedUsers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User notActivatedUser = new User();
+            notActivatedUser.setLogin(DEFAULT_LOGIN + i);
+            notActivatedUser.setEmail(i + DEFAULT_EMAIL);
+            notActivatedUser.setPassword(RandomStringUtils.randomAlphanumeric(60));
+            notActivatedUser.setActivationKey(RandomUtil.generateActivationKey());
+            notActivatedUser.setAuthorities(new HashSet<>(authorityRepository.findAllById(Set.of(AuthoritiesConstants.USER))));
+            notActivatedUsers.add(userRepository.saveAndFlush(notActivatedUser));
+            cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).put(notActivatedUser.getLogin(), Optional.empty());
+        }
+        double deletedBefore = meterRegistry.counter(UserService.CLEANUP_METER_NAME + ".deleted").count();
+
+        userService.removeNotActivatedUsers();
+
+        assertThat(userRepository.findAllById(notActivatedUsers.stream().map(User::getId).collect(Collectors.toList()))).isEmpty();
+        assertThat(meterRegistry.counter(UserService.CLEANUP_METER_NAME + ".deleted").count() - deletedBefore).isEqualTo(5);
+        assertThat(meterRegistry.timer(UserService.CLEANUP_METER_NAME + ".batch").count()).isGreaterThanOrEqualTo(3);
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(DEFAULT_LOGIN + 0)).isNull();
+    }
+
     @Test
     @Transactional
     void assertThatNotActivatedUsersWithNullActivationKeyCreatedBefore3DaysAreNotDeleted() {
@@ -182,4 +268,12 @@ class UserServiceIT {
         Optional<User> maybeDbUser = userRepository.findById(dbUser.getId());
         assertThat(maybeDbUser).contains(dbUser);
     }
+
+    private List<RefreshToken> refreshTokensOf(User user) {
+        return refreshTokenRepository
+            .findAll()
+            .stream()
+            .filter(refreshToken -> refreshToken.getUser().getId().equals(user.getId()))
+            .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,62 @@
+package com.sturdy.alterra.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Unit tests for the {@link TrustedProxyForwardedHeaderFilter} class.
+ */
+class TrustedProxyForwardedHeaderFilterTest {
+
+    private final TrustedProxyForwardedHeaderFilter filter = new TrustedProxyForwardedHeaderFilter(List.of("10.0.0.0/8", "127.0.0.1"));
+
+    @Test
+    void shouldUseTheForwardedAddressOfATrustedProxy() throws Exception {
+        HttpServletRequest request = filter("10.0.0.1", "198.51.100.1");
+
+        assertThat(request.getRemoteAddr()).isEqualTo("198.51.100.1");
+        assertThat(request.getHeader("X-Forwarded-For")).isNull();
+    }
+
+    @Test
+    void shouldUseTheLastAddressWhichIsNotATrustedProxy() throws Exception {
+        assertThat(filter("10.0.0.1", "198.51.100.2, 198.51.100.1, 10.0.0.2").getRemoteAddr()).isEqualTo("198.51.100.1");
+        assertThat(filter("10.0.0.1", "unknown, 198.51.100.1").getRemoteAddr()).isEqualTo("198.51.100.1");
+        assertThat(filter("10.0.0.1", "198.51.100.1, unknown").getRemoteAddr()).isEqualTo("unknown");
+        assertThat(filter("10.0.0.1", "10.0.0.3, 10.0.0.2").getRemoteAddr()).isEqualTo("10.0.0.3");
+    }
+
+    @Test
+    void shouldIgnoreTheForwardedHeadersOfOtherClients() throws Exception {
+        HttpServletRequest request = filter("192.0.2.1", "198.51.100.1");
+
+        assertThat(request.getRemoteAddr()).isEqualTo("192.0.2.1");
+        assertThat(request.getHeader("X-Forwarded-For")).isNull();
+    }
+
+    @Test
+    void shouldKeepTheAddressOfRequestsWithoutForwardedHeaders() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest().getRemoteAddr()).isEqualTo("10.0.0.1");
+    }
+
+    private HttpServletRequest filter(String remoteAddress, String forwardedFor) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddress);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return (HttpServletRequest) chain.getRequest();
+    }
+}
@@ -106,6 +106,37 @@ class AccountResourceIT {
             .andExpect(jsonPath("$.authorities").value(AuthoritiesConstants.ADMIN));
     }
 
+    @Test
+    @Transactional
+    @WithMockUser("get-account-not-modified")
+    void testGetAccountNotModified() throws Exception {
+        AdminUserDTO user = new AdminUserDTO();
+        user.setLogin("get-account-not-modified");
+        user.setEmail("get-account-not-modified@example.com");
+        user.setAuthorities(Set.of(AuthoritiesConstants.USER));
+        userService.createUser(user);
+
+        String eTag = restAccountMockMvc
+            .perform(get("/api/account").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", "no-cache, private"))
+            .andExpect(header().exists("ETag"))
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+        restAccountMockMvc
+            .perform(get("/api/account").header("If-None-Match", eTag).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", eTag))
+            .andExpect(content().string(""));
+
+        restAccountMockMvc
+            .perform(get("/api/account").header("If-None-Match", "\"stale\"").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.login").value("get-account-not-modified"));
+    }
+
     @Test
     void testGetUnknownAccount() throws Exception {
         restAccountMockMvc
@@ -0,0 +1,90 @@
+package com.sturdy.alterra.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import com.sturdy.alterra.service.dto.AdminUserDTO;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Unit tests for {@link ETags}.
+ */
+class ETagsTest {
+
+    @Test
+    void testNotModifiedWhenTheClientHoldsTheVersion() {
+        Optional<ResponseEntity<Object>> response = ETags.notModified(request("\"other\", W/\"1-2-3\""), Optional.of("1-2-3"));
+
+        assertThat(response).isPresent();
+        assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.get().getHeaders().getETag()).isEqualTo("\"1-2-3\"");
+        assertThat(response.get().getHeaders().getCacheControl()).isEqualTo("no-cache, private");
+    }
+
+    @Test
+    void testNotModifiedForAnyVersion() {
+        assertThat(ETags.notModified(request("*"), Optional.of("1-2-3"))).isPresent();
+    }
+
+    @Test
+    void testModifiedWhenTheClientHoldsAnotherVersion() {
+        assertThat(ETags.notModified(request("\"1-2-4\""), Optional.of("1-2-3"))).isEmpty();
+        assertThat(ETags.notModified(request(null), Optional.of("1-2-3"))).isEmpty();
+    }
+
+    @Test
+    void testModifiedWhenTheVersionIsUnknown() {
+        assertThat(ETags.notModified(request("*"), Optional.empty())).isEmpty();
+    }
+
+    @Test
+    void testUserVersionMovesOnWithItsChanges() {
+        AdminUserDTO user = user();
+        String eTag = ETags.of(user);
+
+        user.setLastModifiedDate(user.getLastModifiedDate().plusNanos(1_000));
+        String modifiedETag = ETags.of(user);
+        user.setAuthorities(Set.of(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN));
+
+        assertThat(modifiedETag).isNotEqualTo(eTag);
+        assertThat(ETags.of(user)).isNotEqualTo(modifiedETag).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void testPageVersionMovesOnWithItsUsersAndTotal() {
+        AdminUserDTO user = user();
+        String eTag = ETags.ofAdminUsers(new PageImpl<>(List.of(user), PageRequest.of(0, 1), 1));
+
+        assertThat(ETags.ofAdminUsers(new PageImpl<>(List.of(user), PageRequest.of(0, 1), 1))).isEqualTo(eTag);
+        assertThat(ETags.ofAdminUsers(new PageImpl<>(List.of(user), PageRequest.of(0, 1), 2))).isNotEqualTo(eTag);
+        user.setLastModifiedDate(user.getLastModifiedDate().plusSeconds(1));
+        assertThat(ETags.ofAdminUsers(new PageImpl<>(List.of(user), PageRequest.of(0, 1), 1))).isNotEqualTo(eTag);
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/account");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request);
+    }
+
+    private static AdminUserDTO user() {
+        AdminUserDTO user = new AdminUserDTO();
+        user.setId(1L);
+        user.setLogin("user");
+        user.setLastModifiedDate(Instant.parse("2022-01-01T00:00:00.000001Z"));
+        user.setAuthorities(Set.of(AuthoritiesConstants.USER));
+        return user;
+    }
+}
@@ -1,7 +1,11 @@
 package com.sturdy.alterra.web.rest;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -15,7 +19,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
@@ -72,6 +78,27 @@ class PublicUserResourceIT {
             .andExpect(jsonPath("$.[*].langKey").doesNotExist());
     }
 
+    @Test
+    @Transactional
+    void getAllPublicUsersWithCursor() throws Exception {
+        // Initialize the database, with a user who is not activated
+        userRepository.saveAndFlush(user);
+        User inactive = UserResourceIT.createEntity(em);
+        inactive.setActivated(false);
+        userRepository.saveAndFlush(inactive);
+
+        MockHttpServletResponse response = restUserMockMvc
+            .perform(get("/api/users?cursor=&sort=login,desc&count=ESTIMATE").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(contains(DEFAULT_LOGIN)))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))))
+            .andReturn()
+            .getResponse();
+
+        // Estimated from the statistics of the table, or counted if it was never analyzed
+        assertThat(response.getHeaderNames()).containsAnyOf("X-Total-Count-Estimate", "X-Total-Count");
+    }
+
     @Test
     @Transactional
     void getAllAuthorities() throws Exception {
@@ -1,24 +1,32 @@
 package com.sturdy.alterra.web.rest;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.emptyString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.jayway.jsonpath.JsonPath;
 import com.sturdy.alterra.IntegrationTest;
+import com.sturdy.alterra.config.ApplicationProperties;
 import com.sturdy.alterra.domain.User;
 import com.sturdy.alterra.repository.UserRepository;
 import com.sturdy.alterra.web.rest.vm.LoginVM;
+import com.sturdy.alterra.web.rest.vm.RefreshTokenVM;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -34,9 +42,17 @@ class UserJWTControllerIT {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     @Autowired
     private MockMvc mockMvc;
 
+    @AfterEach
+    public void disableRefreshTokens() {
+        applicationProperties.getSecurity().getRefreshToken().setEnabled(false);
+    }
+
     @Test
     @Transactional
     void testAuthorize() throws Exception {
@@ -56,6 +72,7 @@ class UserJWTControllerIT {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.id_token").isString())
             .andExpect(jsonPath("$.id_token").isNotEmpty())
+            .andExpect(jsonPath("$.refresh_token").doesNotExist())
             .andExpect(header().string("Authorization", not(nullValue())))
             .andExpect(header().string("Authorization", not(is(emptyString()))));
     }
@@ -84,6 +101,30 @@ class UserJWTControllerIT {
             .andExpect(header().string("Authorization", not(is(emptyString()))));
     }
 
+    @Test
+    @Transactional
+    void testAuthorizeUpgradesWeakerPasswordHash() throws Exception {
+        User user = new User();
+        user.setLogin("user-jwt-controller-rehash");
+        user.setEmail("user-jwt-controller-rehash@example.com");
+        user.setActivated(true);
+        user.setPassword(new BCryptPasswordEncoder(4).encode("test"));
+
+        userRepository.saveAndFlush(user);
+
+        LoginVM login = new LoginVM();
+        login.setUsername("user-jwt-controller-rehash");
+        login.setPassword("test");
+        mockMvc
+            .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(status().isOk());
+
+        String password = userRepository.findOneByLogin("user-jwt-controller-rehash").orElseThrow().getPassword();
+        assertThat(password).startsWith("$2a$10$");
+        assertThat(passwordEncoder.matches("test", password)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(password)).isFalse();
+    }
+
     @Test
     void testAuthorizeFails() throws Exception {
         LoginVM login = new LoginVM();
@@ -95,4 +136,176 @@ class UserJWTControllerIT {
             .andExpect(jsonPath("$.id_token").doesNotExist())
             .andExpect(header().doesNotExist("Authorization"));
     }
+
+    @Test
+    void testAuthorizeIsThrottled() throws Exception {
+        LoginVM login = new LoginVM();
+        login.setUsername("user-jwt-controller-throttled");
+        login.setPassword("wrong password");
+        // Default application.security.login-throttling.max-attempts-per-login
+        for (int i = 0; i < 10; i++) {
+            mockMvc
+                .perform(
+                    post("/api/authenticate")
+                        .with(request -> {
+                            request.setRemoteAddr("192.0.2.1");
+                            return request;
+                        })
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(login))
+                )
+                .andExpect(status().isUnauthorized());
+        }
+
+        mockMvc
+            .perform(
+                post("/api/authenticate")
+                    .with(request -> {
+                        request.setRemoteAddr("192.0.2.1");
+                        return request;
+                    })
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(login))
+            )
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().exists("Retry-After"))
+            .andExpect(jsonPath("$.id_token").doesNotExist());
+    }
+
+    @Test
+    void testAuthorizeIsThrottledPerForwardedClientAddress() throws Exception {
+        int maxAttemptsPerAddress = applicationProperties.getSecurity().getLoginThrottling().getMaxAttemptsPerAddress();
+        // From behind the trusted proxy of the tests, with a login per attempt so that only the address is throttled
+        for (int i = 0; i < maxAttemptsPerAddress; i++) {
+            authorizeForwardedFor("198.51.100.1", "user-jwt-controller-forwarded-" + i).andExpect(status().isUnauthorized());
+        }
+
+        authorizeForwardedFor("198.51.100.1", "user-jwt-controller-forwarded").andExpect(status().isTooManyRequests());
+        authorizeForwardedFor("198.51.100.2", "user-jwt-controller-forwarded").andExpect(status().isUnauthorized());
+        // The first addresses are as the client sent them
+        authorizeForwardedFor("198.51.100.2, 198.51.100.1", "user-jwt-controller-forwarded").andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @Transactional
+    void testLogoutRevokesToken() throws Exception {
+        User user = new User();
+        user.setLogin("user-jwt-controller-logout");
+        user.setEmail("user-jwt-controller-logout@example.com");
+        user.setActivated(true);
+        user.setPassword(passwordEncoder.encode("test"));
+
+        userRepository.saveAndFlush(user);
+
+        LoginVM login = new LoginVM();
+        login.setUsername("user-jwt-controller-logout");
+        login.setPassword("test");
+        String authorization = mockMvc
+            .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("Authorization");
+
+        mockMvc.perform(get("/api/account").header("Authorization", authorization)).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/logout").header("Authorization", authorization)).andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/account").header("Authorization", authorization)).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Transactional
+    void testRefreshRotatesRefreshToken() throws Exception {
+        applicationProperties.getSecurity().getRefreshToken().setEnabled(true);
+        User user = new User();
+        user.setLogin("user-jwt-controller-refresh");
+        user.setEmail("user-jwt-controller-refresh@example.com");
+        user.setActivated(true);
+        user.setPassword(passwordEncoder.encode("test"));
+
+        userRepository.saveAndFlush(user);
+
+        LoginVM login = new LoginVM();
+        login.setUsername("user-jwt-controller-refresh");
+        login.setPassword("test");
+        String response = mockMvc
+            .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id_token").isNotEmpty())
+            .andExpect(jsonPath("$.refresh_token").isNotEmpty())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        RefreshTokenVM refreshToken = new RefreshTokenVM();
+        refreshToken.setRefreshToken(JsonPath.read(response, "$.refresh_token"));
+
+        response =
+            mockMvc
+                .perform(
+                    post("/api/authenticate/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(refreshToken))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id_token").isNotEmpty())
+                .andExpect(jsonPath("$.refresh_token").isNotEmpty())
+                .andExpect(jsonPath("$.refresh_token").value(not(refreshToken.getRefreshToken())))
+                .andExpect(header().string("Authorization", not(nullValue())))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        RefreshTokenVM rotatedRefreshToken = new RefreshTokenVM();
+        rotatedRefreshToken.setRefreshToken(JsonPath.read(response, "$.refresh_token"));
+
+        mockMvc
+            .perform(get("/api/account").header("Authorization", "Bearer " + JsonPath.read(response, "$.id_token")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.login").value("user-jwt-controller-refresh"));
+
+        // Replaying a used refresh token revokes its whole family
+        mockMvc
+            .perform(
+                post("/api/authenticate/refresh")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(refreshToken))
+            )
+            .andExpect(status().isUnauthorized())
+            .andExpect(jsonPath("$.id_token").doesNotExist());
+        mockMvc
+            .perform(
+                post("/api/authenticate/refresh")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(rotatedRefreshToken))
+            )
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testRefreshFails() throws Exception {
+        applicationProperties.getSecurity().getRefreshToken().setEnabled(true);
+        RefreshTokenVM refreshToken = new RefreshTokenVM();
+        refreshToken.setRefreshToken("wrong-refresh-token");
+        mockMvc
+            .perform(
+                post("/api/authenticate/refresh")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(refreshToken))
+            )
+            .andExpect(status().isUnauthorized())
+            .andExpect(jsonPath("$.id_token").doesNotExist())
+            .andExpect(header().doesNotExist("Authorization"));
+    }
+
+    private ResultActions authorizeForwardedFor(String forwardedFor, String username) throws Exception {
+        LoginVM login = new LoginVM();
+        login.setUsername(username);
+        login.setPassword("wrong password");
+        return mockMvc.perform(
+            post("/api/authenticate")
+                .header("X-Forwarded-For", forwardedFor)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestUtil.convertObjectToJsonBytes(login))
+        );
+    }
 }
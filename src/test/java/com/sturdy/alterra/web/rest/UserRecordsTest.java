@@ -0,0 +1,139 @@
+package com.sturdy.alterra.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sturdy.alterra.security.AuthoritiesConstants;
+import com.sturdy.alterra.service.dto.AdminUserDTO;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link UserRecords}.
+ */
+class UserRecordsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void testReadNdjsonSkipsBlankLinesAndRejectsInvalidOnes() {
+        Iterator<AdminUserDTO> users = UserRecords.readNdjson(
+            reader("{\"login\":\"john\",\"authorities\":[\"ROLE_USER\"]}\n\n  \nnot json\n{\"login\":\"jane\"}"),
+            objectMapper.readerFor(AdminUserDTO.class)
+        );
+
+        assertThat(users.next().getAuthorities()).containsExactly(AuthoritiesConstants.USER);
+        assertThatThrownBy(users::next).isInstanceOf(IllegalArgumentException.class).hasMessageStartingWith("Invalid JSON");
+        assertThat(users.next().getLogin()).isEqualTo("jane");
+        assertThat(users.hasNext()).isFalse();
+    }
+
+    @Test
+    void testReadCsvWithQuotedValues() throws IOException {
+        Iterator<AdminUserDTO> users = UserRecords.readCsv(
+            reader(
+                "login,firstName,lastName,email,authorities,createdDate\r\n" +
+                "john,\"John \"\"Jack\"\"\",\"Doe,\nJr\",,\"ROLE_USER,ROLE_ADMIN\",2022-01-01T00:00:00Z\r\n" +
+                "\r\n" +
+                "jane,Jane\n" +
+                "jim,,,jim@localhost,,"
+            )
+        );
+
+        AdminUserDTO john = users.next();
+        assertThat(john.getLogin()).isEqualTo("john");
+        assertThat(john.getFirstName()).isEqualTo("John \"Jack\"");
+        assertThat(john.getLastName()).isEqualTo("Doe,\nJr");
+        assertThat(john.getEmail()).isNull();
+        assertThat(john.getAuthorities()).containsExactly(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN);
+        assertThat(john.getCreatedDate()).isNull();
+        assertThatThrownBy(users::next).isInstanceOf(IllegalArgumentException.class).hasMessage("Expected 6 values, got 2");
+        assertThat(users.next().getEmail()).isEqualTo("jim@localhost");
+        assertThat(users.hasNext()).isFalse();
+    }
+
+    @Test
+    void testReadCsvRejectsAnInvalidHeader() {
+        assertThatThrownBy(() -> UserRecords.readCsv(reader(""))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UserRecords.readCsv(reader("email\njohn@localhost"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UserRecords.readCsv(reader("login,password\njohn,secret")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown column: password");
+    }
+
+    @Test
+    void testWrittenCsvIsReadBack() throws IOException {
+        AdminUserDTO user = new AdminUserDTO();
+        user.setId(1L);
+        user.setLogin("john");
+        user.setFirstName("John, \"Jack\"");
+        user.setEmail("john@localhost");
+        user.setAuthorities(Set.of(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN));
+        user.setCreatedDate(Instant.parse("2022-01-01T00:00:00Z"));
+        StringWriter csv = new StringWriter();
+
+        UserRecords.writeCsvHeader(csv);
+        UserRecords.writeCsv(csv, user);
+
+        assertThat(csv.toString())
+            .isEqualTo(
+                "id,login,email,firstName,lastName,imageUrl,langKey,authorities,activated,createdBy,createdDate,lastModifiedBy," +
+                "lastModifiedDate\r\n" +
+                "1,john,john@localhost,\"John, \"\"Jack\"\"\",,,,\"ROLE_ADMIN,ROLE_USER\",false,,2022-01-01T00:00:00Z,,\r\n"
+            );
+        Iterator<AdminUserDTO> users = UserRecords.readCsv(reader(csv.toString()));
+        AdminUserDTO read = users.next();
+        assertThat(read.getLogin()).isEqualTo("john");
+        assertThat(read.getFirstName()).isEqualTo("John, \"Jack\"");
+        assertThat(read.getEmail()).isEqualTo("john@localhost");
+        assertThat(read.getAuthorities()).isEqualTo(user.getAuthorities());
+        assertThat(read.getId()).isNull();
+        assertThat(users.hasNext()).isFalse();
+    }
+
+    @Test
+    void testFormulasAreEscapedAndReadBack() throws IOException {
+        AdminUserDTO user = new AdminUserDTO();
+        user.setLogin("-john");
+        user.setFirstName("=HYPERLINK(\"http://localhost\")");
+        user.setLastName("'+1");
+        user.setImageUrl("@SUM(A1)");
+        user.setLangKey("'t");
+        user.setAuthorities(Set.of());
+        StringWriter csv = new StringWriter();
+
+        UserRecords.writeCsvHeader(csv);
+        UserRecords.writeCsv(csv, user);
+
+        assertThat(csv.toString())
+            .endsWith("\r\n,'-john,,\"'=HYPERLINK(\"\"http://localhost\"\")\",''+1,'@SUM(A1),'t,,false,,,,\r\n");
+        AdminUserDTO read = UserRecords.readCsv(reader(csv.toString())).next();
+        assertThat(read.getLogin()).isEqualTo("-john");
+        assertThat(read.getFirstName()).isEqualTo("=HYPERLINK(\"http://localhost\")");
+        assertThat(read.getLastName()).isEqualTo("'+1");
+        assertThat(read.getImageUrl()).isEqualTo("@SUM(A1)");
+        assertThat(read.getLangKey()).isEqualTo("'t");
+    }
+
+    @Test
+    void testWriteNdjson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        UserRecords.writeNdjson(out, objectMapper.writer(), Set.of("john"));
+        UserRecords.writeNdjson(out, objectMapper.writer(), Set.of("jane"));
+
+        assertThat(out.toString()).isEqualTo("[\"john\"]\n[\"jane\"]\n");
+    }
+
+    private static BufferedReader reader(String content) {
+        return new BufferedReader(new StringReader(content));
+    }
+}
@@ -1,18 +1,24 @@
 package com.sturdy.alterra.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.jayway.jsonpath.JsonPath;
 import com.sturdy.alterra.IntegrationTest;
+import com.sturdy.alterra.config.ApplicationProperties;
 import com.sturdy.alterra.domain.Authority;
 import com.sturdy.alterra.domain.User;
+import com.sturdy.alterra.repository.UserPrincipal;
 import com.sturdy.alterra.repository.UserRepository;
 import com.sturdy.alterra.security.AuthoritiesConstants;
 import com.sturdy.alterra.service.dto.AdminUserDTO;
 import com.sturdy.alterra.service.mapper.UserMapper;
 import com.sturdy.alterra.web.rest.vm.ManagedUserVM;
+import java.net.URI;
 import java.time.Instant;
 import java.util.*;
 import java.util.function.Consumer;
@@ -23,9 +29,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -74,6 +83,9 @@ class UserResourceIT {
     @Autowired
     private MockMvc restUserMockMvc;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     private User user;
 
     @BeforeEach
@@ -260,25 +272,214 @@ class UserResourceIT {
 
     @Test
     @Transactional
-    void getUser() throws Exception {
+    void getAllUsersWithCursor() throws Exception {
+        // Initialize the database, with a user without last name, which comes last in ascending order
+        userRepository.saveAndFlush(user);
+        User first = createEntity(em);
+        first.setLastName("abbott");
+        userRepository.saveAndFlush(first);
+        User last = createEntity(em);
+        last.setLastName(null);
+        userRepository.saveAndFlush(last);
+
+        // Get the users page by page
+        List<String> logins = new ArrayList<>();
+        String uri = "/api/admin/users?cursor=&size=1&sort=lastName,asc&count=EXACT";
+        while (uri != null) {
+            MockHttpServletResponse response = restUserMockMvc
+                .perform(get(URI.create(uri)).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andReturn()
+                .getResponse();
+            logins.addAll(JsonPath.read(response.getContentAsString(), "$[*].login"));
+            uri = nextLink(response);
+        }
+
+        assertThat(logins).containsExactly(first.getLogin(), user.getLogin(), last.getLogin());
+    }
+
+    @Test
+    @Transactional
+    void getAllUsersWithCursorDescending() throws Exception {
         // Initialize the database
         userRepository.saveAndFlush(user);
+        User other = createEntity(em);
+        userRepository.saveAndFlush(other);
 
-        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNull();
+        MockHttpServletResponse response = restUserMockMvc
+            .perform(get("/api/admin/users?cursor=&size=1&sort=id,desc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].login").value(other.getLogin()))
+            .andReturn()
+            .getResponse();
+        restUserMockMvc
+            .perform(get(URI.create(nextLink(response))).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(user.getLogin()))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    void getAllUsersWithInvalidCursor() throws Exception {
+        restUserMockMvc
+            .perform(get("/api/admin/users?cursor=not-a-cursor").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        restUserMockMvc
+            .perform(get("/api/admin/users?cursor=&sort=login,asc&sort=id,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        restUserMockMvc
+            .perform(get("/api/admin/users?cursor=&count=SOME").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    static String nextLink(MockHttpServletResponse response) {
+        for (String link : response.getHeader(HttpHeaders.LINK).split(",")) {
+            if (link.endsWith("rel=\"next\"")) {
+                return link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Not transactional, as the users are imported on another thread: the imported user is deleted at the end.
+     */
+    @Test
+    void importUsers() throws Exception {
+        String users =
+            "{\"login\":\"bulk-import\",\"email\":\"bulk-import@localhost\",\"authorities\":[\"ROLE_USER\"]}\n" +
+            "{\"login\":\"admin\",\"email\":\"bulk-import-admin@localhost\"}\n" +
+            "not json\n";
+        try {
+            MvcResult result = restUserMockMvc
+                .perform(post("/api/admin/users/import").contentType(MediaType.APPLICATION_NDJSON).content(users))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            assertThat(result.getRequest().getAsyncContext().getTimeout())
+                .isEqualTo(applicationProperties.getUsers().getBulk().getRequestTimeout().toMillis());
+            String report = restUserMockMvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+            String[] lines = report.split("\n");
+            assertThat(lines).hasSize(3);
+            assertThat(JsonPath.<String>read(lines[0], "$.status")).isEqualTo("CREATED");
+            assertThat(JsonPath.<String>read(lines[1], "$.login")).isEqualTo("admin");
+            assertThat(JsonPath.<String>read(lines[1], "$.status")).isEqualTo("REJECTED");
+            assertThat(JsonPath.<Integer>read(lines[2], "$.row")).isEqualTo(3);
+            assertThat(JsonPath.<String>read(lines[2], "$.status")).isEqualTo("REJECTED");
+            assertThat(userRepository.findOneByLogin("bulk-import")).isPresent();
+        } finally {
+            userRepository.findOneByLogin("bulk-import").ifPresent(userRepository::delete);
+        }
+    }
 
-        // Get the user
+    @Test
+    @Transactional
+    void importUsersWithInvalidCsvHeader() throws Exception {
         restUserMockMvc
-            .perform(get("/api/admin/users/{login}", user.getLogin()))
+            .perform(post("/api/admin/users/import").contentType("text/csv").content("login,password\njohn,secret\n"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportUsers() throws Exception {
+        MvcResult result = restUserMockMvc
+            .perform(get("/api/admin/users/export").accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        assertThat(result.getRequest().getAsyncContext().getTimeout())
+            .isEqualTo(applicationProperties.getUsers().getBulk().getRequestTimeout().toMillis());
+        String users = restUserMockMvc
+            .perform(asyncDispatch(result))
             .andExpect(status().isOk())
-            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
-            .andExpect(jsonPath("$.login").value(user.getLogin()))
-            .andExpect(jsonPath("$.firstName").value(DEFAULT_FIRSTNAME))
-            .andExpect(jsonPath("$.lastName").value(DEFAULT_LASTNAME))
-            .andExpect(jsonPath("$.email").value(DEFAULT_EMAIL))
-            .andExpect(jsonPath("$.imageUrl").value(DEFAULT_IMAGEURL))
-            .andExpect(jsonPath("$.langKey").value(DEFAULT_LANGKEY));
-
-        assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNotNull();
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\""))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        assertThat(users.split("\n")).hasSize((int) userRepository.count()).anyMatch(user -> user.contains("\"login\":\"admin\""));
+    }
+
+    @Test
+    void exportUsersAsCsv() throws Exception {
+        MvcResult result = restUserMockMvc
+            .perform(get("/api/admin/users/export").accept("text/csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String users = restUserMockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        String[] lines = users.split("\r\n");
+        assertThat(lines[0]).startsWith("id,login,email,");
+        assertThat(lines).hasSize((int) userRepository.count() + 1).anyMatch(user -> user.contains(",admin,admin@localhost,"));
+    }
+
+    @Test
+    void streamUsers() throws Exception {
+        MvcResult result = restUserMockMvc
+            .perform(get("/api/admin/users/stream").accept(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        assertThat(result.getRequest().getAsyncContext().getTimeout())
+            .isEqualTo(applicationProperties.getUsers().getBulk().getRequestTimeout().toMillis());
+        restUserMockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.length()").value((int) userRepository.count()))
+            .andExpect(jsonPath("$.[*].login").value(hasItem("admin")))
+            .andExpect(jsonPath("$.[?(@.login == 'admin')].authorities[*]").value(hasItem(AuthoritiesConstants.ADMIN)));
+    }
+
+    /**
+     * Not transactional, as the principals read in a read-write transaction are only cached once it commits: the user is
+     * deleted at the end.
+     */
+    @Test
+    void getUser() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        try {
+            assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin())).isNull();
+
+            // Get the user
+            restUserMockMvc
+                .perform(get("/api/admin/users/{login}", user.getLogin()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.login").value(user.getLogin()))
+                .andExpect(jsonPath("$.firstName").value(DEFAULT_FIRSTNAME))
+                .andExpect(jsonPath("$.lastName").value(DEFAULT_LASTNAME))
+                .andExpect(jsonPath("$.email").value(DEFAULT_EMAIL))
+                .andExpect(jsonPath("$.imageUrl").value(DEFAULT_IMAGEURL))
+                .andExpect(jsonPath("$.langKey").value(DEFAULT_LANGKEY));
+
+            assertThat(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).get(user.getLogin(), UserPrincipal.class))
+                .isNotNull()
+                .extracting(UserPrincipal::getLogin)
+                .isEqualTo(user.getLogin());
+        } finally {
+            userRepository.deleteById(user.getId());
+            cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).evict(user.getLogin());
+            cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).evict(user.getEmail());
+        }
     }
 
     @Test